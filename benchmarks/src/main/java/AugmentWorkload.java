@@ -0,0 +1,53 @@
+import benchmarks.Workload;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Geração de um batch aumentado por uma thread produtora do
+ * {@link AugmentingBatchLoader}: {@link Augmenter#augment} para cada
+ * imagem, a partir dos píxeis uint8 de dados IDX sintéticos. Comparar com
+ * o passo de treino do {@link MiniBatchWorkload} diz quantas threads de
+ * aumento são precisas para o treino não ficar à espera.
+ */
+public class AugmentWorkload implements Workload {
+    private static final int IMAGES = 4096;
+
+    private Path directory;
+    private MnistStore data;
+    private Augmenter augmenter;
+    private double[] inputs;
+    private int batchSize;
+    private int start;
+
+    @Override
+    public void setUp(Map<String, String> params) throws Exception {
+        directory = Files.createTempDirectory("nn-bench");
+        BenchmarkFixtures.writeSyntheticIdx(directory, IMAGES);
+        data = MnistStore.open(BenchmarkFixtures.imagesPath(directory).toString(),
+                BenchmarkFixtures.labelsPath(directory).toString(), IMAGES);
+        batchSize = Integer.parseInt(params.get("batchSize"));
+        augmenter = new Augmenter(Augmentation.parse(params.get("augmentation")), data.getRows(), data.getCols());
+        augmenter.reseed(BenchmarkFixtures.SEED);
+        inputs = new double[batchSize * data.inputSize()];
+    }
+
+    @Override
+    public void run(Blackhole blackhole) {
+        if (start + batchSize > IMAGES) {
+            start = 0;
+        }
+        for (int r = 0; r < batchSize; r++) {
+            augmenter.augment(data, start + r, inputs, r * data.inputSize());
+        }
+        blackhole.consume(inputs);
+        start += batchSize;
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        BenchmarkFixtures.deleteRecursively(directory);
+    }
+}
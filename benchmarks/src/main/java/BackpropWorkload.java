@@ -0,0 +1,33 @@
+import benchmarks.Workload;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Uma amostra pelo caminho não vetorizado: {@link NeuralNetwork#forward},
+ * {@link NeuralNetwork#backward(int)} e {@link NeuralNetwork#accumulateGradients}.
+ */
+public class BackpropWorkload implements Workload {
+    private NeuralNetwork network;
+    private static final int LABEL = 3;
+
+    private double[] input;
+
+    @Override
+    public void setUp(Map<String, String> params) {
+        network = new NeuralNetwork(BenchmarkFixtures.network(params.get("hidden")));
+        Random random = new Random(BenchmarkFixtures.SEED);
+        input = new double[BenchmarkFixtures.INPUT_SIZE];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = random.nextGaussian();
+        }
+    }
+
+    @Override
+    public void run(Blackhole blackhole) {
+        blackhole.consume(network.forward(input));
+        network.backward(LABEL);
+        network.accumulateGradients();
+    }
+}
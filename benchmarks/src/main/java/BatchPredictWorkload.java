@@ -0,0 +1,54 @@
+import benchmarks.Workload;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Um forward em batch ({@link InferenceSession#predictBatch}) de
+ * {@code batchSize} imagens sintéticas, como o que o {@link MicroBatcher}
+ * faz por cada micro-batch.
+ */
+public class BatchPredictWorkload implements Workload {
+    private static final int IMAGES = 256;
+
+    private InferenceSession session;
+    private double[][] batches;
+    private double[] outputs;
+    private int batchSize;
+    private int next;
+
+    @Override
+    public void setUp(Map<String, String> params) throws Exception {
+        batchSize = Integer.parseInt(params.get("batchSize"));
+        Path directory = Files.createTempDirectory("nn-bench");
+        try {
+            BenchmarkFixtures.writeSyntheticIdx(directory, IMAGES);
+            MnistStore data = MnistStore.open(BenchmarkFixtures.imagesPath(directory).toString(),
+                    BenchmarkFixtures.labelsPath(directory).toString(), IMAGES);
+            int inputSize = data.inputSize();
+            batches = new double[(IMAGES + batchSize - 1) / batchSize][batchSize * inputSize];
+            for (int b = 0; b < batches.length; b++) {
+                for (int r = 0; r < batchSize; r++) {
+                    data.copyInput((b * batchSize + r) % IMAGES, batches[b], r * inputSize);
+                }
+            }
+        } finally {
+            BenchmarkFixtures.deleteRecursively(directory);
+        }
+
+        Model model = Model.of(BenchmarkFixtures.network(params.get("hidden")), true,
+                Precision.parse(params.get("precision")));
+        session = model.newSession();
+        outputs = new double[batchSize * model.getOutputSize()];
+    }
+
+    @Override
+    public void run(Blackhole blackhole) {
+        double[] batch = batches[next];
+        next = (next + 1) % batches.length;
+        session.predictBatch(batch, batchSize, outputs);
+        blackhole.consume(outputs);
+    }
+}
@@ -0,0 +1,79 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Dados e redes sintéticos para os benchmarks, gerados com seed fixa para
+ * que as execuções sejam comparáveis e não dependam do download do MNIST.
+ */
+final class BenchmarkFixtures {
+
+    static final int INPUT_SIZE = 28 * 28;
+    static final int OUTPUT_SIZE = 10;
+    static final long SEED = 1234L;
+
+    private BenchmarkFixtures() {
+    }
+
+    /** Rede {@code 784 -> hidden... -> 10}, com {@code hidden} como "256x128". */
+    static ArrayList<Layer> network(String hidden) {
+        Random random = new Random(SEED);
+        ArrayList<Layer> layers = new ArrayList<>();
+        int previousSize = INPUT_SIZE;
+        for (String width : hidden.split("x")) {
+            int size = Integer.parseInt(width.trim());
+            layers.add(new Layer(size, previousSize, ActivationType.RELU, random));
+            previousSize = size;
+        }
+        layers.add(new Layer(OUTPUT_SIZE, previousSize, ActivationType.LINEAR, random));
+        return layers;
+    }
+
+    /**
+     * Escreve em {@code directory} um par de ficheiros IDX ({@code images.idx}
+     * e {@code labels.idx}) com {@code count} imagens 28x28 esparsas como as
+     * do MNIST: cerca de 80% dos píxeis a zero.
+     */
+    static void writeSyntheticIdx(Path directory, int count) throws IOException {
+        Random random = new Random(SEED);
+        byte[] pixels = new byte[INPUT_SIZE];
+        try (OutputStream images = Files.newOutputStream(imagesPath(directory));
+             OutputStream labels = Files.newOutputStream(labelsPath(directory))) {
+            images.write(ByteBuffer.allocate(16).putInt(MnistLoader.IMAGE_MAGIC).putInt(count)
+                    .putInt(28).putInt(28).array());
+            labels.write(ByteBuffer.allocate(8).putInt(MnistLoader.LABEL_MAGIC).putInt(count).array());
+            for (int i = 0; i < count; i++) {
+                for (int j = 0; j < pixels.length; j++) {
+                    pixels[j] = random.nextInt(5) == 0 ? (byte) (1 + random.nextInt(255)) : 0;
+                }
+                images.write(pixels);
+                labels.write(random.nextInt(OUTPUT_SIZE));
+            }
+        }
+    }
+
+    static Path imagesPath(Path directory) {
+        return directory.resolve("images.idx");
+    }
+
+    static Path labelsPath(Path directory) {
+        return directory.resolve("labels.idx");
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
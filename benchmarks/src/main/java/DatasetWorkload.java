@@ -0,0 +1,52 @@
+import benchmarks.Workload;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Leitura de um ficheiro IDX sintético com {@link MnistLoader#loadImages}
+ * ou abrindo o {@link MnistStore} mapeado e normalizando todas as imagens.
+ */
+public class DatasetWorkload implements Workload {
+    private Path directory;
+    private String images;
+    private String labels;
+    private int count;
+    private boolean mappedStore;
+    private double[] buffer;
+
+    @Override
+    public void setUp(Map<String, String> params) throws Exception {
+        count = Integer.parseInt(params.get("images"));
+        String reader = params.get("reader");
+        if (!"loadImages".equals(reader) && !"mnistStore".equals(reader)) {
+            throw new IllegalArgumentException("Leitor desconhecido: " + reader);
+        }
+        mappedStore = "mnistStore".equals(reader);
+        directory = Files.createTempDirectory("nn-bench");
+        BenchmarkFixtures.writeSyntheticIdx(directory, count);
+        images = BenchmarkFixtures.imagesPath(directory).toString();
+        labels = BenchmarkFixtures.labelsPath(directory).toString();
+        buffer = new double[BenchmarkFixtures.INPUT_SIZE];
+    }
+
+    @Override
+    public void run(Blackhole blackhole) throws Exception {
+        if (mappedStore) {
+            MnistStore store = MnistStore.open(images, labels, count);
+            for (int i = 0; i < store.size(); i++) {
+                store.copyInput(i, buffer, 0);
+                blackhole.consume(buffer[i % buffer.length]);
+            }
+        } else {
+            blackhole.consume(MnistLoader.loadImages(images, count));
+        }
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        BenchmarkFixtures.deleteRecursively(directory);
+    }
+}
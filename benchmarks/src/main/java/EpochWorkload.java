@@ -0,0 +1,93 @@
+import benchmarks.Workload;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Uma época inteira sobre dados IDX sintéticos: com {@code phase=train},
+ * {@link NeuralNetwork#trainEpoch}, o mesmo ciclo de batches do treino
+ * síncrono numa thread (sem as linhas de progresso); com
+ * {@code phase=test}, uma avaliação com o {@link Evaluator}. No fim
+ * verifica, com o contador de bytes alocados da thread, que depois do
+ * aquecimento uma época de treino não aloca nada e que a avaliação aloca
+ * o mesmo com 64 ou com todas as amostras; se não, o benchmark falha.
+ */
+public class EpochWorkload implements Workload {
+    private static final int IMAGES = 1024;
+    private static final int BATCH_SIZE = 64;
+    private static final int SMALL_EVALUATION = 64;
+    private static final double LEARNING_RATE = 0.01;
+    // Obtido uma vez: ManagementFactory.getThreadMXBean() aloca em cada chamada.
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Path directory;
+    private MnistStore data;
+    private boolean train;
+    private int epoch;
+    private NeuralNetwork network;
+    private Evaluator evaluator;
+    private Model model;
+
+    @Override
+    public void setUp(Map<String, String> params) throws Exception {
+        directory = Files.createTempDirectory("nn-bench");
+        BenchmarkFixtures.writeSyntheticIdx(directory, IMAGES);
+        data = MnistStore.open(BenchmarkFixtures.imagesPath(directory).toString(),
+                BenchmarkFixtures.labelsPath(directory).toString(), IMAGES);
+        train = !"test".equals(params.get("phase"));
+        network = new NeuralNetwork(BenchmarkFixtures.network(params.get("hidden")), BATCH_SIZE);
+        network.setSeed(BenchmarkFixtures.SEED);
+        evaluator = new Evaluator(1);
+        model = network.toModel();
+    }
+
+    @Override
+    public void run(Blackhole blackhole) {
+        if (train) {
+            blackhole.consume(trainEpoch());
+        } else {
+            blackhole.consume(evaluator.evaluate(model, data));
+        }
+    }
+
+    private double trainEpoch() {
+        return network.trainEpoch(data, LEARNING_RATE, epoch++);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        try {
+            if (train) {
+                long before = allocatedBytes();
+                trainEpoch();
+                long allocated = allocatedBytes() - before;
+                if (allocated != 0) {
+                    throw new IllegalStateException("Uma época de treino alocou " + allocated + " bytes.");
+                }
+            } else {
+                SampleSource small = data.slice(0, SMALL_EVALUATION);
+                long before = allocatedBytes();
+                evaluator.evaluate(model, small);
+                long smallBytes = allocatedBytes() - before;
+                before = allocatedBytes();
+                evaluator.evaluate(model, data);
+                long fullBytes = allocatedBytes() - before;
+                if (fullBytes != smallBytes) {
+                    throw new IllegalStateException("A avaliação alocou " + smallBytes + " bytes com "
+                            + SMALL_EVALUATION + " amostras e " + fullBytes + " com " + IMAGES + ".");
+                }
+            }
+        } finally {
+            evaluator.close();
+            BenchmarkFixtures.deleteRecursively(directory);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,73 @@
+import java.lang.module.ModuleFinder;
+
+/**
+ * Verificação executável dos backends de {@link Kernels}, para correr a
+ * seguir ao build: carrega a versão SIMD, compara todas as operações com
+ * {@link ScalarKernels} ({@link KernelBackends#verify}) com dados de várias
+ * seeds e confirma que {@link KernelBackends#active()} a escolheu. Termina
+ * com código 1 se a JVM tem a Vector API e a versão SIMD não carrega,
+ * diverge ou foi rejeitada; numa JVM sem o módulo
+ * {@code jdk.incubator.vector} só existe o backend escalar e não há nada a
+ * verificar.
+ *
+ * <pre>
+ * java --add-modules jdk.incubator.vector -cp benchmarks/target/benchmarks.jar KernelCheck [--seeds N]
+ * </pre>
+ */
+public final class KernelCheck {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private KernelCheck() {
+    }
+
+    public static void main(String[] args) {
+        int seeds = 100;
+        for (int i = 0; i < args.length; i++) {
+            if ("--seeds".equalsIgnoreCase(args[i]) && i + 1 < args.length) {
+                seeds = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("Argumento desconhecido: " + args[i]);
+                System.err.println("Uso: java --add-modules " + VECTOR_MODULE
+                        + " -cp benchmarks/target/benchmarks.jar KernelCheck [--seeds N]");
+                System.exit(2);
+            }
+        }
+
+        if (ModuleFinder.ofSystem().find(VECTOR_MODULE).isEmpty()) {
+            System.out.println("Esta JVM não tem o módulo " + VECTOR_MODULE + ": só existe o backend escalar.");
+            return;
+        }
+        if (!KernelBackends.vectorModulePresent()) {
+            fail("a JVM tem a Vector API mas foi iniciada sem --add-modules " + VECTOR_MODULE + ".");
+        }
+        Kernels vector = KernelBackends.vectorOrNull();
+        if (vector == null) {
+            fail("a classe VectorKernels não carrega (falta no classpath ou falhou a inicialização).");
+        }
+
+        Kernels scalar = new ScalarKernels();
+        for (int seed = 0; seed < seeds; seed++) {
+            String mismatch = KernelBackends.verify(vector, scalar, seed);
+            if (mismatch != null) {
+                fail(vector.name() + " diverge do escalar em " + mismatch + " (seed " + seed + ").");
+            }
+        }
+
+        Kernels active = KernelBackends.active();
+        if (active.getClass() != vector.getClass()) {
+            if ("scalar".equalsIgnoreCase(System.getProperty("nn.kernels"))) {
+                System.out.println("Aviso: -Dnn.kernels=scalar força o backend escalar na rede.");
+            } else {
+                fail("KernelBackends escolheu " + active.name() + " em vez de " + vector.name() + ".");
+            }
+        }
+        System.out.println("OK: " + vector.name() + " coincide com " + scalar.name()
+                + " em todas as operações (" + seeds + " seeds).");
+    }
+
+    private static void fail(String message) {
+        System.err.println("Verificação dos kernels falhou: " + message);
+        System.exit(1);
+    }
+}
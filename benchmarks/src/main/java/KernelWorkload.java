@@ -0,0 +1,95 @@
+import benchmarks.Workload;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Uma operação de {@link Kernels} num backend escolhido explicitamente,
+ * para comparar {@link ScalarKernels} com a implementação SIMD. Antes de
+ * medir, o backend SIMD é validado contra o escalar.
+ */
+public class KernelWorkload implements Workload {
+    private Kernels kernels;
+    private String operation;
+    private int length;
+    private double[] a;
+    private double[] b;
+    private double[] scratch;
+    private float[] fa;
+    private float[] fb;
+    private byte[] qa;
+    private byte[] qb;
+
+    @Override
+    public void setUp(Map<String, String> params) {
+        String backend = params.get("backend");
+        if ("vector".equals(backend)) {
+            kernels = KernelBackends.vectorOrNull();
+            if (kernels == null) {
+                throw new IllegalStateException("Vector API indisponível: falta --add-modules jdk.incubator.vector.");
+            }
+            String mismatch = KernelBackends.verify(kernels, new ScalarKernels());
+            if (mismatch != null) {
+                throw new IllegalStateException("Os backends divergem em " + mismatch);
+            }
+        } else {
+            kernels = new ScalarKernels();
+        }
+        operation = params.get("operation");
+        length = Integer.parseInt(params.get("length"));
+
+        Random random = new Random(BenchmarkFixtures.SEED);
+        a = new double[length];
+        b = new double[length];
+        scratch = new double[length];
+        fa = new float[length];
+        fb = new float[length];
+        qa = new byte[length];
+        qb = new byte[length];
+        for (int i = 0; i < length; i++) {
+            a[i] = random.nextGaussian();
+            b[i] = random.nextGaussian();
+            fa[i] = (float) a[i];
+            fb[i] = (float) b[i];
+            qa[i] = (byte) (random.nextInt(255) - 127);
+            qb[i] = (byte) (random.nextInt(255) - 127);
+        }
+    }
+
+    @Override
+    public void run(Blackhole blackhole) {
+        switch (operation) {
+            case "dot":
+                blackhole.consume(kernels.dot(a, 0, b, 0, length));
+                break;
+            case "dotFloat":
+                blackhole.consume(kernels.dot(fa, 0, fb, 0, length));
+                break;
+            case "dotInt8":
+                blackhole.consume(kernels.dot(qa, 0, qb, 0, length));
+                break;
+            case "axpy":
+                kernels.axpy(1e-9, a, 0, scratch, 0, length);
+                blackhole.consume(scratch);
+                break;
+            case "relu":
+                System.arraycopy(a, 0, scratch, 0, length);
+                kernels.relu(scratch, 0, length);
+                blackhole.consume(scratch);
+                break;
+            case "reluMask":
+                System.arraycopy(b, 0, scratch, 0, length);
+                kernels.reluMask(a, scratch, 0, length);
+                blackhole.consume(scratch);
+                break;
+            case "softmax":
+                System.arraycopy(a, 0, scratch, 0, length);
+                kernels.softmax(scratch, 0, length);
+                blackhole.consume(scratch);
+                break;
+            default:
+                throw new IllegalArgumentException("Operação desconhecida: " + operation);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+import benchmarks.Workload;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.Random;
+
+/** {@link Layer#forward(double[])} de uma camada ReLU {@code outputSize x inputSize}. */
+public class LayerForwardWorkload implements Workload {
+    private Layer layer;
+    private double[] input;
+
+    @Override
+    public void setUp(Map<String, String> params) {
+        int inputSize = Integer.parseInt(params.get("inputSize"));
+        int outputSize = Integer.parseInt(params.get("outputSize"));
+        Random random = new Random(BenchmarkFixtures.SEED);
+        layer = new Layer(outputSize, inputSize, ActivationType.RELU, random);
+        input = new double[inputSize];
+        for (int i = 0; i < inputSize; i++) {
+            input[i] = random.nextGaussian();
+        }
+    }
+
+    @Override
+    public void run(Blackhole blackhole) {
+        blackhole.consume(layer.forward(input));
+    }
+}
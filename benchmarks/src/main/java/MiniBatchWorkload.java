@@ -0,0 +1,70 @@
+import benchmarks.Workload;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Um passo de mini-batch completo sobre dados IDX sintéticos: cópia das
+ * amostras para o workspace, forward e backward em bloco e atualização
+ * dos pesos, em float64 ({@link NeuralNetwork#trainBatch}) ou float32
+ * ({@link Float32Trainer}). Com {@code input=sparse} a primeira camada
+ * usa o {@link SparseInputPath}. Os batches percorrem o dataset em ciclo.
+ */
+public class MiniBatchWorkload implements Workload {
+    private static final int IMAGES = 4096;
+    private static final double LEARNING_RATE = 0.01;
+
+    private Path directory;
+    private MnistStore data;
+    private int[] order;
+    private int batchSize;
+    private int start;
+
+    private NeuralNetwork network;
+    private BatchWorkspace workspace;
+    private Float32Trainer floatTrainer;
+
+    @Override
+    public void setUp(Map<String, String> params) throws Exception {
+        directory = Files.createTempDirectory("nn-bench");
+        BenchmarkFixtures.writeSyntheticIdx(directory, IMAGES);
+        data = MnistStore.open(BenchmarkFixtures.imagesPath(directory).toString(),
+                BenchmarkFixtures.labelsPath(directory).toString(), IMAGES);
+        order = new int[IMAGES];
+        for (int i = 0; i < IMAGES; i++) {
+            order[i] = i;
+        }
+
+        batchSize = Integer.parseInt(params.get("batchSize"));
+        ArrayList<Layer> layers = BenchmarkFixtures.network(params.get("hidden"));
+        if (Precision.parse(params.get("precision")) == Precision.FLOAT32) {
+            floatTrainer = new Float32Trainer(layers, batchSize);
+        } else {
+            network = new NeuralNetwork(layers, batchSize);
+            network.setSparseInput("sparse".equals(params.get("input")));
+            workspace = network.newWorkspace(batchSize);
+        }
+    }
+
+    @Override
+    public void run(Blackhole blackhole) {
+        if (start + batchSize > IMAGES) {
+            start = 0;
+        }
+        if (floatTrainer != null) {
+            blackhole.consume(floatTrainer.trainBatch(data, order, start, batchSize, LEARNING_RATE));
+        } else {
+            workspace.load(data, order, start, batchSize);
+            blackhole.consume(network.trainBatch(workspace, batchSize));
+        }
+        start += batchSize;
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        BenchmarkFixtures.deleteRecursively(directory);
+    }
+}
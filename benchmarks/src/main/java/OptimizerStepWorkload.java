@@ -0,0 +1,44 @@
+import benchmarks.Workload;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Um passo de {@link Layer#applyGradients(double[], double[], double, int)}
+ * numa camada {@code outputSize x inputSize} com o otimizador indicado.
+ * Os gradientes são fixos; só interessa o custo da atualização.
+ */
+public class OptimizerStepWorkload implements Workload {
+    private static final int BATCH_SIZE = 64;
+
+    private Layer layer;
+    private double[] weightGradients;
+    private double[] biasGradients;
+    private double learningRate;
+
+    @Override
+    public void setUp(Map<String, String> params) {
+        int inputSize = Integer.parseInt(params.get("inputSize"));
+        int outputSize = Integer.parseInt(params.get("outputSize"));
+        Optimizer optimizer = Optimizer.parse(params.get("optimizer"));
+        Random random = new Random(BenchmarkFixtures.SEED);
+        layer = new Layer(outputSize, inputSize, ActivationType.RELU, random);
+        layer.setOptimizer(optimizer);
+        learningRate = optimizer.defaultLearningRate();
+        weightGradients = new double[outputSize * inputSize];
+        biasGradients = new double[outputSize];
+        for (int i = 0; i < weightGradients.length; i++) {
+            weightGradients[i] = random.nextGaussian() * 1e-3;
+        }
+        for (int i = 0; i < biasGradients.length; i++) {
+            biasGradients[i] = random.nextGaussian() * 1e-3;
+        }
+    }
+
+    @Override
+    public void run(Blackhole blackhole) {
+        layer.applyGradients(weightGradients, biasGradients, learningRate, BATCH_SIZE);
+        blackhole.consume(layer.getWeights());
+    }
+}
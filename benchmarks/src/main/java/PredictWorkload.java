@@ -0,0 +1,53 @@
+import benchmarks.Workload;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Predição de uma imagem sintética com {@link InferenceSession} (float64 ou
+ * float32) ou com {@link Int8InferenceEngine}, calibrado sobre os mesmos dados.
+ */
+public class PredictWorkload implements Workload {
+    private static final int IMAGES = 256;
+
+    private InferenceSession session;
+    private Int8InferenceEngine int8Engine;
+    private double[][] inputs;
+    private int next;
+
+    @Override
+    public void setUp(Map<String, String> params) throws Exception {
+        Path directory = Files.createTempDirectory("nn-bench");
+        MnistStore data;
+        try {
+            BenchmarkFixtures.writeSyntheticIdx(directory, IMAGES);
+            data = MnistStore.open(BenchmarkFixtures.imagesPath(directory).toString(),
+                    BenchmarkFixtures.labelsPath(directory).toString(), IMAGES);
+            inputs = new double[IMAGES][data.inputSize()];
+            for (int i = 0; i < IMAGES; i++) {
+                data.copyInput(i, inputs[i], 0);
+            }
+        } finally {
+            BenchmarkFixtures.deleteRecursively(directory);
+        }
+
+        ArrayList<Layer> layers = BenchmarkFixtures.network(params.get("hidden"));
+        String engine = params.get("engine");
+        if ("int8".equalsIgnoreCase(engine)) {
+            int8Engine = QuantizedModel.quantize(layers, true, new ArraySampleSource(inputs, new int[IMAGES]), IMAGES)
+                    .newEngine();
+        } else {
+            session = Model.of(layers, true, Precision.parse(engine)).newSession();
+        }
+    }
+
+    @Override
+    public void run(Blackhole blackhole) {
+        double[] input = inputs[next];
+        next = (next + 1) % IMAGES;
+        blackhole.consume(int8Engine != null ? int8Engine.argmax(input) : session.argmax(input));
+    }
+}
@@ -0,0 +1,67 @@
+import benchmarks.Workload;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Gravação e leitura dos pesos em CSV ({@link NeuralNetwork#saveWeights},
+ * {@link NeuralNetwork#loadWeights}) e no formato binário
+ * ({@link NeuralNetwork#saveModel}, {@link NeuralNetwork#loadModel}).
+ */
+public class WeightsFileWorkload implements Workload {
+    private Path directory;
+    private String csvPath;
+    private String modelPath;
+    private String operation;
+    private NeuralNetwork network;
+    private PrintStream originalOut;
+
+    @Override
+    public void setUp(Map<String, String> params) throws Exception {
+        operation = params.get("operation");
+        network = new NeuralNetwork(BenchmarkFixtures.network(params.get("hidden")));
+        directory = Files.createTempDirectory("nn-bench");
+        csvPath = directory.resolve("pesos.csv").toString();
+        modelPath = directory.resolve("model.bin").toString();
+
+        // save/load escrevem uma linha na consola em cada chamada.
+        originalOut = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+            }
+        }));
+        network.saveWeights(csvPath);
+        network.saveModel(modelPath);
+    }
+
+    @Override
+    public void run(Blackhole blackhole) {
+        switch (operation) {
+            case "saveWeights":
+                network.saveWeights(csvPath);
+                break;
+            case "loadWeights":
+                network.loadWeights(csvPath);
+                break;
+            case "saveModel":
+                network.saveModel(modelPath);
+                break;
+            case "loadModel":
+                blackhole.consume(network.loadModel(modelPath));
+                break;
+            default:
+                throw new IllegalArgumentException("Operação desconhecida: " + operation);
+        }
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        System.setOut(originalOut);
+        BenchmarkFixtures.deleteRecursively(directory);
+    }
+}
@@ -0,0 +1,59 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uma época de treino ou de avaliação. No fim de cada trial o workload
+ * confirma, com o contador exato de bytes da thread, que o treino não
+ * aloca e que a avaliação não aloca por amostra; se alocarem, o trial
+ * falha. (O {@code gc.alloc.rate.norm} de {@code -prof gc} inclui a
+ * alocação do próprio JMH, que com operações tão longas não é desprezável.)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class AllocationBenchmarks {
+
+    /** Larguras das camadas escondidas, separadas por "x". */
+    @Param({"256x128"})
+    public String hidden;
+
+    @Param({"train", "test"})
+    public String phase;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workload = Workload.create("EpochWorkload", Map.of("hidden", hidden, "phase", phase));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        workload.tearDown();
+    }
+
+    @Benchmark
+    public void epoch(Blackhole blackhole) throws Exception {
+        workload.run(blackhole);
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passo de mini-batch em float64 com a primeira camada densa ou esparsa,
+ * sobre imagens sintéticas com a densidade do MNIST (~20% dos píxeis
+ * diferentes do fundo).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class SparseInputBenchmarks {
+
+    /** Larguras das camadas escondidas, separadas por "x" (o JMH divide os valores de -p nas vírgulas). */
+    @Param({"256x128"})
+    public String hidden;
+
+    @Param({"16", "64", "256"})
+    public int batchSize;
+
+    @Param({"dense", "sparse"})
+    public String input;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workload = Workload.create("MiniBatchWorkload",
+                Map.of("hidden", hidden, "batchSize", String.valueOf(batchSize), "precision", "float64", "input", input));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        workload.tearDown();
+    }
+
+    @Benchmark
+    public void trainStep(Blackhole blackhole) throws Exception {
+        workload.run(blackhole);
+    }
+}
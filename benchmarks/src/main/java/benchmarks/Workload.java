@@ -0,0 +1,29 @@
+package benchmarks;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+
+/**
+ * Operação medida por um benchmark. O JMH não aceita classes de benchmark
+ * no pacote por omissão e as classes da rede vivem nesse pacote, que não
+ * pode ser importado a partir de um pacote com nome. Por isso os
+ * benchmarks deste pacote só tratam das anotações e dos parâmetros, e
+ * delegam numa implementação desta interface no pacote por omissão, que
+ * usa a rede diretamente e é carregada uma vez por nome no {@code @Setup}.
+ */
+public interface Workload {
+
+    void setUp(Map<String, String> params) throws Exception;
+
+    void run(Blackhole blackhole) throws Exception;
+
+    default void tearDown() throws Exception {
+    }
+
+    static Workload create(String className, Map<String, String> params) throws Exception {
+        Workload workload = (Workload) Class.forName(className).getDeclaredConstructor().newInstance();
+        workload.setUp(params);
+        return workload;
+    }
+}
@@ -284,6 +284,21 @@ function updatePreview() {
 // Carregar rede neural
 async function loadNeuralNetwork() {
     try {
+        // Modelo compacto (--export-web): um manifest e um blob binário, sem parsing de texto
+        try {
+            const network = await NeuralNetwork.loadWebModel(resolveWeightsPath('model-web.json'));
+            const first = network.layers[0];
+            const last = network.layers[network.layers.length - 1];
+            if (first.inputSize !== GRID_SIZE * GRID_SIZE || last.outputSize !== OUTPUT_CLASSES) {
+                throw new Error(`Arquitetura ${first.inputSize} -> ${last.outputSize} incompatível.`);
+            }
+            neuralNetwork = network;
+            console.log(`Rede neural carregada do modelo compacto (${network.dtype}).`);
+            return;
+        } catch (webModelError) {
+            console.warn('Modelo compacto indisponível, a carregar o CSV:', webModelError);
+        }
+
         // Criar estrutura da rede baseada na arquitetura de treino (784 -> 256 -> 128 -> 10)
         const layers = [];
         let previousSize = GRID_SIZE * GRID_SIZE;
@@ -296,7 +311,7 @@ async function loadNeuralNetwork() {
         
         // Carregar pesos do ficheiro CSV
         try {
-            const weightsPath = resolveWeightsPath();
+            const weightsPath = resolveWeightsPath('pesos.csv');
             const response = await fetch(weightsPath);
             if (!response.ok) {
                 throw new Error('Não foi possível carregar os pesos. Certifique-se de que weights/pesos.csv existe.');
@@ -397,7 +412,7 @@ function updateProbabilities(probabilities) {
     });
 }
 
-function resolveWeightsPath() {
+function resolveWeightsPath(fileName) {
     const path = window.location.pathname;
     const trimTo = (segment) => path.includes(segment)
         ? path.substring(0, path.indexOf(segment))
@@ -411,5 +426,5 @@ function resolveWeightsPath() {
     if (!base.endsWith('/')) {
         base += '/';
     }
-    return `${base.replace(/\/+$/, '/')}weights/pesos.csv`;
+    return `${base.replace(/\/+$/, '/')}weights/${fileName}`;
 }
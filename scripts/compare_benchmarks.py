@@ -0,0 +1,46 @@
+"""
+Compara dois ficheiros de resultados JSON do JMH (benchmarks/target/benchmarks.jar).
+
+Uso:
+    python scripts/compare_benchmarks.py antes.json depois.json
+"""
+
+import json
+import sys
+
+
+def load(path):
+    with open(path, encoding="utf-8") as f:
+        results = {}
+        for entry in json.load(f):
+            params = ",".join(f"{k}={v}" for k, v in sorted(entry.get("params", {}).items()))
+            name = entry["benchmark"].split(".", 1)[1]
+            metric = entry["primaryMetric"]
+            results[(name, params)] = (metric["score"], metric["scoreError"], metric["scoreUnit"])
+        return results
+
+
+def main():
+    if len(sys.argv) != 3:
+        print(__doc__.strip())
+        sys.exit(1)
+
+    before = load(sys.argv[1])
+    after = load(sys.argv[2])
+
+    print(f"{'Benchmark':<60} {'antes':>12} {'depois':>12} {'unid.':>8} {'ganho':>8}")
+    for key in sorted(before.keys() | after.keys()):
+        name, params = key
+        label = f"{name} [{params}]" if params else name
+        old = before.get(key)
+        new = after.get(key)
+        old_score = f"{old[0]:.3f}" if old else "-"
+        new_score = f"{new[0]:.3f}" if new else "-"
+        unit = (new or old)[2]
+        # Todos os benchmarks medem tempo por operação: menor é melhor.
+        speedup = f"{old[0] / new[0]:.2f}x" if old and new and new[0] > 0 else ""
+        print(f"{label:<60} {old_score:>12} {new_score:>12} {unit:>8} {speedup:>8}")
+
+
+if __name__ == "__main__":
+    main()
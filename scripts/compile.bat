@@ -12,8 +12,13 @@ if %errorlevel% == 0 (
     echo.
     echo Compilacao concluida com sucesso!
     echo.
+    REM Kernels SIMD opcionais ^(Vector API^); sem eles a rede usa os kernels escalares
+    javac --add-modules jdk.incubator.vector -cp src\java -d src\java src\java-vector\*.java
+    echo.
     echo Para executar o treino:
     echo   java -cp src\java Main
+    echo Com kernels SIMD:
+    echo   java --add-modules jdk.incubator.vector -cp src\java Main
     echo.
 ) else (
     echo.
@@ -22,4 +27,4 @@ if %errorlevel% == 0 (
 )
 
 pause
-
+
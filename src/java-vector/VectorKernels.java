@@ -0,0 +1,269 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Implementação SIMD de {@link Kernels} sobre a Vector API do JDK
+ * ({@code jdk.incubator.vector}), com a largura de vetor preferida do
+ * processador. Compilada à parte e carregada por reflexão em
+ * {@link KernelBackends}: sem {@code --add-modules jdk.incubator.vector}
+ * a classe não carrega e a rede usa {@link ScalarKernels}.
+ *
+ * <p>Os produtos internos somam por lanes, pelo que os resultados podem
+ * diferir da versão escalar nos últimos bits.
+ */
+public final class VectorKernels implements Kernels {
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    // Cada bloco de bytes é alargado em BYTE_PARTS registos completos de int32.
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES = byteSpecies(INTS.length());
+    private static final int BYTE_PARTS = BYTES.length() / INTS.length();
+
+    // Abaixo de dois registos (por exemplo as 10 classes da saída) a
+    // versão escalar do softmax é mais rápida.
+    private static final Kernels SHORT = new ScalarKernels();
+
+    /**
+     * Bytes para {@code intLanes} lanes int32, com pelo menos 64 bits: com
+     * registos de 128 bits seriam 32 bits, uma forma que não existe.
+     */
+    private static VectorSpecies<Byte> byteSpecies(int intLanes) {
+        return VectorSpecies.of(byte.class, VectorShape.forBitSize(Math.max(64, intLanes * Byte.SIZE)));
+    }
+
+    @Override
+    public String name() {
+        return "vector (" + DOUBLES.length() + " doubles / " + FLOATS.length() + " floats por registo)";
+    }
+
+    @Override
+    public double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        DoubleVector acc = DoubleVector.zero(DOUBLES);
+        int upper = DOUBLES.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += DOUBLES.length()) {
+            DoubleVector va = DoubleVector.fromArray(DOUBLES, a, aOffset + i);
+            DoubleVector vb = DoubleVector.fromArray(DOUBLES, b, bOffset + i);
+            acc = va.fma(vb, acc);
+        }
+        double sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector acc = FloatVector.zero(FLOATS);
+        int upper = FLOATS.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += FLOATS.length()) {
+            FloatVector va = FloatVector.fromArray(FLOATS, a, aOffset + i);
+            FloatVector vb = FloatVector.fromArray(FLOATS, b, bOffset + i);
+            acc = va.fma(vb, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        IntVector acc = IntVector.zero(INTS);
+        int upper = BYTES.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += BYTES.length()) {
+            ByteVector va = ByteVector.fromArray(BYTES, a, aOffset + i);
+            ByteVector vb = ByteVector.fromArray(BYTES, b, bOffset + i);
+            for (int part = 0; part < BYTE_PARTS; part++) {
+                IntVector wa = (IntVector) va.convertShape(VectorOperators.B2I, INTS, part);
+                IntVector wb = (IntVector) vb.convertShape(VectorOperators.B2I, INTS, part);
+                acc = wa.mul(wb).add(acc);
+            }
+        }
+        int sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        DoubleVector scale = DoubleVector.broadcast(DOUBLES, alpha);
+        int upper = DOUBLES.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += DOUBLES.length()) {
+            DoubleVector vx = DoubleVector.fromArray(DOUBLES, x, xOffset + i);
+            DoubleVector vy = DoubleVector.fromArray(DOUBLES, y, yOffset + i);
+            vx.fma(scale, vy).intoArray(y, yOffset + i);
+        }
+        for (; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    @Override
+    public void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length) {
+        FloatVector scale = FloatVector.broadcast(FLOATS, alpha);
+        int upper = FLOATS.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += FLOATS.length()) {
+            FloatVector vx = FloatVector.fromArray(FLOATS, x, xOffset + i);
+            FloatVector vy = FloatVector.fromArray(FLOATS, y, yOffset + i);
+            vx.fma(scale, vy).intoArray(y, yOffset + i);
+        }
+        for (; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    @Override
+    public void relu(double[] values, int offset, int length) {
+        int upper = DOUBLES.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, values, offset + i).max(0.0).intoArray(values, offset + i);
+        }
+        for (; i < length; i++) {
+            if (values[offset + i] < 0.0) {
+                values[offset + i] = 0.0;
+            }
+        }
+    }
+
+    @Override
+    public void relu(float[] values, int offset, int length) {
+        int upper = FLOATS.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += FLOATS.length()) {
+            FloatVector.fromArray(FLOATS, values, offset + i).max(0f).intoArray(values, offset + i);
+        }
+        for (; i < length; i++) {
+            if (values[offset + i] < 0f) {
+                values[offset + i] = 0f;
+            }
+        }
+    }
+
+    @Override
+    public void reluMask(double[] outputs, double[] deltas, int offset, int length) {
+        DoubleVector zero = DoubleVector.zero(DOUBLES);
+        int upper = DOUBLES.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += DOUBLES.length()) {
+            VectorMask<Double> inactive = DoubleVector.fromArray(DOUBLES, outputs, offset + i)
+                    .compare(VectorOperators.LE, 0.0);
+            DoubleVector.fromArray(DOUBLES, deltas, offset + i).blend(zero, inactive).intoArray(deltas, offset + i);
+        }
+        for (; i < length; i++) {
+            if (outputs[offset + i] <= 0.0) {
+                deltas[offset + i] = 0.0;
+            }
+        }
+    }
+
+    @Override
+    public void reluMask(float[] outputs, float[] deltas, int offset, int length) {
+        FloatVector zero = FloatVector.zero(FLOATS);
+        int upper = FLOATS.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += FLOATS.length()) {
+            VectorMask<Float> inactive = FloatVector.fromArray(FLOATS, outputs, offset + i)
+                    .compare(VectorOperators.LE, 0f);
+            FloatVector.fromArray(FLOATS, deltas, offset + i).blend(zero, inactive).intoArray(deltas, offset + i);
+        }
+        for (; i < length; i++) {
+            if (outputs[offset + i] <= 0f) {
+                deltas[offset + i] = 0f;
+            }
+        }
+    }
+
+    @Override
+    public void softmax(double[] values, int offset, int length) {
+        if (length < 2 * DOUBLES.length()) {
+            SHORT.softmax(values, offset, length);
+            return;
+        }
+        int upper = DOUBLES.loopBound(length);
+        DoubleVector maxLanes = DoubleVector.broadcast(DOUBLES, Double.NEGATIVE_INFINITY);
+        int i = 0;
+        for (; i < upper; i += DOUBLES.length()) {
+            maxLanes = maxLanes.max(DoubleVector.fromArray(DOUBLES, values, offset + i));
+        }
+        double max = maxLanes.reduceLanes(VectorOperators.MAX);
+        for (; i < length; i++) {
+            max = Math.max(max, values[offset + i]);
+        }
+
+        DoubleVector sumLanes = DoubleVector.zero(DOUBLES);
+        for (i = 0; i < upper; i += DOUBLES.length()) {
+            DoubleVector exp = DoubleVector.fromArray(DOUBLES, values, offset + i).sub(max)
+                    .lanewise(VectorOperators.EXP);
+            exp.intoArray(values, offset + i);
+            sumLanes = sumLanes.add(exp);
+        }
+        double sum = sumLanes.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            values[offset + i] = Math.exp(values[offset + i] - max);
+            sum += values[offset + i];
+        }
+
+        double inverse = 1.0 / sum;
+        for (i = 0; i < upper; i += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, values, offset + i).mul(inverse).intoArray(values, offset + i);
+        }
+        for (; i < length; i++) {
+            values[offset + i] *= inverse;
+        }
+    }
+
+    @Override
+    public void softmax(float[] values, int offset, int length) {
+        if (length < 2 * FLOATS.length()) {
+            SHORT.softmax(values, offset, length);
+            return;
+        }
+        int upper = FLOATS.loopBound(length);
+        FloatVector maxLanes = FloatVector.broadcast(FLOATS, Float.NEGATIVE_INFINITY);
+        int i = 0;
+        for (; i < upper; i += FLOATS.length()) {
+            maxLanes = maxLanes.max(FloatVector.fromArray(FLOATS, values, offset + i));
+        }
+        float max = maxLanes.reduceLanes(VectorOperators.MAX);
+        for (; i < length; i++) {
+            max = Math.max(max, values[offset + i]);
+        }
+
+        FloatVector sumLanes = FloatVector.zero(FLOATS);
+        for (i = 0; i < upper; i += FLOATS.length()) {
+            FloatVector exp = FloatVector.fromArray(FLOATS, values, offset + i).sub(max)
+                    .lanewise(VectorOperators.EXP);
+            exp.intoArray(values, offset + i);
+            sumLanes = sumLanes.add(exp);
+        }
+        float sum = sumLanes.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            values[offset + i] = (float) Math.exp(values[offset + i] - max);
+            sum += values[offset + i];
+        }
+
+        float inverse = 1f / sum;
+        for (i = 0; i < upper; i += FLOATS.length()) {
+            FloatVector.fromArray(FLOATS, values, offset + i).mul(inverse).intoArray(values, offset + i);
+        }
+        for (; i < length; i++) {
+            values[offset + i] *= inverse;
+        }
+    }
+}
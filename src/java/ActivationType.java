@@ -1,5 +1,17 @@
 public enum ActivationType {
     RELU,
     SIGMOID,
-    LINEAR
+    LINEAR;
+
+    public double apply(double z) {
+        switch (this) {
+            case RELU:
+                return Math.max(0, z);
+            case SIGMOID:
+                return 1.0 / (1.0 + Math.exp(-z));
+            case LINEAR:
+            default:
+                return z;
+        }
+    }
 }
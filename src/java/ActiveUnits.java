@@ -0,0 +1,90 @@
+/**
+ * Unidades ativas (saída {@code > 0}) de um bloco de ativações ReLU
+ * {@code [rows x units]}, em duas listas de índices: por linha, para
+ * propagar os deltas só a partir das unidades ativas de cada amostra, e
+ * por unidade, para somar os gradientes só das amostras em que a unidade
+ * esteve ativa. As unidades inativas têm delta nulo, pelo que saltá-las
+ * não altera o resultado. Pertence a um {@link BatchWorkspace}.
+ */
+final class ActiveUnits {
+    private final int units;
+    private final int[] rowStarts;
+    private final int[] rowUnits;
+    private final int[] unitStarts;
+    private final int[] unitRows;
+    private int rows;
+
+    ActiveUnits(int capacity, int units) {
+        this.units = units;
+        this.rowStarts = new int[capacity + 1];
+        this.rowUnits = new int[capacity * units];
+        this.unitStarts = new int[units + 1];
+        this.unitRows = new int[capacity * units];
+    }
+
+    /** Recolhe as unidades ativas das {@code rows} primeiras linhas de {@code outputs}. */
+    void build(double[] outputs, int rows) {
+        this.rows = rows;
+        int[] counts = unitStarts;
+        for (int u = 0; u <= units; u++) {
+            counts[u] = 0;
+        }
+        int count = 0;
+        for (int r = 0; r < rows; r++) {
+            rowStarts[r] = count;
+            int row = r * units;
+            for (int u = 0; u < units; u++) {
+                if (outputs[row + u] > 0.0) {
+                    rowUnits[count++] = u;
+                    counts[u + 1]++;
+                }
+            }
+        }
+        rowStarts[rows] = count;
+
+        // Prefixos das contagens por unidade; depois distribui as linhas por ordem crescente.
+        for (int u = 0; u < units; u++) {
+            counts[u + 1] += counts[u];
+        }
+        for (int r = 0; r < rows; r++) {
+            for (int k = rowStarts[r]; k < rowStarts[r + 1]; k++) {
+                unitRows[unitStarts[rowUnits[k]]++] = r;
+            }
+        }
+        for (int u = units; u > 0; u--) {
+            unitStarts[u] = unitStarts[u - 1];
+        }
+        unitStarts[0] = 0;
+    }
+
+    /** Número de pares (amostra, unidade) ativos no último {@link #build}. */
+    int count() {
+        return rowStarts[rows];
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    int units() {
+        return units;
+    }
+
+    /** Início das unidades ativas de cada linha em {@link #rowUnits()}; {@code rows + 1} entradas. */
+    int[] rowStarts() {
+        return rowStarts;
+    }
+
+    int[] rowUnits() {
+        return rowUnits;
+    }
+
+    /** Início das linhas de cada unidade em {@link #unitRows()}; {@code units + 1} entradas. */
+    int[] unitStarts() {
+        return unitStarts;
+    }
+
+    int[] unitRows() {
+        return unitRows;
+    }
+}
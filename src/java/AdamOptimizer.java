@@ -0,0 +1,64 @@
+/**
+ * Adam (Kingma &amp; Ba): médias móveis do gradiente ({@code m}) e do seu
+ * quadrado ({@code v}). A correção de viés é aplicada à learning rate uma
+ * vez por chamada, em vez de a cada parâmetro.
+ */
+public final class AdamOptimizer implements Optimizer {
+    public static final double DEFAULT_BETA1 = 0.9;
+    public static final double DEFAULT_BETA2 = 0.999;
+    public static final double DEFAULT_EPSILON = 1e-8;
+
+    private final double beta1;
+    private final double beta2;
+    private final double epsilon;
+
+    public AdamOptimizer() {
+        this(DEFAULT_BETA1, DEFAULT_BETA2, DEFAULT_EPSILON);
+    }
+
+    public AdamOptimizer(double beta1, double beta2, double epsilon) {
+        if (!(beta1 >= 0.0 && beta1 < 1.0) || !(beta2 >= 0.0 && beta2 < 1.0) || !(epsilon > 0.0)) {
+            throw new IllegalArgumentException("Parâmetros do Adam inválidos: beta1=" + beta1 + ", beta2=" + beta2
+                    + ", epsilon=" + epsilon);
+        }
+        this.beta1 = beta1;
+        this.beta2 = beta2;
+        this.epsilon = epsilon;
+    }
+
+    @Override
+    public int stateArrays() {
+        return 2;
+    }
+
+    @Override
+    public void update(double[] params, double[] gradients, double[][] state, double learningRate, int batchSize,
+                       long step) {
+        double[] m = state[0];
+        double[] v = state[1];
+        double b1 = beta1;
+        double b2 = beta2;
+        double inverseBatch = 1.0 / batchSize;
+        double rate = learningRate * Math.sqrt(1.0 - Math.pow(b2, step)) / (1.0 - Math.pow(b1, step));
+        // Epsilon escalado para a forma corrigida: equivale a somá-lo a sqrt(v̂).
+        double eps = epsilon * Math.sqrt(1.0 - Math.pow(b2, step));
+        for (int i = 0; i < params.length; i++) {
+            double g = gradients[i] * inverseBatch;
+            double mi = b1 * m[i] + (1.0 - b1) * g;
+            double vi = b2 * v[i] + (1.0 - b2) * g * g;
+            m[i] = mi;
+            v[i] = vi;
+            params[i] -= rate * mi / (Math.sqrt(vi) + eps);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "adam";
+    }
+
+    @Override
+    public double defaultLearningRate() {
+        return 0.001;
+    }
+}
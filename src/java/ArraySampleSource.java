@@ -0,0 +1,77 @@
+/**
+ * {@link SampleSource} sobre entradas já expandidas em {@code double[][]},
+ * como as devolvidas por {@link MnistLoader#loadImages}.
+ */
+public class ArraySampleSource implements SampleSource {
+    private final double[][] inputs;
+    private final int[] labels;
+
+    public ArraySampleSource(double[][] inputs, int[] labels) {
+        if (inputs.length != labels.length) {
+            throw new IllegalArgumentException("Inputs e labels têm comprimentos diferentes.");
+        }
+        this.inputs = inputs;
+        this.labels = labels;
+    }
+
+    /**
+     * Aceita targets one-hot com {@code classes} posições: o label de cada
+     * amostra é a posição do seu 1. Targets suaves, vazios ou de outro
+     * tamanho são rejeitados, porque o treino só usa o label.
+     */
+    public ArraySampleSource(double[][] inputs, double[][] targets, int classes) {
+        this(inputs, labelsOf(targets, classes));
+    }
+
+    private static int[] labelsOf(double[][] targets, int classes) {
+        int[] labels = new int[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            double[] target = targets[i];
+            if (target.length != classes) {
+                throw new IllegalArgumentException("Target " + i + " tem " + target.length + " valores, esperados " + classes);
+            }
+            int label = -1;
+            for (int k = 0; k < classes; k++) {
+                if (target[k] == 1.0 && label < 0) {
+                    label = k;
+                } else if (target[k] != 0.0) {
+                    label = -2;
+                    break;
+                }
+            }
+            if (label < 0) {
+                throw new IllegalArgumentException("Target " + i + " não é one-hot (um 1 e o resto 0)");
+            }
+            labels[i] = label;
+        }
+        return labels;
+    }
+
+    @Override
+    public int size() {
+        return inputs.length;
+    }
+
+    @Override
+    public int inputSize() {
+        return inputs.length == 0 ? 0 : inputs[0].length;
+    }
+
+    @Override
+    public void copyInput(int index, double[] destination, int offset) {
+        System.arraycopy(inputs[index], 0, destination, offset, inputs[index].length);
+    }
+
+    @Override
+    public void copyInput(int index, float[] destination, int offset) {
+        double[] input = inputs[index];
+        for (int j = 0; j < input.length; j++) {
+            destination[offset + j] = (float) input[j];
+        }
+    }
+
+    @Override
+    public int label(int index) {
+        return labels[index];
+    }
+}
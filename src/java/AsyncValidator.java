@@ -0,0 +1,247 @@
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validação em paralelo com o treino. No fim de cada época a thread de
+ * treino só copia os pesos para um de dois snapshots pré-alocados (double
+ * buffering, como no {@link Checkpointer}); uma thread de fundo publica um
+ * {@link Model} com uma cópia do snapshot, avalia-o no conjunto de
+ * validação com o seu próprio {@link Evaluator}, regista o resultado nas
+ * métricas e guarda uma cópia dos pesos da melhor época. Com paciência, pede ao treino que pare quando a validação não
+ * melhora há {@code patience} épocas; o treino vê o pedido no fim de uma
+ * época seguinte, sem nunca esperar pela validação. Se os dois snapshots
+ * ainda estiverem ocupados, a validação dessa época é saltada.
+ */
+public class AsyncValidator implements AutoCloseable {
+
+    private final List<Layer> layers;
+    private final SampleSource validation;
+    private final TrainingMetrics metrics;
+    private final int patience;
+    private final Snapshot[] buffers = new Snapshot[2];
+    private final Future<?>[] pending = new Future<?>[2];
+    private final ExecutorService worker;
+    private final Evaluator evaluator;
+    private final double[][] bestWeights;
+    private final double[][] bestBiases;
+    private int nextBuffer;
+    private int bestEpoch = -1;
+    private double bestAccuracy = Double.NEGATIVE_INFINITY;
+    private double bestLoss = Double.POSITIVE_INFINITY;
+    private volatile boolean stopRequested;
+    private boolean finished;
+
+    /**
+     * Valida {@code layers} sobre {@code validation} com {@code threads}
+     * threads de avaliação. {@code patience} 0 desativa a paragem
+     * antecipada; a melhor época é sempre guardada.
+     */
+    public AsyncValidator(List<Layer> layers, boolean softmaxOutput, Precision precision, SampleSource validation,
+                          TrainingMetrics metrics, int patience, int threads) {
+        if (patience < 0) {
+            throw new IllegalArgumentException("Paciência inválida: " + patience);
+        }
+        this.layers = layers;
+        this.validation = validation;
+        this.metrics = metrics;
+        this.patience = patience;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new Snapshot(layers, softmaxOutput, precision);
+        }
+        this.bestWeights = new double[layers.size()][];
+        this.bestBiases = new double[layers.size()][];
+        for (int i = 0; i < layers.size(); i++) {
+            bestWeights[i] = new double[layers.get(i).getWeights().length];
+            bestBiases[i] = new double[layers.get(i).getBiases().length];
+        }
+        this.evaluator = new Evaluator(threads);
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "async-validator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Chamado pela thread de treino depois de {@code epoch} épocas
+     * concluídas. Devolve {@code true} se a validação foi agendada.
+     */
+    public boolean onEpochEnd(int epoch) {
+        int index = nextBuffer;
+        if (pending[index] != null && !pending[index].isDone()) {
+            System.out.println("   -> Validação da época " + epoch + " saltada: as anteriores ainda estão a correr");
+            return false;
+        }
+        Snapshot snapshot = buffers[index];
+        snapshot.capture(layers);
+        pending[index] = worker.submit(() -> validate(snapshot, epoch));
+        nextBuffer = 1 - index;
+        return true;
+    }
+
+    /** Corre na thread de validação, pela ordem das épocas. */
+    private void validate(Snapshot snapshot, int epoch) {
+        long start = System.nanoTime();
+        EvaluationResult result;
+        try {
+            result = evaluator.evaluate(snapshot.model(), validation);
+        } catch (RuntimeException e) {
+            System.err.println("Erro na validação da época " + epoch + ": " + e.getMessage());
+            return;
+        }
+        metrics.recordValidation(epoch, result, System.nanoTime() - start);
+
+        double accuracy = result.getAccuracy();
+        double loss = result.getAverageLoss();
+        boolean improved = accuracy > bestAccuracy || (accuracy == bestAccuracy && loss < bestLoss);
+        if (improved) {
+            bestEpoch = epoch;
+            bestAccuracy = accuracy;
+            bestLoss = loss;
+            snapshot.copyTo(bestWeights, bestBiases);
+        }
+        System.out.println(String.format("   Validação (época %d): accuracy %.2f%% | loss %.6f%s",
+                epoch, accuracy, loss, improved ? " (melhor)" : ""));
+        if (patience > 0 && !stopRequested && epoch - bestEpoch >= patience) {
+            stopRequested = true;
+            System.out.println(String.format("   -> Sem melhoria na validação há %d épocas (melhor: época %d, %.2f%%)",
+                    epoch - bestEpoch, bestEpoch, bestAccuracy));
+        }
+    }
+
+    /** {@code true} quando a validação pediu a paragem antecipada; não bloqueia. */
+    public boolean shouldStop() {
+        return stopRequested;
+    }
+
+    /** Espera que as validações agendadas terminem; depois disso a melhor época já não muda. */
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        worker.shutdown();
+        try {
+            if (!worker.awaitTermination(10, TimeUnit.MINUTES)) {
+                System.err.println("Timeout à espera da validação.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        evaluator.close();
+    }
+
+    /**
+     * Copia os pesos da melhor época validada para {@code layers}, depois
+     * de {@link #finish}. Devolve {@code false} se nenhuma época foi validada.
+     */
+    public boolean restoreBest(List<Layer> layers) {
+        finish();
+        if (bestEpoch < 0) {
+            return false;
+        }
+        for (int i = 0; i < layers.size(); i++) {
+            System.arraycopy(bestWeights[i], 0, layers.get(i).getWeights(), 0, bestWeights[i].length);
+            System.arraycopy(bestBiases[i], 0, layers.get(i).getBiases(), 0, bestBiases[i].length);
+        }
+        return true;
+    }
+
+    /** Melhor época validada (a partir de 1), ou -1; só é estável depois de {@link #finish}. */
+    public int getBestEpoch() {
+        return bestEpoch;
+    }
+
+    public double getBestAccuracy() {
+        return bestAccuracy;
+    }
+
+    @Override
+    public void close() {
+        finish();
+    }
+
+    /**
+     * Pesos copiados das camadas, reescritos pela thread de treino a cada
+     * época que lhe calha. Não é um {@link Model}: o modelo avaliado é
+     * publicado a partir de uma cópia destes arrays, para que o contrato de
+     * imutabilidade do {@link Model} se mantenha mesmo que o snapshot volte
+     * a ser escrito; o snapshot só volta a ser escrito depois de a sua
+     * avaliação terminar.
+     */
+    private static final class Snapshot {
+        private final ActivationType[] activations;
+        private final int[] inputSizes;
+        private final int[] outputSizes;
+        private final double[][] weights;
+        private final double[][] biases;
+        private final boolean softmaxOutput;
+        private final Precision precision;
+
+        Snapshot(List<Layer> layers, boolean softmaxOutput, Precision precision) {
+            int count = layers.size();
+            activations = new ActivationType[count];
+            inputSizes = new int[count];
+            outputSizes = new int[count];
+            weights = new double[count][];
+            biases = new double[count][];
+            for (int i = 0; i < count; i++) {
+                Layer layer = layers.get(i);
+                activations[i] = layer.getActivationType();
+                inputSizes[i] = layer.getInputSize();
+                outputSizes[i] = layer.getOutputSize();
+                weights[i] = new double[layer.getWeights().length];
+                biases[i] = new double[layer.getBiases().length];
+            }
+            this.softmaxOutput = softmaxOutput;
+            this.precision = precision;
+        }
+
+        /** Na thread de treino: só cópias de arrays. */
+        void capture(List<Layer> layers) {
+            for (int i = 0; i < layers.size(); i++) {
+                double[] layerWeights = layers.get(i).getWeights();
+                double[] layerBiases = layers.get(i).getBiases();
+                System.arraycopy(layerWeights, 0, weights[i], 0, layerWeights.length);
+                System.arraycopy(layerBiases, 0, biases[i], 0, layerBiases.length);
+            }
+        }
+
+        /**
+         * Na thread de validação: um {@link Model} novo com uma cópia dos
+         * pesos capturados (em float, se for o caso), que a próxima
+         * {@link #capture} já não altera.
+         */
+        Model model() {
+            int count = weights.length;
+            if (precision == Precision.FLOAT32) {
+                float[][] floatWeights = new float[count][];
+                float[][] floatBiases = new float[count][];
+                for (int i = 0; i < count; i++) {
+                    floatWeights[i] = Float32Trainer.toFloat(weights[i]);
+                    floatBiases[i] = Float32Trainer.toFloat(biases[i]);
+                }
+                return new Model(activations, inputSizes, outputSizes,
+                        floatWeights, floatBiases, softmaxOutput);
+            }
+            double[][] modelWeights = new double[count][];
+            double[][] modelBiases = new double[count][];
+            for (int i = 0; i < count; i++) {
+                modelWeights[i] = weights[i].clone();
+                modelBiases[i] = biases[i].clone();
+            }
+            return new Model(activations, inputSizes, outputSizes,
+                    modelWeights, modelBiases, softmaxOutput);
+        }
+
+        void copyTo(double[][] targetWeights, double[][] targetBiases) {
+            for (int i = 0; i < weights.length; i++) {
+                System.arraycopy(weights[i], 0, targetWeights[i], 0, weights[i].length);
+                System.arraycopy(biases[i], 0, targetBiases[i], 0, biases[i].length);
+            }
+        }
+    }
+}
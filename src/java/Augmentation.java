@@ -0,0 +1,108 @@
+import java.util.Locale;
+
+/**
+ * Parâmetros do aumento de dados feito pelo {@link AugmentingBatchLoader}:
+ * para cada imagem são sorteados, de forma uniforme, uma translação, uma
+ * rotação, uma escala e uma distorção elástica suave. Cada valor é o
+ * limite do sorteio; 0 desliga a transformação.
+ *
+ * <pre>
+ * shift:P      translação até ±P píxeis em cada eixo
+ * rotate:G     rotação até ±G graus
+ * scale:F      escala entre 1 - F e 1 + F
+ * elastic:P    deslocamento elástico até ±P píxeis
+ * default      shift:2,rotate:10,scale:0.1,elastic:1.5
+ * </pre>
+ */
+public final class Augmentation {
+
+    private final double maxShift;
+    private final double maxRotationDegrees;
+    private final double maxScale;
+    private final double elastic;
+
+    public Augmentation(double maxShift, double maxRotationDegrees, double maxScale, double elastic) {
+        if (!(maxShift >= 0.0) || !(maxRotationDegrees >= 0.0 && maxRotationDegrees <= 180.0)
+                || !(maxScale >= 0.0 && maxScale < 1.0) || !(elastic >= 0.0)) {
+            throw new IllegalArgumentException("Aumento inválido: shift " + maxShift + ", rotate " + maxRotationDegrees
+                    + ", scale " + maxScale + ", elastic " + elastic);
+        }
+        this.maxShift = maxShift;
+        this.maxRotationDegrees = maxRotationDegrees;
+        this.maxScale = maxScale;
+        this.elastic = elastic;
+    }
+
+    public static Augmentation defaults() {
+        return new Augmentation(2.0, 10.0, 0.1, 1.5);
+    }
+
+    /** Lê {@code default} ou uma lista {@code chave:valor} separada por vírgulas; as chaves omitidas ficam a 0. */
+    public static Augmentation parse(String value) {
+        if ("default".equalsIgnoreCase(value)) {
+            return defaults();
+        }
+        double shift = 0.0;
+        double rotate = 0.0;
+        double scale = 0.0;
+        double elastic = 0.0;
+        try {
+            for (String part : value.toLowerCase().split(",")) {
+                String[] pair = part.trim().split(":");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException(unknown(value));
+                }
+                double amount = Double.parseDouble(pair[1]);
+                switch (pair[0]) {
+                    case "shift":
+                        shift = amount;
+                        break;
+                    case "rotate":
+                        rotate = amount;
+                        break;
+                    case "scale":
+                        scale = amount;
+                        break;
+                    case "elastic":
+                        elastic = amount;
+                        break;
+                    default:
+                        throw new IllegalArgumentException(unknown(value));
+                }
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(unknown(value), e);
+        }
+        return new Augmentation(shift, rotate, scale, elastic);
+    }
+
+    private static String unknown(String value) {
+        return "Aumento desconhecido: " + value + " (use default ou shift:P,rotate:G,scale:F,elastic:P)";
+    }
+
+    public double getMaxShift() {
+        return maxShift;
+    }
+
+    public double getMaxRotationDegrees() {
+        return maxRotationDegrees;
+    }
+
+    public double getMaxScale() {
+        return maxScale;
+    }
+
+    public double getElastic() {
+        return elastic;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "shift:%s,rotate:%s,scale:%s,elastic:%s",
+                format(maxShift), format(maxRotationDegrees), format(maxScale), format(elastic));
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+}
@@ -0,0 +1,144 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Gera imagens aumentadas a partir dos píxeis uint8 de um {@link MnistStore}.
+ * A translação, a rotação, a escala e a distorção elástica são compostas
+ * num só mapa inverso: para cada píxel de saída calcula-se o ponto de
+ * origem e interpola-se bilinearmente a imagem original já normalizada,
+ * guardada com uma moldura de fundo de um píxel para que a interpolação
+ * não precise de testar os limites. A distorção elástica é uma grelha
+ * grossa de {@link #GRID}x{@link #GRID} deslocamentos aleatórios
+ * interpolada para cada píxel, o que a torna suave sem a convolução
+ * gaussiana por imagem. Os buffers são reutilizados; cada thread produtora
+ * tem o seu.
+ */
+final class Augmenter {
+    static final int GRID = 4;
+
+    private final double maxShift;
+    private final double maxRotation;
+    private final double maxScale;
+    private final double elastic;
+    private final int rows;
+    private final int cols;
+    private final byte[] raw;
+    private final int stride;
+    private final double background;
+    private final double[] padded;
+    private final double[] gridX = new double[GRID * GRID];
+    private final double[] gridY = new double[GRID * GRID];
+    // Célula da grelha e peso do lado direito/de baixo, por coluna e por linha da imagem.
+    private final int[] cellOfCol;
+    private final double[] weightOfCol;
+    private final int[] cellOfRow;
+    private final double[] weightOfRow;
+    private final Random random = new Random();
+
+    Augmenter(Augmentation augmentation, int rows, int cols) {
+        this.maxShift = augmentation.getMaxShift();
+        this.maxRotation = Math.toRadians(augmentation.getMaxRotationDegrees());
+        this.maxScale = augmentation.getMaxScale();
+        this.elastic = augmentation.getElastic();
+        this.rows = rows;
+        this.cols = cols;
+        this.raw = new byte[rows * cols];
+        this.stride = cols + 2;
+        this.background = MnistLoader.NORMALIZED_PIXELS[0];
+        this.padded = new double[(rows + 2) * stride];
+        Arrays.fill(padded, background);
+        this.cellOfCol = new int[cols];
+        this.weightOfCol = new double[cols];
+        this.cellOfRow = new int[rows];
+        this.weightOfRow = new double[rows];
+        gridCoordinates(cols, cellOfCol, weightOfCol);
+        gridCoordinates(rows, cellOfRow, weightOfRow);
+    }
+
+    private static void gridCoordinates(int size, int[] cells, double[] weights) {
+        for (int p = 0; p < size; p++) {
+            double position = size == 1 ? 0.0 : p * (GRID - 1) / (double) (size - 1);
+            int cell = Math.min(GRID - 2, (int) position);
+            cells[p] = cell;
+            weights[p] = position - cell;
+        }
+    }
+
+    /** Recomeça a sequência aleatória; a mesma seed dá as mesmas transformações. */
+    void reseed(long seed) {
+        random.setSeed(seed);
+    }
+
+    /** Escreve a imagem {@code index} aumentada e normalizada em {@code destination[offset..]}. */
+    void augment(MnistStore data, int index, double[] destination, int offset) {
+        data.copyPixels(index, raw, 0);
+        double[] table = MnistLoader.NORMALIZED_PIXELS;
+        for (int y = 0; y < rows; y++) {
+            int source = y * cols;
+            int target = (y + 1) * stride + 1;
+            for (int x = 0; x < cols; x++) {
+                padded[target + x] = table[raw[source + x] & 0xFF];
+            }
+        }
+        double angle = uniform(maxRotation);
+        double scale = 1.0 + uniform(maxScale);
+        double shiftX = uniform(maxShift);
+        double shiftY = uniform(maxShift);
+        for (int k = 0; k < gridX.length; k++) {
+            gridX[k] = uniform(elastic);
+            gridY[k] = uniform(elastic);
+        }
+
+        // Mapa inverso: desfaz a translação, a rotação e a escala à volta do centro.
+        double cos = Math.cos(angle) / scale;
+        double sin = Math.sin(angle) / scale;
+        double centerX = (cols - 1) / 2.0;
+        double centerY = (rows - 1) / 2.0;
+        for (int y = 0; y < rows; y++) {
+            double v = y - centerY - shiftY;
+            int cellY = cellOfRow[y];
+            double wy = weightOfRow[y];
+            int row = offset + y * cols;
+            for (int x = 0; x < cols; x++) {
+                double u = x - centerX - shiftX;
+                double sourceX = cos * u + sin * v + centerX;
+                double sourceY = -sin * u + cos * v + centerY;
+                if (elastic > 0.0) {
+                    int cell = cellY * GRID + cellOfCol[x];
+                    double wx = weightOfCol[x];
+                    sourceX += interpolate(gridX, cell, wx, wy);
+                    sourceY += interpolate(gridY, cell, wx, wy);
+                }
+                destination[row + x] = sample(sourceX, sourceY);
+            }
+        }
+    }
+
+    private double uniform(double limit) {
+        return limit == 0.0 ? 0.0 : (2.0 * random.nextDouble() - 1.0) * limit;
+    }
+
+    private static double interpolate(double[] grid, int cell, double wx, double wy) {
+        double top = grid[cell] + wx * (grid[cell + 1] - grid[cell]);
+        double bottom = grid[cell + GRID] + wx * (grid[cell + GRID + 1] - grid[cell + GRID]);
+        return top + wy * (bottom - top);
+    }
+
+    /** Valor normalizado interpolado em {@code (x, y)}; fora da imagem é o fundo. */
+    private double sample(double x, double y) {
+        if (!(x >= -1.0 && y >= -1.0 && x < cols && y < rows)) {
+            return background;
+        }
+        // Coordenadas na imagem com moldura, já não negativas: o cast arredonda para baixo.
+        double px = x + 1.0;
+        double py = y + 1.0;
+        int x0 = (int) px;
+        int y0 = (int) py;
+        double fx = px - x0;
+        double fy = py - y0;
+        int i = y0 * stride + x0;
+        double top = padded[i] + fx * (padded[i + 1] - padded[i]);
+        double bottom = padded[i + stride] + fx * (padded[i + stride + 1] - padded[i + stride]);
+        return top + fy * (bottom - top);
+    }
+}
@@ -0,0 +1,190 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Aumento de dados em paralelo com o treino. Em cada época as imagens
+ * {@code [from, to)} de um {@link MnistStore} são baralhadas e cada batch
+ * é gerado de novo a partir dos píxeis uint8 por uma de várias threads
+ * produtoras ({@link Augmenter}), pelo que as imagens transformadas nunca
+ * são guardadas. A thread {@code t} de {@code P} produz os batches
+ * {@code t, t + P, ...} da época na sua própria fila limitada, com os seus
+ * batches reutilizados, e {@link #next} lê as filas à vez: a ordem de
+ * entrega é sempre a mesma e as transformações de cada batch dependem só
+ * da seed, da época e da posição do batch, pelo que com seed o treino é
+ * reprodutível com qualquer número de threads. As threads continuam para
+ * a época seguinte enquanto tiverem batches livres.
+ */
+public class AugmentingBatchLoader implements BatchLoader, AutoCloseable {
+
+    public static final int DEFAULT_PREFETCH_BATCHES = 4;
+
+    private static final SampleBatch FAILED = new SampleBatch(0, 0);
+
+    private final MnistStore data;
+    private final Augmentation augmentation;
+    private final int from;
+    private final int count;
+    private final int batchSize;
+    private final int batchesPerEpoch;
+    private final long seed;
+    private final int firstEpoch;
+
+    private final List<BlockingQueue<SampleBatch>> ready;
+    private final List<BlockingQueue<SampleBatch>> free;
+    private final SampleBatch[][] owned;
+    private final Thread[] producers;
+    private int delivered;
+    private volatile Throwable failure;
+    private volatile boolean closed;
+
+    public AugmentingBatchLoader(MnistStore data, Augmentation augmentation, int batchSize, int threads, Long seed) {
+        this(data, 0, data.size(), augmentation, batchSize, threads, DEFAULT_PREFETCH_BATCHES, seed, 0);
+    }
+
+    /**
+     * Usa as imagens {@code [from, to)}, com {@code threads} produtoras de
+     * {@code prefetchBatches} batches cada, a começar na época
+     * {@code firstEpoch} (para retomar um treino). Sem seed é sorteada uma.
+     */
+    public AugmentingBatchLoader(MnistStore data, int from, int to, Augmentation augmentation, int batchSize,
+                                 int threads, int prefetchBatches, Long seed, int firstEpoch) {
+        if (from < 0 || to > data.size() || from >= to) {
+            throw new IllegalArgumentException("Intervalo inválido [" + from + ", " + to + ") para "
+                    + data.size() + " amostras.");
+        }
+        if (batchSize <= 0 || threads <= 0 || prefetchBatches <= 0) {
+            throw new IllegalArgumentException("Batch size, threads e prefetch têm de ser positivos.");
+        }
+        this.data = data;
+        this.augmentation = augmentation;
+        this.from = from;
+        this.count = to - from;
+        this.batchSize = batchSize;
+        this.batchesPerEpoch = (count + batchSize - 1) / batchSize;
+        this.seed = seed != null ? seed : new Random().nextLong();
+        this.firstEpoch = firstEpoch;
+
+        this.ready = new ArrayList<>(threads);
+        this.free = new ArrayList<>(threads);
+        this.owned = new SampleBatch[threads][prefetchBatches];
+        this.producers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            ready.add(new ArrayBlockingQueue<>(prefetchBatches + 1));
+            free.add(new ArrayBlockingQueue<>(prefetchBatches));
+            for (int i = 0; i < prefetchBatches; i++) {
+                owned[t][i] = new SampleBatch(batchSize, data.inputSize());
+                free.get(t).add(owned[t][i]);
+            }
+        }
+        for (int t = 0; t < threads; t++) {
+            int producer = t;
+            producers[t] = new Thread(() -> produce(producer), "augmenting-batch-loader-" + t);
+            producers[t].setDaemon(true);
+            producers[t].start();
+        }
+    }
+
+    @Override
+    public SampleBatch next() throws InterruptedException {
+        if (delivered == batchesPerEpoch) {
+            delivered = 0;
+            return null;
+        }
+        SampleBatch batch = ready.get(delivered % producers.length).take();
+        if (batch == FAILED) {
+            throw new IllegalStateException("Falha a gerar os batches aumentados: " + failure.getMessage(), failure);
+        }
+        delivered++;
+        return batch;
+    }
+
+    @Override
+    public void release(SampleBatch batch) {
+        for (int t = 0; t < owned.length; t++) {
+            for (SampleBatch candidate : owned[t]) {
+                if (candidate == batch) {
+                    free.get(t).add(batch);
+                    return;
+                }
+            }
+        }
+        throw new IllegalArgumentException("O batch não pertence a este loader.");
+    }
+
+    private void produce(int producer) {
+        Augmenter augmenter = new Augmenter(augmentation, data.getRows(), data.getCols());
+        int[] order = new int[count];
+        Random shuffle = new Random();
+        int threads = producers.length;
+
+        try {
+            for (int epoch = firstEpoch; !closed; epoch++) {
+                // Mesma permutação que NeuralNetwork usa para esta seed e época, calculada por cada thread.
+                shuffle.setSeed(seed * 31 + epoch);
+                for (int i = 0; i < count; i++) {
+                    order[i] = i;
+                }
+                for (int i = count - 1; i > 0; i--) {
+                    int j = shuffle.nextInt(i + 1);
+                    int temp = order[i];
+                    order[i] = order[j];
+                    order[j] = temp;
+                }
+
+                for (int b = producer; b < batchesPerEpoch; b += threads) {
+                    SampleBatch batch = free.get(producer).take();
+                    int start = b * batchSize;
+                    int rows = Math.min(batchSize, count - start);
+                    augmenter.reseed((seed * 31 + epoch) * 1_000_003L + b);
+                    double[] inputs = batch.getInputs();
+                    int[] labels = batch.getLabels();
+                    for (int r = 0; r < rows; r++) {
+                        int index = from + order[start + r];
+                        augmenter.augment(data, index, inputs, r * data.inputSize());
+                        labels[r] = data.label(index);
+                    }
+                    batch.setRows(rows);
+                    ready.get(producer).put(batch);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failure = e;
+            ready.get(producer).offer(FAILED);
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int inputSize() {
+        return data.inputSize();
+    }
+
+    public int getThreads() {
+        return producers.length;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread producer : producers) {
+            producer.interrupt();
+        }
+        for (Thread producer : producers) {
+            try {
+                producer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+/**
+ * Fonte de batches já normalizados, preparados por threads produtoras e
+ * entregues ao treino ({@link NeuralNetwork#train(BatchLoader, double, double, String, String)})
+ * por filas limitadas de {@link SampleBatch} reutilizados.
+ */
+public interface BatchLoader {
+
+    /**
+     * Próximo batch da época corrente, ou {@code null} quando a época
+     * termina. O batch tem de ser devolvido com {@link #release} depois de
+     * usado.
+     */
+    SampleBatch next() throws InterruptedException;
+
+    void release(SampleBatch batch);
+
+    /** Número de amostras por época. */
+    int size();
+
+    int inputSize();
+}
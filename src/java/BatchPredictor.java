@@ -0,0 +1,589 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+
+/**
+ * Inferência em lote sobre conjuntos que não cabem em memória: as imagens
+ * são lidas de um ficheiro IDX ou de uma pasta de imagens 28x28 em tons de
+ * cinzento, descodificadas por threads leitoras em batches de tamanho
+ * fixo, classificadas num pool de workers (cada um com a sua
+ * {@link InferenceSession} sobre o mesmo {@link Model}) e escritas num
+ * CSV à medida que ficam prontas, pela ordem de entrada, com as
+ * {@code top-k} classes e probabilidades.
+ *
+ * <pre>
+ * java -cp src/java BatchPredictor (--idx F [--labels F] | --images DIR [--invert]) [--output F]
+ *      [--model F | --csv F] [--batch-size N] [--readers N] [--workers N] [--top-k K]
+ * </pre>
+ *
+ * A leitora {@code t} de {@code R} prepara os batches {@code t, t + R, ...}
+ * com os seus próprios buffers reutilizados e a thread principal recolhe-os
+ * à vez, pelo que a memória usada é fixa (alguns batches por leitora),
+ * seja qual for o número de imagens. Com labels é mostrada a accuracy.
+ */
+public final class BatchPredictor {
+
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final int DEFAULT_TOP_K = 3;
+    static final String DEFAULT_OUTPUT_PATH = "weights/predictions.csv";
+    private static final int PROGRESS_STEPS = 10;
+
+    private final Model model;
+    private final int batchSize;
+    private final int readers;
+    private final int workers;
+    private final int topK;
+
+    public BatchPredictor(Model model, int batchSize, int readers, int workers, int topK) {
+        if (batchSize <= 0 || readers <= 0 || workers <= 0) {
+            throw new IllegalArgumentException("Batch size, leitoras e workers têm de ser positivos.");
+        }
+        if (topK <= 0 || topK > model.getOutputSize()) {
+            throw new IllegalArgumentException("top-k tem de estar entre 1 e " + model.getOutputSize() + ": " + topK);
+        }
+        this.model = model;
+        this.batchSize = batchSize;
+        this.readers = readers;
+        this.workers = workers;
+        this.topK = topK;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String idxPath = null;
+        String labelsPath = null;
+        String imagesPath = null;
+        boolean invert = false;
+        String outputPath = DEFAULT_OUTPUT_PATH;
+        String modelPath = Main.MODEL_PATH;
+        String csvPath = null;
+        int batchSize = DEFAULT_BATCH_SIZE;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int readers = Math.max(1, cores / 2);
+        int workers = cores;
+        int topK = DEFAULT_TOP_K;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--idx".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                idxPath = args[++i];
+            } else if ("--labels".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                labelsPath = args[++i];
+            } else if ("--images".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                imagesPath = args[++i];
+            } else if ("--invert".equalsIgnoreCase(arg)) {
+                invert = true;
+            } else if ("--output".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                outputPath = args[++i];
+            } else if ("--model".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                modelPath = args[++i];
+            } else if ("--csv".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                csvPath = args[++i];
+            } else if ("--batch-size".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                batchSize = Integer.parseInt(args[++i]);
+            } else if ("--readers".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                readers = Integer.parseInt(args[++i]);
+            } else if ("--workers".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                workers = Integer.parseInt(args[++i]);
+            } else if ("--top-k".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                topK = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("Argumento desconhecido: " + arg);
+                printUsage();
+                return;
+            }
+        }
+        if ((idxPath == null) == (imagesPath == null)) {
+            System.err.println("Indique --idx F ou --images DIR.");
+            printUsage();
+            return;
+        }
+
+        NeuralNetwork nn = new NeuralNetwork(Main.buildLayers(ThreadLocalRandom.current()));
+        if (csvPath == null && Files.exists(Path.of(modelPath))) {
+            System.out.println("A carregar pesos de " + modelPath);
+            if (!nn.loadModel(modelPath)) {
+                return;
+            }
+        } else {
+            csvPath = csvPath == null ? Main.WEIGHTS_CSV_PATH : csvPath;
+            System.out.println("A carregar pesos de " + csvPath);
+            nn.loadWeights(csvPath);
+        }
+
+        BatchPredictor predictor = new BatchPredictor(nn.toModel(), batchSize, readers, workers, topK);
+        try (Input input = idxPath != null
+                ? new IdxInput(Path.of(idxPath), labelsPath == null ? null : Path.of(labelsPath))
+                : new ImageDirectoryInput(Path.of(imagesPath), invert)) {
+            predictor.run(input, Path.of(outputPath));
+        }
+    }
+
+    private static void printUsage() {
+        System.err.println("Uso: java -cp src/java BatchPredictor (--idx F [--labels F] | --images DIR [--invert]) [--output F]"
+                + " [--model F | --csv F] [--batch-size N] [--readers N] [--workers N] [--top-k K]");
+    }
+
+    /**
+     * Classifica todas as imagens de {@code input} e escreve o CSV em
+     * {@code output}: {@code index[,file][,label],class1,prob1,...}.
+     */
+    public void run(Input input, Path output) throws IOException, InterruptedException {
+        if (input.pixelsPerImage() != model.getInputSize()) {
+            throw new IllegalArgumentException("Imagens com " + input.pixelsPerImage()
+                    + " píxeis, o modelo espera " + model.getInputSize());
+        }
+        int count = input.size();
+        int batches = (count + batchSize - 1) / batchSize;
+        // Cada leitora tem mais batches do que os que podem estar pendentes dela, para nunca ficar sem buffers.
+        int maxInFlight = 2 * workers;
+        int perReader = (maxInFlight + readers - 1) / readers + 2;
+
+        List<BlockingQueue<Batch>> ready = new ArrayList<>(readers);
+        List<BlockingQueue<Batch>> free = new ArrayList<>(readers);
+        for (int t = 0; t < readers; t++) {
+            ready.add(new ArrayBlockingQueue<>(perReader + 1));
+            free.add(new ArrayBlockingQueue<>(perReader));
+            for (int i = 0; i < perReader; i++) {
+                free.get(t).add(new Batch(t, batchSize, model.getInputSize(), model.getOutputSize()));
+            }
+        }
+        Throwable[] failure = new Throwable[1];
+        Thread[] readerThreads = new Thread[readers];
+        for (int t = 0; t < readers; t++) {
+            int reader = t;
+            readerThreads[t] = new Thread(() -> read(input, reader, batches, ready.get(reader), free.get(reader), failure),
+                    "batch-predictor-reader-" + t);
+            readerThreads[t].setDaemon(true);
+            readerThreads[t].start();
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(workers, task -> {
+            Thread thread = new Thread(task, "batch-predictor-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ThreadLocal<InferenceSession> sessions = ThreadLocal.withInitial(model::newSession);
+
+        System.out.println(String.format("A classificar %d imagens em batches de %d (%d leitoras, %d workers, top-%d)",
+                count, batchSize, readers, workers, topK));
+        Path parent = output.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Totals totals = new Totals();
+        long start = System.nanoTime();
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(output), StandardCharsets.UTF_8), 1 << 20)) {
+            writeHeader(writer, input);
+            ArrayDeque<Batch> pending = new ArrayDeque<>(maxInFlight);
+            for (int b = 0; b < batches; b++) {
+                if (pending.size() >= maxInFlight) {
+                    complete(pending.poll(), input, writer, free, totals, count, start);
+                }
+                long waitStart = System.nanoTime();
+                Batch batch = ready.get(b % readers).take();
+                totals.readWaitNanos += System.nanoTime() - waitStart;
+                if (batch == null || batch.rows < 0) {
+                    throw new IOException("Falha a ler as imagens: " + failure[0].getMessage(), failure[0]);
+                }
+                batch.result = pool.submit(() -> sessions.get().predictBatch(batch.inputs, batch.rows, batch.outputs));
+                pending.add(batch);
+            }
+            while (!pending.isEmpty()) {
+                complete(pending.poll(), input, writer, free, totals, count, start);
+            }
+        } finally {
+            pool.shutdownNow();
+            for (Thread reader : readerThreads) {
+                reader.interrupt();
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("Imagens: %d em %.2f s (%.0f imagens/s)", count, seconds, count / seconds));
+        System.out.println(String.format("Espera por dados: %.1f ms | espera pela inferência: %.1f ms | escrita: %.1f ms",
+                totals.readWaitNanos / 1e6, totals.inferenceWaitNanos / 1e6, totals.writeNanos / 1e6));
+        if (input.hasLabels()) {
+            System.out.println(String.format("Accuracy: %.2f%%", 100.0 * totals.correct / Math.max(1, count)));
+        }
+        System.out.println("Previsões escritas em " + output);
+    }
+
+    /** Thread leitora {@code reader}: prepara os batches {@code reader, reader + R, ...}. */
+    private void read(Input input, int reader, int batches, BlockingQueue<Batch> ready, BlockingQueue<Batch> free,
+                      Throwable[] failure) {
+        double[] table = MnistLoader.NORMALIZED_PIXELS;
+        int pixels = input.pixelsPerImage();
+        try {
+            for (int b = reader; b < batches; b += readers) {
+                Batch batch = free.take();
+                int first = b * batchSize;
+                int rows = Math.min(batchSize, input.size() - first);
+                input.read(first, rows, batch.pixels, batch.labels);
+                for (int j = 0; j < rows * pixels; j++) {
+                    batch.inputs[j] = table[batch.pixels[j] & 0xFF];
+                }
+                batch.first = first;
+                batch.rows = rows;
+                ready.put(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            failure[0] = e;
+            Batch failed = new Batch(reader, 0, 0, 0);
+            failed.rows = -1;
+            ready.offer(failed);
+        }
+    }
+
+    private void complete(Batch batch, Input input, BufferedWriter writer, List<BlockingQueue<Batch>> free,
+                          Totals totals, int count, long start) throws IOException, InterruptedException {
+        long waitStart = System.nanoTime();
+        try {
+            batch.result.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha num worker de inferência: " + e.getCause().getMessage(), e.getCause());
+        }
+        long writeStart = System.nanoTime();
+        totals.inferenceWaitNanos += writeStart - waitStart;
+
+        int classes = model.getOutputSize();
+        StringBuilder line = totals.line;
+        int[] best = totals.best;
+        for (int r = 0; r < batch.rows; r++) {
+            int offset = r * classes;
+            topClasses(batch.outputs, offset, classes, best, topK);
+            int index = batch.first + r;
+            line.setLength(0);
+            line.append(index);
+            String name = input.name(index);
+            if (name != null) {
+                line.append(',').append(csvField(name));
+            }
+            if (input.hasLabels()) {
+                line.append(',').append(batch.labels[r]);
+                if (best[0] == batch.labels[r]) {
+                    totals.correct++;
+                }
+            }
+            for (int k = 0; k < topK; k++) {
+                line.append(',').append(best[k]).append(',');
+                appendProbability(line, batch.outputs[offset + best[k]]);
+            }
+            line.append('\n');
+            writer.append(line);
+        }
+        totals.writeNanos += System.nanoTime() - writeStart;
+
+        int before = totals.written;
+        totals.written += batch.rows;
+        int step = Math.max(1, count / PROGRESS_STEPS);
+        if (totals.written / step > before / step && totals.written < count) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.println(String.format("   -> %d/%d imagens (%.0f imagens/s)",
+                    totals.written, count, totals.written / seconds));
+        }
+        batch.result = null;
+        free.get(batch.owner).put(batch);
+    }
+
+    private void writeHeader(BufferedWriter writer, Input input) throws IOException {
+        StringBuilder header = new StringBuilder("index");
+        if (input.name(0) != null) {
+            header.append(",file");
+        }
+        if (input.hasLabels()) {
+            header.append(",label");
+        }
+        for (int k = 1; k <= topK; k++) {
+            header.append(",class").append(k).append(",prob").append(k);
+        }
+        writer.write(header.toString());
+        writer.newLine();
+    }
+
+    /** As {@code k} classes mais prováveis da linha, por ordem decrescente. */
+    static void topClasses(double[] outputs, int offset, int classes, int[] best, int k) {
+        for (int position = 0; position < k; position++) {
+            int chosen = -1;
+            for (int c = 0; c < classes; c++) {
+                if (chosen >= 0 && outputs[offset + c] <= outputs[offset + chosen]) {
+                    continue;
+                }
+                boolean taken = false;
+                for (int previous = 0; previous < position; previous++) {
+                    taken |= best[previous] == c;
+                }
+                if (!taken) {
+                    chosen = c;
+                }
+            }
+            best[position] = chosen;
+        }
+    }
+
+    /** Probabilidade com 6 casas decimais, sem passar por {@link String#format}. */
+    private static void appendProbability(StringBuilder line, double value) {
+        long micros = Math.round(Math.max(0.0, Math.min(1.0, value)) * 1_000_000);
+        line.append(micros / 1_000_000).append('.');
+        String fraction = Long.toString(micros % 1_000_000);
+        for (int i = fraction.length(); i < 6; i++) {
+            line.append('0');
+        }
+        line.append(fraction);
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /** Buffers de um batch, reutilizados pela sua leitora. */
+    private static final class Batch {
+        final int owner;
+        final byte[] pixels;
+        final double[] inputs;
+        final double[] outputs;
+        final int[] labels;
+        int first;
+        int rows;
+        Future<?> result;
+
+        Batch(int owner, int capacity, int inputSize, int outputSize) {
+            this.owner = owner;
+            this.pixels = new byte[capacity * inputSize];
+            this.inputs = new double[capacity * inputSize];
+            this.outputs = new double[capacity * outputSize];
+            this.labels = new int[capacity];
+        }
+    }
+
+    /** Contadores da thread principal. */
+    private final class Totals {
+        final StringBuilder line = new StringBuilder(128);
+        final int[] best = new int[topK];
+        long readWaitNanos;
+        long inferenceWaitNanos;
+        long writeNanos;
+        int written;
+        long correct;
+    }
+
+    /** Origem das imagens, lidas em uint8 por intervalos; {@link #read} é chamado por várias threads. */
+    public interface Input extends Closeable {
+        int size();
+
+        int pixelsPerImage();
+
+        boolean hasLabels();
+
+        /** Lê as imagens {@code [first, first + count)} para {@code pixels} e, se houver, os labels. */
+        void read(int first, int count, byte[] pixels, int[] labels) throws IOException;
+
+        /** Nome da imagem {@code index} na saída, ou {@code null} se as imagens não tiverem nome. */
+        String name(int index);
+    }
+
+    /**
+     * Ficheiro IDX de imagens (e, opcionalmente, de labels) lido com
+     * leituras posicionais, sem o mapear: funciona com ficheiros de
+     * qualquer tamanho e as leitoras não partilham posição.
+     */
+    public static final class IdxInput implements Input {
+        private final FileChannel images;
+        private final FileChannel labels;
+        private final int count;
+        private final int pixelsPerImage;
+        private final ThreadLocal<byte[]> labelBuffers = new ThreadLocal<>();
+
+        public IdxInput(Path imagesPath, Path labelsPath) throws IOException {
+            this.images = FileChannel.open(imagesPath, StandardOpenOption.READ);
+            this.labels = labelsPath == null ? null : FileChannel.open(labelsPath, StandardOpenOption.READ);
+            try {
+                byte[] header = new byte[16];
+                StreamingBatchLoader.readInto(images, 0, header, header.length);
+                ByteBuffer buffer = ByteBuffer.wrap(header);
+                if (buffer.getInt(0) != MnistLoader.IMAGE_MAGIC) {
+                    throw new IOException("Ficheiro de imagens inválido: magic number " + buffer.getInt(0));
+                }
+                this.count = buffer.getInt(4);
+                this.pixelsPerImage = buffer.getInt(8) * buffer.getInt(12);
+                if (labels != null) {
+                    byte[] labelHeader = new byte[8];
+                    StreamingBatchLoader.readInto(labels, 0, labelHeader, labelHeader.length);
+                    ByteBuffer labelBuffer = ByteBuffer.wrap(labelHeader);
+                    if (labelBuffer.getInt(0) != MnistLoader.LABEL_MAGIC) {
+                        throw new IOException("Ficheiro de labels inválido: magic number " + labelBuffer.getInt(0));
+                    }
+                    if (labelBuffer.getInt(4) != count) {
+                        throw new IOException("Número de imagens (" + count + ") diferente do número de labels ("
+                                + labelBuffer.getInt(4) + ")");
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public int pixelsPerImage() {
+            return pixelsPerImage;
+        }
+
+        @Override
+        public boolean hasLabels() {
+            return labels != null;
+        }
+
+        @Override
+        public void read(int first, int count, byte[] pixels, int[] labels) throws IOException {
+            StreamingBatchLoader.readInto(images, 16L + (long) first * pixelsPerImage, pixels, count * pixelsPerImage);
+            if (this.labels != null) {
+                byte[] buffer = labelBuffers.get();
+                if (buffer == null || buffer.length < count) {
+                    buffer = new byte[labels.length];
+                    labelBuffers.set(buffer);
+                }
+                StreamingBatchLoader.readInto(this.labels, 8L + first, buffer, count);
+                for (int i = 0; i < count; i++) {
+                    labels[i] = buffer[i] & 0xFF;
+                }
+            }
+        }
+
+        @Override
+        public String name(int index) {
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            images.close();
+            if (labels != null) {
+                labels.close();
+            }
+        }
+    }
+
+    /**
+     * Pasta de imagens 28x28 (PNG, BMP, GIF ou JPEG, via {@link ImageIO}),
+     * por ordem do nome do ficheiro; só a lista de nomes fica em memória.
+     * Como no MNIST, o dígito é claro sobre fundo escuro; {@code invert}
+     * aceita dígitos escuros sobre fundo claro.
+     */
+    public static final class ImageDirectoryInput implements Input {
+        private static final int SIDE = 28;
+
+        private final List<Path> files;
+        private final boolean invert;
+
+        public ImageDirectoryInput(Path directory, boolean invert) throws IOException {
+            try (Stream<Path> entries = Files.list(directory)) {
+                this.files = entries.filter(Files::isRegularFile)
+                        .filter(ImageDirectoryInput::isImage)
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+            if (files.isEmpty()) {
+                throw new IOException("Nenhuma imagem (png, bmp, gif, jpg) em " + directory);
+            }
+            this.invert = invert;
+        }
+
+        private static boolean isImage(Path path) {
+            String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".png") || name.endsWith(".bmp") || name.endsWith(".gif")
+                    || name.endsWith(".jpg") || name.endsWith(".jpeg");
+        }
+
+        @Override
+        public int size() {
+            return files.size();
+        }
+
+        @Override
+        public int pixelsPerImage() {
+            return SIDE * SIDE;
+        }
+
+        @Override
+        public boolean hasLabels() {
+            return false;
+        }
+
+        @Override
+        public void read(int first, int count, byte[] pixels, int[] labels) throws IOException {
+            for (int i = 0; i < count; i++) {
+                Path file = files.get(first + i);
+                BufferedImage image = ImageIO.read(file.toFile());
+                if (image == null) {
+                    throw new IOException("Formato de imagem não suportado: " + file);
+                }
+                if (image.getWidth() != SIDE || image.getHeight() != SIDE) {
+                    throw new IOException(file + " tem " + image.getWidth() + "x" + image.getHeight()
+                            + ", esperado " + SIDE + "x" + SIDE);
+                }
+                // Só as imagens em tons de cinzento guardam a intensidade na
+                // amostra; nas indexadas (GIF, PNG com paleta) é o índice da cor.
+                Raster raster = image.getRaster();
+                boolean gray = raster.getNumBands() == 1 && !(image.getColorModel() instanceof IndexColorModel);
+                int grayMax = gray ? (1 << raster.getSampleModel().getSampleSize(0)) - 1 : 0;
+                int offset = i * SIDE * SIDE;
+                for (int y = 0; y < SIDE; y++) {
+                    for (int x = 0; x < SIDE; x++) {
+                        int value;
+                        if (gray) {
+                            value = grayMax == 255 ? raster.getSample(x, y, 0)
+                                    : (int) ((raster.getSample(x, y, 0) * 255L + grayMax / 2) / grayMax);
+                        } else {
+                            int rgb = image.getRGB(x, y);
+                            value = (299 * ((rgb >> 16) & 0xFF) + 587 * ((rgb >> 8) & 0xFF) + 114 * (rgb & 0xFF)) / 1000;
+                        }
+                        pixels[offset + y * SIDE + x] = (byte) (invert ? 255 - value : value);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public String name(int index) {
+            return files.get(index).getFileName().toString();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Buffers pré-alocados para processar um mini-batch de uma só vez:
+ * o bloco de entradas e os labels e, para cada camada, as ativações e os
+ * deltas {@code [capacity x outputSize]} em ordem row-major, os
+ * acumuladores de gradiente e, nas camadas ReLU, as {@link ActiveUnits}
+ * do último forward. Cada thread de treino usa o seu próprio
+ * workspace.
+ */
+public class BatchWorkspace {
+    private final int capacity;
+    private final int inputSize;
+    private final double[] inputs;
+    private final int[] labels;
+    private final double[][] activations;
+    private final double[][] deltas;
+    private final double[][] weightGradients;
+    private final double[][] biasGradients;
+    private final ActiveUnits[] activeUnits;
+    private SparseInputPath sparseInput;
+
+    public BatchWorkspace(List<Layer> layers, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacidade do batch inválida: " + capacity);
+        }
+        this.capacity = capacity;
+        this.inputSize = layers.get(0).getInputSize();
+        this.inputs = new double[capacity * inputSize];
+        this.labels = new int[capacity];
+        this.activations = new double[layers.size()][];
+        this.deltas = new double[layers.size()][];
+        this.weightGradients = new double[layers.size()][];
+        this.biasGradients = new double[layers.size()][];
+        this.activeUnits = new ActiveUnits[layers.size()];
+        for (int i = 0; i < layers.size(); i++) {
+            Layer layer = layers.get(i);
+            if (layer.getActivationType() == ActivationType.RELU) {
+                activeUnits[i] = new ActiveUnits(capacity, layer.getOutputSize());
+            }
+            int size = capacity * layer.getOutputSize();
+            activations[i] = new double[size];
+            deltas[i] = new double[size];
+            weightGradients[i] = new double[layer.getOutputSize() * layer.getInputSize()];
+            biasGradients[i] = new double[layer.getOutputSize()];
+        }
+    }
+
+    /**
+     * Copia as {@code rows} amostras {@code order[start..start + rows)} da
+     * fonte para o bloco de entrada e os seus labels.
+     */
+    public void load(SampleSource source, int[] order, int start, int rows) {
+        if (rows > capacity) {
+            throw new IllegalArgumentException("Batch de " + rows + " amostras excede a capacidade " + capacity);
+        }
+        for (int r = 0; r < rows; r++) {
+            int index = order[start + r];
+            source.copyInput(index, inputs, r * inputSize);
+            labels[r] = source.label(index);
+        }
+    }
+
+    /**
+     * Copia as linhas {@code [offset, offset + rows)} de um batch já
+     * normalizado para o bloco de entrada e os labels.
+     */
+    public void load(SampleBatch batch, int offset, int rows) {
+        if (rows > capacity) {
+            throw new IllegalArgumentException("Batch de " + rows + " amostras excede a capacidade " + capacity);
+        }
+        System.arraycopy(batch.getInputs(), offset * inputSize, inputs, 0, rows * inputSize);
+        System.arraycopy(batch.getLabels(), offset, labels, 0, rows);
+    }
+
+    public void resetGradients() {
+        for (int i = 0; i < weightGradients.length; i++) {
+            Arrays.fill(weightGradients[i], 0.0);
+            Arrays.fill(biasGradients[i], 0.0);
+        }
+    }
+
+    /** Soma os gradientes de {@code other} aos deste workspace. */
+    public void addGradients(BatchWorkspace other) {
+        for (int i = 0; i < weightGradients.length; i++) {
+            double[] target = weightGradients[i];
+            double[] source = other.weightGradients[i];
+            for (int k = 0; k < target.length; k++) {
+                target[k] += source[k];
+            }
+            double[] targetBias = biasGradients[i];
+            double[] sourceBias = other.biasGradients[i];
+            for (int k = 0; k < targetBias.length; k++) {
+                targetBias[k] += sourceBias[k];
+            }
+        }
+    }
+
+    /**
+     * Passa a usar o caminho esparso da primeira camada, para entradas
+     * em que quase todos os valores são iguais a {@code background}.
+     */
+    public void enableSparseInput(Layer firstLayer, double background) {
+        this.sparseInput = new SparseInputPath(firstLayer, capacity, background);
+    }
+
+    /** Caminho esparso da primeira camada, ou {@code null} se estiver desativado. */
+    SparseInputPath getSparseInput() {
+        return sparseInput;
+    }
+
+    /** Unidades ativas da camada {@code layer} no último forward, ou {@code null} se não for ReLU. */
+    ActiveUnits getActiveUnits(int layer) {
+        return activeUnits[layer];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public double[] getInputs() {
+        return inputs;
+    }
+
+    /** Label de cada linha do bloco; um label fora de {@code [0, outputSize)} conta como target nulo. */
+    public int[] getLabels() {
+        return labels;
+    }
+
+    public double[] getActivations(int layer) {
+        return activations[layer];
+    }
+
+    /** Bloco de entrada da camada {@code layer}: as ativações da anterior. */
+    public double[] layerInputs(int layer) {
+        return layer == 0 ? inputs : activations[layer - 1];
+    }
+
+    public double[] getDeltas(int layer) {
+        return deltas[layer];
+    }
+
+    public double[] getWeightGradients(int layer) {
+        return weightGradients[layer];
+    }
+
+    public double[] getBiasGradients(int layer) {
+        return biasGradients[layer];
+    }
+}
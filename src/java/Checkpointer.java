@@ -0,0 +1,93 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkpoints periódicos sem bloquear o treino em disco. No fim de uma
+ * época, quando passaram {@code everyEpochs} épocas ou
+ * {@code everySeconds} segundos desde o último, o estado é copiado para
+ * um de dois {@link TrainingCheckpoint} (double buffering) e uma thread
+ * de fundo escreve-o. A thread de treino só faz a cópia em memória; se os
+ * dois buffers ainda estiverem a ser escritos, o checkpoint é adiado para
+ * a época seguinte.
+ */
+public class Checkpointer implements AutoCloseable {
+
+    private final List<Layer> layers;
+    private final Path path;
+    private final int everyEpochs;
+    private final long everyNanos;
+    private final TrainingCheckpoint[] buffers = new TrainingCheckpoint[2];
+    private final Future<?>[] pending = new Future<?>[2];
+    private final ExecutorService writer;
+    private int nextBuffer;
+    private long lastCheckpointNanos = System.nanoTime();
+
+    public Checkpointer(List<Layer> layers, Path path, int everyEpochs, int everySeconds) {
+        if (everyEpochs < 0 || everySeconds < 0) {
+            throw new IllegalArgumentException("Intervalo de checkpoint inválido.");
+        }
+        this.layers = layers;
+        this.path = path;
+        this.everyEpochs = everyEpochs;
+        this.everyNanos = TimeUnit.SECONDS.toNanos(everySeconds);
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new TrainingCheckpoint(layers);
+        }
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Chamado pela thread de treino depois de {@code epoch} épocas
+     * concluídas. Devolve {@code true} se foi agendado um checkpoint.
+     */
+    public boolean onEpochEnd(int epoch, List<Double> lossHistory, Long seed, double learningRate,
+                              double[][] optimizerState) {
+        long now = System.nanoTime();
+        boolean due = (everyEpochs > 0 && epoch % everyEpochs == 0)
+                || (everyNanos > 0 && now - lastCheckpointNanos >= everyNanos);
+        if (!due) {
+            return false;
+        }
+        int index = nextBuffer;
+        if (pending[index] != null && !pending[index].isDone()) {
+            System.out.println("   -> Checkpoint adiado: a escrita anterior ainda não terminou");
+            return false;
+        }
+
+        TrainingCheckpoint buffer = buffers[index];
+        buffer.capture(layers, epoch, lossHistory, seed, learningRate, optimizerState);
+        pending[index] = writer.submit(() -> {
+            try {
+                buffer.write(path);
+            } catch (IOException e) {
+                System.err.println("Erro ao escrever o checkpoint: " + e.getMessage());
+            }
+        });
+        nextBuffer = 1 - index;
+        lastCheckpointNanos = now;
+        System.out.println("   -> Checkpoint da época " + epoch + " agendado para " + path);
+        return true;
+    }
+
+    /** Espera que os checkpoints pendentes fiquem escritos. */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                System.err.println("Timeout à espera da escrita do checkpoint.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Treino síncrono em paralelo de dados: cada mini-batch é dividido em
+ * fatias contíguas fixas, uma por worker, e cada worker calcula forward,
+ * backward e gradientes no seu próprio {@link BatchWorkspace}. Os
+ * gradientes são depois somados numa redução em árvore de ordem fixa,
+ * pelo que o resultado é idêntico bit a bit para a mesma seed e o mesmo
+ * número de threads.
+ */
+public class DataParallelTrainer implements AutoCloseable {
+    private final NeuralNetwork network;
+    private final ForkJoinPool pool;
+    private final BatchWorkspace[] workspaces;
+    private final int chunkSize;
+
+    public DataParallelTrainer(NeuralNetwork network, List<Layer> layers, int threads, int batchSize) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Número de threads inválido: " + threads);
+        }
+        this.network = network;
+        this.pool = new ForkJoinPool(threads);
+        this.chunkSize = (batchSize + threads - 1) / threads;
+        this.workspaces = new BatchWorkspace[threads];
+        for (int w = 0; w < threads; w++) {
+            workspaces[w] = network.newWorkspace(chunkSize);
+        }
+    }
+
+    /**
+     * Treina o mini-batch {@code order[start..start + rows)} e aplica o
+     * gradiente reduzido. Devolve a soma do loss do batch.
+     */
+    public double trainBatch(SampleSource source, int[] order, int start, int rows) {
+        return trainBatch(rows, (workspace, offset, sliceRows) -> workspace.load(source, order, start + offset, sliceRows));
+    }
+
+    /** Igual ao anterior para um batch já normalizado por uma thread produtora. */
+    public double trainBatch(SampleBatch batch) {
+        return trainBatch(batch.getRows(), (workspace, offset, sliceRows) -> workspace.load(batch, offset, sliceRows));
+    }
+
+    private double trainBatch(int rows, SliceLoader loader) {
+        List<Callable<Double>> tasks = new ArrayList<>(workspaces.length);
+        for (int w = 0; w < workspaces.length; w++) {
+            BatchWorkspace workspace = workspaces[w];
+            int sliceOffset = Math.min(rows, w * chunkSize);
+            int sliceRows = Math.min(rows, (w + 1) * chunkSize) - sliceOffset;
+            tasks.add(() -> {
+                workspace.resetGradients();
+                if (sliceRows == 0) {
+                    return 0.0;
+                }
+                long loadStart = network.getMetrics().start();
+                loader.load(workspace, sliceOffset, sliceRows);
+                network.getMetrics().record(TrainingMetrics.Phase.DATA, loadStart);
+                return network.computeGradients(workspace, sliceRows);
+            });
+        }
+
+        double loss = 0.0;
+        for (Future<Double> result : invokeAll(tasks)) {
+            loss += join(result);
+        }
+
+        reduceGradients();
+        network.applyGradients(workspaces[0], rows);
+        return loss;
+    }
+
+    /**
+     * Redução em árvore: em cada nível o workspace {@code i} soma o de
+     * {@code i + stride}. Os pares de um nível são independentes e correm
+     * em paralelo; a ordem das somas não depende do escalonamento.
+     */
+    private void reduceGradients() {
+        for (int stride = 1; stride < workspaces.length; stride *= 2) {
+            List<Callable<Double>> tasks = new ArrayList<>();
+            for (int i = 0; i + stride < workspaces.length; i += 2 * stride) {
+                BatchWorkspace target = workspaces[i];
+                BatchWorkspace source = workspaces[i + stride];
+                tasks.add(() -> {
+                    target.addGradients(source);
+                    return 0.0;
+                });
+            }
+            for (Future<Double> result : invokeAll(tasks)) {
+                join(result);
+            }
+        }
+    }
+
+    private List<Future<Double>> invokeAll(List<Callable<Double>> tasks) {
+        return pool.invokeAll(tasks);
+    }
+
+    private double join(Future<Double> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Treino paralelo interrompido", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha num worker de treino: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private interface SliceLoader {
+        void load(BatchWorkspace workspace, int offset, int rows);
+    }
+
+    public int getThreads() {
+        return workspaces.length;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,200 @@
+import java.util.Arrays;
+
+/**
+ * Resultado de uma avaliação: matriz de confusão, loss (cross-entropy),
+ * accuracy top-k e métricas por classe. Os shards do {@link Evaluator}
+ * acumulam cada um o seu e são combinados com {@link #merge}.
+ */
+public final class EvaluationResult {
+
+    private final int classes;
+    private final int maxTopK;
+    private final long[][] confusion;
+    // rankCounts[r] = amostras cujo label ficou na posição r (0 = mais provável).
+    private final long[] rankCounts;
+    private double totalLoss;
+    private long samples;
+
+    EvaluationResult(int classes, int maxTopK) {
+        this.classes = classes;
+        this.maxTopK = Math.max(1, Math.min(maxTopK, classes));
+        this.confusion = new long[classes][classes];
+        this.rankCounts = new long[this.maxTopK];
+    }
+
+    /**
+     * Regista uma amostra a partir das probabilidades {@code output[offset..offset + classes)}.
+     * O label tem de estar em {@code [0, classes)} e a saída tem de ter
+     * uma probabilidade por classe, de onde sai a classe prevista.
+     */
+    void add(int label, double[] output, int offset) {
+        if (label < 0 || label >= classes) {
+            throw new IllegalArgumentException("Label " + label + " fora de 0-" + (classes - 1)
+                    + ": o modelo tem " + classes + " classes");
+        }
+        if (offset < 0 || offset + classes > output.length) {
+            throw new IllegalArgumentException("Saída com " + output.length + " valores não tem " + classes
+                    + " classes a partir da posição " + offset);
+        }
+        int predicted = 0;
+        double best = output[offset];
+        for (int k = 1; k < classes; k++) {
+            if (output[offset + k] > best) {
+                best = output[offset + k];
+                predicted = k;
+            }
+        }
+        double target = output[offset + label];
+        int rank = 0;
+        for (int k = 0; k < classes; k++) {
+            if (output[offset + k] > target) {
+                rank++;
+            }
+        }
+        confusion[label][predicted]++;
+        if (rank < maxTopK) {
+            rankCounts[rank]++;
+        }
+        totalLoss -= Math.log(target + 1e-9);
+        samples++;
+    }
+
+    /** Zera o resultado para ser reutilizado noutra avaliação. */
+    void reset() {
+        for (long[] row : confusion) {
+            Arrays.fill(row, 0);
+        }
+        Arrays.fill(rankCounts, 0);
+        totalLoss = 0.0;
+        samples = 0;
+    }
+
+    /** Soma {@code other} a este resultado. */
+    void merge(EvaluationResult other) {
+        for (int i = 0; i < classes; i++) {
+            for (int j = 0; j < classes; j++) {
+                confusion[i][j] += other.confusion[i][j];
+            }
+        }
+        for (int r = 0; r < maxTopK; r++) {
+            rankCounts[r] += other.rankCounts[r];
+        }
+        totalLoss += other.totalLoss;
+        samples += other.samples;
+    }
+
+    public long getSamples() {
+        return samples;
+    }
+
+    public long getCorrect() {
+        long correct = 0;
+        for (int c = 0; c < classes; c++) {
+            correct += confusion[c][c];
+        }
+        return correct;
+    }
+
+    /** Accuracy top-1, em %. */
+    public double getAccuracy() {
+        return samples == 0 ? 0.0 : 100.0 * getCorrect() / samples;
+    }
+
+    /** Fração (em %) das amostras cujo label está entre as {@code k} classes mais prováveis. */
+    public double getTopKAccuracy(int k) {
+        if (k < 1 || k > maxTopK) {
+            throw new IllegalArgumentException("k tem de estar entre 1 e " + maxTopK + ": " + k);
+        }
+        long hits = 0;
+        for (int r = 0; r < k; r++) {
+            hits += rankCounts[r];
+        }
+        return samples == 0 ? 0.0 : 100.0 * hits / samples;
+    }
+
+    public double getAverageLoss() {
+        return samples == 0 ? 0.0 : totalLoss / samples;
+    }
+
+    /** Fração das predições da classe {@code c} que estavam certas (0 se nunca foi prevista). */
+    public double getPrecision(int c) {
+        long predicted = 0;
+        for (int i = 0; i < classes; i++) {
+            predicted += confusion[i][c];
+        }
+        return predicted == 0 ? 0.0 : (double) confusion[c][c] / predicted;
+    }
+
+    /** Fração das amostras da classe {@code c} que foram classificadas como {@code c}. */
+    public double getRecall(int c) {
+        long actual = 0;
+        for (int j = 0; j < classes; j++) {
+            actual += confusion[c][j];
+        }
+        return actual == 0 ? 0.0 : (double) confusion[c][c] / actual;
+    }
+
+    public double getF1(int c) {
+        double precision = getPrecision(c);
+        double recall = getRecall(c);
+        return precision + recall == 0.0 ? 0.0 : 2 * precision * recall / (precision + recall);
+    }
+
+    public double getMacroF1() {
+        double sum = 0.0;
+        for (int c = 0; c < classes; c++) {
+            sum += getF1(c);
+        }
+        return sum / classes;
+    }
+
+    /** Cópia da matriz de confusão: linha = classe real, coluna = classe prevista. */
+    public long[][] getConfusionMatrix() {
+        long[][] copy = new long[classes][];
+        for (int i = 0; i < classes; i++) {
+            copy[i] = confusion[i].clone();
+        }
+        return copy;
+    }
+
+    public int getClassCount() {
+        return classes;
+    }
+
+    public int getMaxTopK() {
+        return maxTopK;
+    }
+
+    /** Relatório completo na consola: resumo, métricas por classe e matriz de confusão. */
+    public void print() {
+        System.out.println("\n════════════════════════════════════════");
+        System.out.println("  RESULTADOS DO TESTE");
+        System.out.println("════════════════════════════════════════");
+        System.out.println("Accuracy: " + String.format("%.2f", getAccuracy()) + "%");
+        System.out.println("Corretos: " + getCorrect() + " de " + samples);
+        System.out.println("Loss médio: " + String.format("%.6f", getAverageLoss()));
+        if (maxTopK > 1) {
+            System.out.println(String.format("Top-%d: %.2f%%", maxTopK, getTopKAccuracy(maxTopK)));
+        }
+        System.out.println(String.format("F1 macro: %.4f", getMacroF1()));
+
+        System.out.println("\nClasse  Precisão  Recall      F1");
+        for (int c = 0; c < classes; c++) {
+            System.out.println(String.format("%6d %9.4f %7.4f %7.4f", c, getPrecision(c), getRecall(c), getF1(c)));
+        }
+
+        StringBuilder header = new StringBuilder("\nMatriz de confusão (linha = real, coluna = prevista)\n     ");
+        for (int j = 0; j < classes; j++) {
+            header.append(String.format("%6d", j));
+        }
+        System.out.println(header);
+        for (int i = 0; i < classes; i++) {
+            StringBuilder row = new StringBuilder(String.format("%4d ", i));
+            for (int j = 0; j < classes; j++) {
+                row.append(String.format("%6d", confusion[i][j]));
+            }
+            System.out.println(row);
+        }
+        System.out.println("════════════════════════════════════════");
+    }
+}
@@ -0,0 +1,137 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Avaliação em paralelo: o conjunto é dividido em fatias contíguas, uma por
+ * thread, e cada fatia corre o forward em blocos de {@link #CHUNK_ROWS}
+ * linhas ({@link InferenceSession#predictBatch}) com a sua própria sessão e
+ * os seus próprios buffers e resultado parcial, reutilizados entre
+ * chamadas, pelo que uma avaliação não aloca nada por amostra. Os resultados
+ * parciais são somados pela ordem das fatias, pelo que a loss é a mesma em
+ * todas as execuções com o mesmo número de threads.
+ */
+public class Evaluator implements AutoCloseable {
+    static final int CHUNK_ROWS = 32;
+    public static final int DEFAULT_TOP_K = 5;
+
+    private final ForkJoinPool pool;
+    private final Shard[] shards;
+
+    public Evaluator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public Evaluator(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Número de threads inválido: " + threads);
+        }
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        this.shards = new Shard[threads];
+        for (int s = 0; s < threads; s++) {
+            shards[s] = new Shard();
+        }
+    }
+
+    public EvaluationResult evaluate(Model model, SampleSource source) {
+        return evaluate(model, source, DEFAULT_TOP_K);
+    }
+
+    public EvaluationResult evaluate(Model model, SampleSource source, int topK) {
+        if (source.inputSize() != model.getInputSize()) {
+            throw new IllegalArgumentException("Amostras com " + source.inputSize()
+                    + " valores, o modelo espera " + model.getInputSize());
+        }
+        int samples = source.size();
+        int used = Math.max(1, Math.min(shards.length, (samples + CHUNK_ROWS - 1) / CHUNK_ROWS));
+        int shardSize = (samples + used - 1) / used;
+
+        EvaluationResult total = new EvaluationResult(model.getOutputSize(), topK);
+        if (used == 1 || pool == null) {
+            for (int s = 0; s < used; s++) {
+                total.merge(shards[s].run(model, source, s * shardSize, Math.min(samples, (s + 1) * shardSize), topK));
+            }
+            return total;
+        }
+
+        List<Callable<EvaluationResult>> tasks = new ArrayList<>(used);
+        for (int s = 0; s < used; s++) {
+            Shard shard = shards[s];
+            int from = Math.min(samples, s * shardSize);
+            int to = Math.min(samples, (s + 1) * shardSize);
+            tasks.add(() -> shard.run(model, source, from, to, topK));
+        }
+        for (Future<EvaluationResult> partial : pool.invokeAll(tasks)) {
+            total.merge(join(partial));
+        }
+        return total;
+    }
+
+    private static EvaluationResult join(Future<EvaluationResult> partial) {
+        try {
+            return partial.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Avaliação interrompida", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha num worker de avaliação: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    public int getThreads() {
+        return shards.length;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /** Estado de uma thread: sessão do último modelo visto, buffers de um bloco e resultado parcial. */
+    private static final class Shard {
+        private Model model;
+        private InferenceSession session;
+        private double[] inputs = new double[0];
+        private double[] outputs = new double[0];
+        private EvaluationResult result;
+        private int resultTopK;
+
+        EvaluationResult run(Model current, SampleSource source, int from, int to, int topK) {
+            if (current != model) {
+                model = current;
+                session = current.newSession();
+            }
+            int inputSize = current.getInputSize();
+            int outputSize = current.getOutputSize();
+            if (inputs.length < CHUNK_ROWS * inputSize) {
+                inputs = new double[CHUNK_ROWS * inputSize];
+            }
+            if (outputs.length < CHUNK_ROWS * outputSize) {
+                outputs = new double[CHUNK_ROWS * outputSize];
+            }
+
+            if (result == null || result.getClassCount() != outputSize || resultTopK != topK) {
+                result = new EvaluationResult(outputSize, topK);
+                resultTopK = topK;
+            } else {
+                result.reset();
+            }
+            for (int start = from; start < to; start += CHUNK_ROWS) {
+                int rows = Math.min(CHUNK_ROWS, to - start);
+                for (int r = 0; r < rows; r++) {
+                    source.copyInput(start + r, inputs, r * inputSize);
+                }
+                session.predictBatch(inputs, rows, outputs);
+                for (int r = 0; r < rows; r++) {
+                    result.add(source.label(start + r), outputs, r * outputSize);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Treino por mini-batch em float32. Mantém uma cópia float dos pesos de
+ * cada {@link Layer} e faz forward, backward e atualização inteiramente em
+ * float, com os kernels float de {@link MatrixKernels}; as entradas são
+ * normalizadas diretamente para float. As camadas (em double) só são
+ * atualizadas em {@link #copyWeightsTo}, no fim de cada época.
+ */
+public class Float32Trainer {
+    private static final Kernels KERNELS = KernelBackends.active();
+
+    private final List<Layer> layers;
+    private final int inputSize;
+    private final int outputSize;
+
+    private final float[][] weights;
+    private final float[][] biases;
+    private final float[][] weightGradients;
+    private final float[][] biasGradients;
+
+    private final float[] inputs;
+    private final float[][] activations;
+    private final float[][] deltas;
+    private final int[] labels;
+    private final TrainingMetrics metrics;
+
+    public Float32Trainer(List<Layer> layers, int batchSize) {
+        this(layers, batchSize, new TrainingMetrics());
+    }
+
+    public Float32Trainer(List<Layer> layers, int batchSize, TrainingMetrics metrics) {
+        this.layers = layers;
+        this.metrics = metrics;
+        this.inputSize = layers.get(0).getInputSize();
+        this.outputSize = layers.get(layers.size() - 1).getOutputSize();
+
+        int count = layers.size();
+        this.weights = new float[count][];
+        this.biases = new float[count][];
+        this.weightGradients = new float[count][];
+        this.biasGradients = new float[count][];
+        this.activations = new float[count][];
+        this.deltas = new float[count][];
+        for (int i = 0; i < count; i++) {
+            Layer layer = layers.get(i);
+            weights[i] = toFloat(layer.getWeights());
+            biases[i] = toFloat(layer.getBiases());
+            weightGradients[i] = new float[weights[i].length];
+            biasGradients[i] = new float[biases[i].length];
+            activations[i] = new float[batchSize * layer.getOutputSize()];
+            deltas[i] = new float[batchSize * layer.getOutputSize()];
+        }
+        this.inputs = new float[batchSize * inputSize];
+        this.labels = new int[batchSize];
+    }
+
+    /**
+     * Treina o mini-batch {@code order[start..start + rows)} e devolve a
+     * soma do loss (acumulada em double).
+     */
+    public double trainBatch(SampleSource source, int[] order, int start, int rows, double learningRate) {
+        long phaseStart = metrics.start();
+        for (int r = 0; r < rows; r++) {
+            int index = order[start + r];
+            source.copyInput(index, inputs, r * inputSize);
+            labels[r] = source.label(index);
+        }
+        metrics.record(TrainingMetrics.Phase.DATA, phaseStart);
+        phaseStart = metrics.start();
+
+        int lastLayer = layers.size() - 1;
+        float[] current = inputs;
+        for (int i = 0; i <= lastLayer; i++) {
+            Layer layer = layers.get(i);
+            float[] outputs = activations[i];
+            int size = layer.getOutputSize();
+            MatrixKernels.multiplyTransposed(current, rows, layer.getInputSize(), weights[i], size, outputs);
+            ActivationType activation = layer.getActivationType();
+            for (int r = 0; r < rows; r++) {
+                int row = r * size;
+                KERNELS.axpy(1f, biases[i], 0, outputs, row, size);
+                if (activation == ActivationType.RELU) {
+                    KERNELS.relu(outputs, row, size);
+                } else if (activation != ActivationType.LINEAR) {
+                    for (int k = row; k < row + size; k++) {
+                        outputs[k] = (float) activation.apply(outputs[k]);
+                    }
+                }
+            }
+            current = outputs;
+        }
+
+        double loss = 0.0;
+        float[] probabilities = activations[lastLayer];
+        float[] outputDeltas = deltas[lastLayer];
+        for (int r = 0; r < rows; r++) {
+            int offset = r * outputSize;
+            KERNELS.softmax(probabilities, offset, outputSize);
+            System.arraycopy(probabilities, offset, outputDeltas, offset, outputSize);
+            int label = labels[r];
+            if (label >= 0 && label < outputSize) {
+                outputDeltas[offset + label] -= 1f;
+                loss -= Math.log(probabilities[offset + label] + 1e-9);
+            }
+        }
+        metrics.record(TrainingMetrics.Phase.FORWARD, phaseStart);
+        phaseStart = metrics.start();
+
+        for (int i = lastLayer; i > 0; i--) {
+            Layer layer = layers.get(i);
+            MatrixKernels.multiply(deltas[i], rows, layer.getOutputSize(), weights[i], layer.getInputSize(), deltas[i - 1]);
+            applyActivationDerivative(layers.get(i - 1).getActivationType(), activations[i - 1], deltas[i - 1],
+                    rows * layer.getInputSize());
+        }
+        metrics.record(TrainingMetrics.Phase.BACKWARD, phaseStart);
+
+        float scale = (float) (learningRate / rows);
+        for (int i = 0; i <= lastLayer; i++) {
+            Layer layer = layers.get(i);
+            float[] layerInputs = i == 0 ? inputs : activations[i - 1];
+            phaseStart = metrics.start();
+            Arrays.fill(weightGradients[i], 0f);
+            Arrays.fill(biasGradients[i], 0f);
+            MatrixKernels.accumulateTransposedProduct(deltas[i], rows, layer.getOutputSize(), layerInputs,
+                    layer.getInputSize(), weightGradients[i]);
+            MatrixKernels.accumulateColumnSums(deltas[i], rows, layer.getOutputSize(), biasGradients[i]);
+            metrics.record(TrainingMetrics.Phase.GRADIENTS, phaseStart);
+
+            phaseStart = metrics.start();
+            KERNELS.axpy(-scale, weightGradients[i], 0, weights[i], 0, weights[i].length);
+            KERNELS.axpy(-scale, biasGradients[i], 0, biases[i], 0, biases[i].length);
+            metrics.record(TrainingMetrics.Phase.APPLY, phaseStart);
+        }
+        return loss;
+    }
+
+    /** Escreve os pesos float atuais nas camadas. */
+    public void copyWeightsTo(List<Layer> targetLayers) {
+        for (int i = 0; i < targetLayers.size(); i++) {
+            copy(weights[i], targetLayers.get(i).getWeights());
+            copy(biases[i], targetLayers.get(i).getBiases());
+        }
+    }
+
+    private static void applyActivationDerivative(ActivationType activation, float[] outputs, float[] deltas, int size) {
+        switch (activation) {
+            case RELU:
+                KERNELS.reluMask(outputs, deltas, 0, size);
+                break;
+            case SIGMOID:
+                for (int k = 0; k < size; k++) {
+                    deltas[k] *= outputs[k] * (1f - outputs[k]);
+                }
+                break;
+            case LINEAR:
+            default:
+                break;
+        }
+    }
+
+    static float[] toFloat(double[] values) {
+        float[] result = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (float) values[i];
+        }
+        return result;
+    }
+
+    private static void copy(float[] source, double[] target) {
+        for (int i = 0; i < source.length; i++) {
+            target[i] = source[i];
+        }
+    }
+}
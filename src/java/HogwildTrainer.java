@@ -0,0 +1,98 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Treino SGD assíncrono ao estilo Hogwild: as threads tiram amostras de
+ * um cursor partilhado sobre a permutação da época e escrevem as
+ * atualizações diretamente nos pesos das camadas, sem locks nem barreira
+ * entre batches. Cada amostra aplica {@code learningRate / batchSize}, o
+ * mesmo passo por amostra do treino síncrono. O resultado não é
+ * determinístico.
+ */
+public class HogwildTrainer implements AutoCloseable {
+    private final NeuralNetwork network;
+    private final List<Layer> layers;
+    private final ExecutorService executor;
+    private final BatchWorkspace[] workspaces;
+
+    public HogwildTrainer(NeuralNetwork network, List<Layer> layers, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Número de threads inválido: " + threads);
+        }
+        this.network = network;
+        this.layers = layers;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.workspaces = new BatchWorkspace[threads];
+        for (int w = 0; w < threads; w++) {
+            workspaces[w] = new BatchWorkspace(layers, 1);
+        }
+    }
+
+    /**
+     * Percorre uma época inteira e devolve a soma do loss de todas as
+     * amostras, agregada num {@link DoubleAdder} para não serializar as
+     * threads num único acumulador.
+     */
+    public double runEpoch(SampleSource source, int[] order, int epoch, double learningRate, int batchSize) {
+        AtomicInteger cursor = new AtomicInteger();
+        DoubleAdder totalLoss = new DoubleAdder();
+        double scale = learningRate / batchSize;
+        int samples = order.length;
+        int progressInterval = Math.max(1, samples / 20);
+        TrainingMetrics metrics = network.getMetrics();
+
+        List<Callable<Void>> tasks = new ArrayList<>(workspaces.length);
+        for (BatchWorkspace workspace : workspaces) {
+            tasks.add(() -> {
+                int index;
+                while ((index = cursor.getAndIncrement()) < samples) {
+                    long phaseStart = metrics.start();
+                    workspace.load(source, order, index, 1);
+                    metrics.record(TrainingMetrics.Phase.DATA, phaseStart);
+                    totalLoss.add(network.forwardBackward(workspace, 1));
+                    phaseStart = metrics.start();
+                    for (int i = 0; i < layers.size(); i++) {
+                        layers.get(i).applySparseUpdate(workspace.layerInputs(i), workspace.getDeltas(i), scale);
+                    }
+                    metrics.record(TrainingMetrics.Phase.APPLY, phaseStart);
+                    metrics.addSamples(1);
+
+                    int processed = index + 1;
+                    if (processed % progressInterval == 0) {
+                        System.out.println(String.format("   -> Época %d | Amostra %d/%d | Loss parcial: %.6f",
+                                epoch + 1, processed, samples, totalLoss.sum() / processed));
+                    }
+                }
+                return null;
+            });
+        }
+
+        try {
+            for (Future<Void> result : executor.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Treino assíncrono interrompido", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha num worker de treino: " + e.getCause().getMessage(), e.getCause());
+        }
+        return totalLoss.sum();
+    }
+
+    public int getThreads() {
+        return workspaces.length;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
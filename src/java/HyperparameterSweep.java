@@ -0,0 +1,337 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Treina várias configurações ({@link SweepConfig}) em simultâneo num pool
+ * de threads, cada uma com a sua {@link NeuralNetwork} numa só thread, e
+ * todas a ler as mesmas fontes de treino e de validação, que são só de
+ * leitura (o {@link MnistStore} mapeado é partilhado sem cópias).
+ *
+ * <p>As configurações são eliminadas por successive halving: na fase
+ * {@code k} todas as sobreviventes treinam até
+ * {@code maxEpochs / eta^(fases - k)} épocas e só a melhor fração
+ * {@code 1/eta}, pela accuracy de validação, passa à fase seguinte; as
+ * sobreviventes da última fase treinam as {@code maxEpochs} épocas. A
+ * validação corre no fim de cada época, o que dá o tempo de treino até à
+ * accuracy alvo de cada configuração (tempo real, com os núcleos
+ * partilhados pelas outras). Com seed todas as configurações usam a
+ * mesma seed nos pesos iniciais e no baralhamento.
+ */
+public class HyperparameterSweep implements AutoCloseable {
+    public static final int DEFAULT_ETA = 3;
+    public static final int DEFAULT_MAX_EPOCHS = 9;
+    public static final double DEFAULT_TARGET_ACCURACY = 97.0;
+
+    /** Melhor accuracy de validação primeiro; em empate, menor loss. */
+    private static final Comparator<Trial> BY_SCORE = Comparator
+            .comparingDouble((Trial trial) -> -trial.accuracy)
+            .thenComparingDouble(trial -> Double.isNaN(trial.loss) ? Double.MAX_VALUE : trial.loss);
+
+    private final SampleSource training;
+    private final SampleSource validation;
+    private final ExecutorService pool;
+    private final int threads;
+    private int eta = DEFAULT_ETA;
+    private int maxEpochs = DEFAULT_MAX_EPOCHS;
+    private double targetAccuracy = DEFAULT_TARGET_ACCURACY;
+    private LearningRateSchedule schedule = LearningRateSchedule.constant();
+    private boolean sparseInput;
+    private Long seed;
+
+    public HyperparameterSweep(SampleSource training, SampleSource validation, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Número de threads inválido: " + threads);
+        }
+        if (training.inputSize() != validation.inputSize()) {
+            throw new IllegalArgumentException("Treino e validação com tamanhos de entrada diferentes.");
+        }
+        this.training = training;
+        this.validation = validation;
+        this.threads = threads;
+        this.pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "sweep-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /** Fator de redução do successive halving: cada fase mantém {@code 1/eta} das configurações. */
+    public void setEta(int eta) {
+        if (eta < 2) {
+            throw new IllegalArgumentException("O fator de redução tem de ser pelo menos 2: " + eta);
+        }
+        this.eta = eta;
+    }
+
+    /** Épocas da configuração que chega à última fase. */
+    public void setMaxEpochs(int maxEpochs) {
+        if (maxEpochs <= 0) {
+            throw new IllegalArgumentException("Número de épocas inválido: " + maxEpochs);
+        }
+        this.maxEpochs = maxEpochs;
+    }
+
+    /** Accuracy de validação (em %) usada no tempo até ao alvo. */
+    public void setTargetAccuracy(double targetAccuracy) {
+        this.targetAccuracy = targetAccuracy;
+    }
+
+    public void setLearningRateSchedule(LearningRateSchedule schedule) {
+        this.schedule = schedule;
+    }
+
+    public void setSparseInput(boolean sparseInput) {
+        this.sparseInput = sparseInput;
+    }
+
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Corre o sweep e devolve todas as configurações ordenadas da melhor
+     * para a pior: primeiro as que chegaram mais longe, depois pela
+     * accuracy de validação.
+     */
+    public List<Trial> run(List<SweepConfig> configs) {
+        if (configs.isEmpty()) {
+            throw new IllegalArgumentException("O sweep precisa de pelo menos uma configuração.");
+        }
+        List<Trial> trials = new ArrayList<>(configs.size());
+        for (int i = 0; i < configs.size(); i++) {
+            trials.add(new Trial(i + 1, configs.get(i)));
+        }
+        // Uma fase por divisão por eta, enquanto houver mais de uma configuração e épocas para distribuir.
+        int rungs = 0;
+        long remaining = configs.size();
+        for (long budget = maxEpochs; remaining > 1 && budget >= eta; budget /= eta) {
+            remaining = (remaining + eta - 1) / eta;
+            rungs++;
+        }
+
+        long start = System.nanoTime();
+        List<Trial> alive = new ArrayList<>(trials);
+        for (int rung = 0; rung <= rungs; rung++) {
+            int epochs = rungEpochs(rung, rungs);
+            long rungStart = System.nanoTime();
+            runRung(alive, epochs);
+            alive.sort(BY_SCORE);
+            int keep = rung == rungs ? alive.size() : (alive.size() + eta - 1) / eta;
+            System.out.println(String.format("Fase %d: %d configurações até %d época(s) em %.1f s; %s",
+                    rung + 1, alive.size(), epochs, (System.nanoTime() - rungStart) / 1e9,
+                    rung == rungs ? "fim do sweep" : keep + " continuam"));
+            for (int i = 0; i < alive.size(); i++) {
+                Trial trial = alive.get(i);
+                trial.rung = rung + 1;
+                System.out.println(String.format(Locale.ROOT, "   %s [%d] %s | val %.2f%% | loss %.6f",
+                        i < keep ? "+" : "-", trial.id, trial.config, trial.accuracy, trial.loss));
+                if (i >= keep) {
+                    trial.release();
+                }
+            }
+            alive = new ArrayList<>(alive.subList(0, keep));
+        }
+        for (Trial trial : alive) {
+            trial.release();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long samples = 0;
+        for (Trial trial : trials) {
+            samples += (long) trial.epochs * training.size();
+        }
+        System.out.println(String.format("Sweep concluído em %.1f s: %d épocas no total, %.0f amostras/s com %d threads",
+                seconds, samples / training.size(), samples / seconds, threads));
+
+        trials.sort(Comparator.comparingInt((Trial trial) -> -trial.rung).thenComparing(BY_SCORE));
+        return trials;
+    }
+
+    /** Épocas da fase {@code rung}: {@code maxEpochs / eta^(rungs - rung)}, pelo menos 1. */
+    private int rungEpochs(int rung, int rungs) {
+        long divisor = 1;
+        for (int k = rung; k < rungs; k++) {
+            divisor *= eta;
+        }
+        return (int) Math.max(1, maxEpochs / divisor);
+    }
+
+    private void runRung(List<Trial> alive, int epochs) {
+        List<Callable<Void>> tasks = new ArrayList<>(alive.size());
+        for (Trial trial : alive) {
+            tasks.add(() -> {
+                trial.trainUntil(epochs);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> task : pool.invokeAll(tasks)) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sweep interrompido", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha a treinar uma configuração: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /** Escreve a tabela de resultados em CSV, pela ordem de {@code trials}. */
+    public static void writeResults(List<Trial> trials, Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write("rank,id,learning_rate,hidden,batch_size,optimizer,rung,epochs,val_accuracy,val_loss,"
+                    + "best_accuracy,time_to_target_s,epochs_to_target,train_s");
+            writer.newLine();
+            int rank = 1;
+            for (Trial trial : trials) {
+                SweepConfig config = trial.config;
+                writer.write(String.format(Locale.ROOT, "%d,%d,%s,%s,%d,%s,%d,%d,%.4f,%.6f,%.4f,%s,%s,%.3f",
+                        rank++, trial.id, config.getLearningRate(), config.hiddenString(), config.getBatchSize(),
+                        config.getOptimizerName(), trial.rung, trial.epochs, trial.accuracy, trial.loss,
+                        trial.bestAccuracy,
+                        trial.targetNanos < 0 ? "" : String.format(Locale.ROOT, "%.3f", trial.targetNanos / 1e9),
+                        trial.targetEpoch < 0 ? "" : String.valueOf(trial.targetEpoch),
+                        trial.trainNanos / 1e9));
+                writer.newLine();
+            }
+        }
+    }
+
+    /** Mostra a tabela de resultados na consola. */
+    public void printResults(List<Trial> trials) {
+        System.out.println(String.format("%-4s %-52s %5s %6s %9s %10s %12s %10s",
+                "#", "Configuração", "Fase", "Épocas", "Val acc", "Val loss",
+                String.format(Locale.ROOT, "Alvo %.4g%%", targetAccuracy), "Treino"));
+        int rank = 1;
+        for (Trial trial : trials) {
+            String target = trial.targetNanos < 0 ? "-"
+                    : String.format("%.1f s (%d)", trial.targetNanos / 1e9, trial.targetEpoch);
+            System.out.println(String.format("%-4d %-52s %5d %6d %8.2f%% %10.6f %12s %8.1f s",
+                    rank++, trial.config, trial.rung, trial.epochs, trial.accuracy, trial.loss, target,
+                    trial.trainNanos / 1e9));
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+
+    /** Estado e resultado de uma configuração do sweep. */
+    public final class Trial {
+        private final int id;
+        private final SweepConfig config;
+        private NeuralNetwork network;
+        private Evaluator evaluator;
+        private int epochs;
+        private int rung;
+        private double accuracy;
+        private double loss = Double.NaN;
+        private double bestAccuracy;
+        private long trainNanos;
+        private long targetNanos = -1;
+        private int targetEpoch = -1;
+        private boolean diverged;
+
+        private Trial(int id, SweepConfig config) {
+            this.id = id;
+            this.config = config;
+        }
+
+        /** Treina e valida época a época até {@code totalEpochs}; pára se o loss deixar de ser finito. */
+        private void trainUntil(int totalEpochs) {
+            if (network == null && !diverged) {
+                Random random = seed != null ? new Random(seed) : new Random();
+                network = new NeuralNetwork(Main.buildLayers(config.getHiddenSizes(), random), config.getBatchSize());
+                network.setOptimizer(config.newOptimizer());
+                network.setLearningRateSchedule(schedule);
+                network.setSparseInput(sparseInput);
+                if (seed != null) {
+                    network.setSeed(seed);
+                }
+                evaluator = new Evaluator(1);
+            }
+            while (epochs < totalEpochs && !diverged) {
+                long start = System.nanoTime();
+                double trainLoss = network.trainEpoch(training, config.getLearningRate(), epochs);
+                trainNanos += System.nanoTime() - start;
+                epochs++;
+                if (!Double.isFinite(trainLoss)) {
+                    diverged = true;
+                    accuracy = 0.0;
+                    loss = Double.NaN;
+                    release();
+                    return;
+                }
+                EvaluationResult result = evaluator.evaluate(network.toModel(), validation);
+                accuracy = result.getAccuracy();
+                loss = result.getAverageLoss();
+                bestAccuracy = Math.max(bestAccuracy, accuracy);
+                if (targetNanos < 0 && accuracy >= targetAccuracy) {
+                    targetNanos = trainNanos;
+                    targetEpoch = epochs;
+                }
+            }
+        }
+
+        /** Liberta a rede quando a configuração sai do sweep. */
+        private void release() {
+            network = null;
+            if (evaluator != null) {
+                evaluator.close();
+                evaluator = null;
+            }
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public SweepConfig getConfig() {
+            return config;
+        }
+
+        public int getEpochs() {
+            return epochs;
+        }
+
+        /** Última fase (a partir de 1) em que a configuração participou. */
+        public int getRung() {
+            return rung;
+        }
+
+        public double getAccuracy() {
+            return accuracy;
+        }
+
+        public double getLoss() {
+            return loss;
+        }
+
+        /** Tempo de treino até à accuracy alvo, em nanossegundos, ou -1 se não chegou lá. */
+        public long getTargetNanos() {
+            return targetNanos;
+        }
+
+        public long getTrainNanos() {
+            return trainNanos;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/**
+ * Contexto de inferência de uma thread sobre um {@link Model} partilhado.
+ * Os buffers de ativação são alocados uma vez na construção; as chamadas
+ * de predição não alocam memória. Uma sessão não deve ser usada por duas
+ * threads ao mesmo tempo. Num modelo {@link Precision#FLOAT32} a entrada é
+ * convertida para float e todas as camadas são calculadas em float.
+ */
+public final class InferenceSession {
+    private static final Kernels KERNELS = KernelBackends.active();
+
+    private final Model model;
+    private final double[][] activations;
+    private final float[] floatInput;
+    private final float[][] floatActivations;
+    private int batchCapacity;
+    private double[][] batchActivations;
+    private float[] floatBatchInputs;
+    private float[][] floatBatchActivations;
+
+    InferenceSession(Model model) {
+        this.model = model;
+        this.activations = new double[model.getLayerCount()][];
+        for (int i = 0; i < activations.length; i++) {
+            activations[i] = new double[model.getOutputSize(i)];
+        }
+        if (model.getPrecision() == Precision.FLOAT32) {
+            this.floatInput = new float[model.getInputSize()];
+            this.floatActivations = new float[model.getLayerCount()][];
+            for (int i = 0; i < floatActivations.length; i++) {
+                floatActivations[i] = new float[model.getOutputSize(i)];
+            }
+        } else {
+            this.floatInput = null;
+            this.floatActivations = null;
+        }
+    }
+
+    /**
+     * Escreve em {@code output} as probabilidades (ou os logits, se o modelo
+     * não tiver softmax) para a entrada {@code input}.
+     */
+    public void predictInto(double[] input, double[] output) {
+        double[] last = forward(input);
+        System.arraycopy(last, 0, output, 0, last.length);
+    }
+
+    /** Classe mais provável para {@code input}. */
+    public int argmax(double[] input) {
+        return indexOfMax(forward(input));
+    }
+
+    /**
+     * Forward de {@code rows} entradas de uma vez: {@code inputs} é
+     * {@code [rows x inputSize]} row-major e {@code outputs} recebe
+     * {@code [rows x outputSize]}. Usa os kernels por blocos de
+     * {@link MatrixKernels}, que reutilizam cada fatia de pesos em todas as
+     * linhas; os buffers crescem até ao maior batch visto e depois são
+     * reutilizados.
+     */
+    public void predictBatch(double[] inputs, int rows, double[] outputs) {
+        if (rows == 1) {
+            // Com uma linha o produto interno por neurónio é mais rápido do que o GEMM por blocos.
+            predictInto(inputs, outputs);
+            return;
+        }
+        ensureBatchCapacity(rows);
+        int outputSize = model.getOutputSize();
+        if (floatBatchActivations != null) {
+            int inputSize = model.getInputSize();
+            for (int j = 0; j < rows * inputSize; j++) {
+                floatBatchInputs[j] = (float) inputs[j];
+            }
+            float[] current = floatBatchInputs;
+            for (int l = 0; l < floatBatchActivations.length; l++) {
+                int size = model.getOutputSize(l);
+                float[] layerOutputs = floatBatchActivations[l];
+                MatrixKernels.multiplyTransposed(current, rows, model.getInputSize(l), model.floatWeights(l), size,
+                        layerOutputs);
+                ActivationType activation = model.getActivationType(l);
+                for (int r = 0; r < rows; r++) {
+                    int row = r * size;
+                    KERNELS.axpy(1f, model.floatBiases(l), 0, layerOutputs, row, size);
+                    if (activation == ActivationType.RELU) {
+                        KERNELS.relu(layerOutputs, row, size);
+                    } else if (activation != ActivationType.LINEAR) {
+                        for (int k = row; k < row + size; k++) {
+                            layerOutputs[k] = (float) activation.apply(layerOutputs[k]);
+                        }
+                    }
+                }
+                current = layerOutputs;
+            }
+            for (int k = 0; k < rows * outputSize; k++) {
+                outputs[k] = current[k];
+            }
+        } else {
+            double[] current = inputs;
+            for (int l = 0; l < batchActivations.length; l++) {
+                int size = model.getOutputSize(l);
+                double[] layerOutputs = l == batchActivations.length - 1 ? outputs : batchActivations[l];
+                MatrixKernels.multiplyTransposed(current, rows, model.getInputSize(l), model.weights(l), size,
+                        layerOutputs);
+                ActivationType activation = model.getActivationType(l);
+                for (int r = 0; r < rows; r++) {
+                    int row = r * size;
+                    KERNELS.axpy(1.0, model.biases(l), 0, layerOutputs, row, size);
+                    if (activation == ActivationType.RELU) {
+                        KERNELS.relu(layerOutputs, row, size);
+                    } else if (activation != ActivationType.LINEAR) {
+                        for (int k = row; k < row + size; k++) {
+                            layerOutputs[k] = activation.apply(layerOutputs[k]);
+                        }
+                    }
+                }
+                current = layerOutputs;
+            }
+        }
+        if (model.hasSoftmaxOutput()) {
+            for (int r = 0; r < rows; r++) {
+                KERNELS.softmax(outputs, r * outputSize, outputSize);
+            }
+        }
+    }
+
+    private void ensureBatchCapacity(int rows) {
+        if (rows <= batchCapacity) {
+            return;
+        }
+        int count = model.getLayerCount();
+        if (floatActivations != null) {
+            floatBatchInputs = new float[rows * model.getInputSize()];
+            floatBatchActivations = new float[count][];
+            for (int l = 0; l < count; l++) {
+                floatBatchActivations[l] = new float[rows * model.getOutputSize(l)];
+            }
+        } else {
+            // A última camada escreve diretamente no array de saída.
+            batchActivations = new double[count][];
+            for (int l = 0; l < count - 1; l++) {
+                batchActivations[l] = new double[rows * model.getOutputSize(l)];
+            }
+        }
+        batchCapacity = rows;
+    }
+
+    public static int indexOfMax(double[] values) {
+        int index = 0;
+        double best = values[0];
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > best) {
+                best = values[i];
+                index = i;
+            }
+        }
+        return index;
+    }
+
+    private double[] forward(double[] input) {
+        if (floatActivations != null) {
+            return forwardFloat(input);
+        }
+        double[] current = input;
+        for (int l = 0; l < activations.length; l++) {
+            double[] weights = model.weights(l);
+            double[] biases = model.biases(l);
+            double[] outputs = activations[l];
+            ActivationType activation = model.getActivationType(l);
+            int inputSize = model.getInputSize(l);
+            for (int i = 0; i < outputs.length; i++) {
+                outputs[i] = activation.apply(biases[i] + KERNELS.dot(weights, i * inputSize, current, 0, inputSize));
+            }
+            current = outputs;
+        }
+        if (model.hasSoftmaxOutput()) {
+            KERNELS.softmax(current, 0, current.length);
+        }
+        return current;
+    }
+
+    private double[] forwardFloat(double[] input) {
+        for (int j = 0; j < floatInput.length; j++) {
+            floatInput[j] = (float) input[j];
+        }
+        float[] current = floatInput;
+        for (int l = 0; l < floatActivations.length; l++) {
+            float[] weights = model.floatWeights(l);
+            float[] biases = model.floatBiases(l);
+            float[] outputs = floatActivations[l];
+            ActivationType activation = model.getActivationType(l);
+            int inputSize = model.getInputSize(l);
+            for (int i = 0; i < outputs.length; i++) {
+                outputs[i] = (float) activation.apply(biases[i] + KERNELS.dot(weights, i * inputSize, current, 0, inputSize));
+            }
+            current = outputs;
+        }
+
+        double[] result = activations[activations.length - 1];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = current[i];
+        }
+        if (model.hasSoftmaxOutput()) {
+            KERNELS.softmax(result, 0, result.length);
+        }
+        return result;
+    }
+
+    public Model getModel() {
+        return model;
+    }
+}
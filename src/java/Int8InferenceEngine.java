@@ -0,0 +1,74 @@
+/**
+ * Inferência de uma thread sobre um {@link QuantizedModel}. Em cada camada
+ * a entrada é quantizada para int8 com a escala calibrada, o produto com
+ * os pesos int8 é acumulado em int32 e o resultado é desquantizado com
+ * {@code escala da linha × escala da entrada} antes do bias e da ativação.
+ * Os buffers são alocados na construção; as predições não alocam memória.
+ */
+public final class Int8InferenceEngine {
+    private static final Kernels KERNELS = KernelBackends.active();
+
+    private final QuantizedModel model;
+    private final byte[][] quantizedInputs;
+    private final float[][] dequantScales;
+    private final double[][] activations;
+
+    Int8InferenceEngine(QuantizedModel model) {
+        this.model = model;
+        int count = model.getLayerCount();
+        this.quantizedInputs = new byte[count][];
+        this.dequantScales = new float[count][];
+        this.activations = new double[count][];
+        for (int l = 0; l < count; l++) {
+            quantizedInputs[l] = new byte[model.getInputSize(l)];
+            activations[l] = new double[model.getOutputSize(l)];
+            float[] rowScales = model.rowScales(l);
+            dequantScales[l] = new float[rowScales.length];
+            for (int i = 0; i < rowScales.length; i++) {
+                dequantScales[l][i] = rowScales[i] * model.inputScale(l);
+            }
+        }
+    }
+
+    /** Escreve em {@code output} as probabilidades (ou os logits) para {@code input}. */
+    public void predictInto(double[] input, double[] output) {
+        double[] last = forward(input);
+        System.arraycopy(last, 0, output, 0, last.length);
+    }
+
+    /** Classe mais provável para {@code input}. */
+    public int argmax(double[] input) {
+        return InferenceSession.indexOfMax(forward(input));
+    }
+
+    private double[] forward(double[] input) {
+        double[] current = input;
+        for (int l = 0; l < activations.length; l++) {
+            byte[] quantized = quantizedInputs[l];
+            float scale = model.inputScale(l);
+            for (int j = 0; j < quantized.length; j++) {
+                quantized[j] = QuantizedModel.quantize(current[j], scale);
+            }
+
+            byte[] weights = model.weights(l);
+            float[] biases = model.biases(l);
+            float[] scales = dequantScales[l];
+            double[] outputs = activations[l];
+            ActivationType activation = model.getActivationType(l);
+            int inputSize = quantized.length;
+            for (int i = 0; i < outputs.length; i++) {
+                int accumulator = KERNELS.dot(weights, i * inputSize, quantized, 0, inputSize);
+                outputs[i] = activation.apply(accumulator * scales[i] + biases[i]);
+            }
+            current = outputs;
+        }
+        if (model.hasSoftmaxOutput()) {
+            KERNELS.softmax(current, 0, current.length);
+        }
+        return current;
+    }
+
+    public QuantizedModel getModel() {
+        return model;
+    }
+}
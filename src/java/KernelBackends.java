@@ -0,0 +1,210 @@
+import java.util.Random;
+
+/**
+ * Escolhe no arranque a implementação de {@link Kernels} usada por toda a
+ * rede. A versão SIMD ({@code VectorKernels}) é usada quando a JVM foi
+ * iniciada com {@code --add-modules jdk.incubator.vector} e a classe está
+ * no classpath; caso contrário, ou se falhar a verificação contra
+ * {@link ScalarKernels}, usa-se a versão escalar. A propriedade
+ * {@code -Dnn.kernels=scalar} força a versão escalar.
+ */
+public final class KernelBackends {
+
+    private static final String VECTOR_CLASS = "VectorKernels";
+    private static final double DOUBLE_TOLERANCE = 1e-9;
+    private static final double FLOAT_TOLERANCE = 1e-4;
+
+    private static final Kernels ACTIVE = select();
+
+    private KernelBackends() {
+    }
+
+    public static Kernels active() {
+        return ACTIVE;
+    }
+
+    /**
+     * Instância SIMD, ou {@code null} se o módulo ou a classe não estiverem
+     * disponíveis. Se estiverem e mesmo assim a classe não carregar (por
+     * exemplo uma espécie de vetor inválida neste processador), o motivo é
+     * escrito em stderr.
+     */
+    public static Kernels vectorOrNull() {
+        try {
+            return (Kernels) Class.forName(VECTOR_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            if (!(e instanceof ClassNotFoundException) && vectorModulePresent()) {
+                Throwable cause = e instanceof ExceptionInInitializerError && e.getCause() != null ? e.getCause() : e;
+                System.err.println("Kernels SIMD indisponíveis, a usar os escalares: " + cause);
+            }
+            return null;
+        }
+    }
+
+    /** {@code true} se a JVM foi iniciada com {@code --add-modules jdk.incubator.vector}. */
+    public static boolean vectorModulePresent() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    private static Kernels select() {
+        Kernels scalar = new ScalarKernels();
+        if ("scalar".equalsIgnoreCase(System.getProperty("nn.kernels"))) {
+            return scalar;
+        }
+        Kernels vector = vectorOrNull();
+        if (vector == null) {
+            return scalar;
+        }
+        String mismatch = verify(vector, scalar);
+        if (mismatch != null) {
+            System.err.println("Kernels SIMD desativados: " + mismatch);
+            return scalar;
+        }
+        return vector;
+    }
+
+    /**
+     * Compara {@code candidate} com {@code reference} em vetores aleatórios
+     * de vários comprimentos (incluindo restos que não enchem um registo) e
+     * devolve a primeira divergência, ou {@code null} se coincidirem dentro
+     * da tolerância.
+     */
+    public static String verify(Kernels candidate, Kernels reference) {
+        return verify(candidate, reference, 42);
+    }
+
+    /** Igual a {@link #verify(Kernels, Kernels)} com dados gerados a partir de {@code seed}. */
+    public static String verify(Kernels candidate, Kernels reference, long seed) {
+        Random random = new Random(seed);
+        int[] lengths = {0, 1, 3, 7, 8, 15, 16, 17, 31, 64, 100, 784};
+        for (int length : lengths) {
+            int offset = random.nextInt(5);
+            double[] a = randomDoubles(random, offset + length);
+            double[] b = randomDoubles(random, offset + length);
+            float[] fa = toFloats(a);
+            float[] fb = toFloats(b);
+
+            if (!close(candidate.dot(a, offset, b, offset, length), reference.dot(a, offset, b, offset, length),
+                    DOUBLE_TOLERANCE)) {
+                return "dot(double[" + length + "])";
+            }
+            if (!close(candidate.dot(fa, offset, fb, offset, length), reference.dot(fa, offset, fb, offset, length),
+                    FLOAT_TOLERANCE)) {
+                return "dot(float[" + length + "])";
+            }
+
+            byte[] qa = randomBytes(random, offset + length);
+            byte[] qb = randomBytes(random, offset + length);
+            if (candidate.dot(qa, offset, qb, offset, length) != reference.dot(qa, offset, qb, offset, length)) {
+                return "dot(byte[" + length + "])";
+            }
+
+            double[] y1 = b.clone();
+            double[] y2 = b.clone();
+            candidate.axpy(0.37, a, offset, y1, offset, length);
+            reference.axpy(0.37, a, offset, y2, offset, length);
+            if (!close(y1, y2, DOUBLE_TOLERANCE)) {
+                return "axpy(double[" + length + "])";
+            }
+            float[] fy1 = fb.clone();
+            float[] fy2 = fb.clone();
+            candidate.axpy(0.37f, fa, offset, fy1, offset, length);
+            reference.axpy(0.37f, fa, offset, fy2, offset, length);
+            if (!close(fy1, fy2, FLOAT_TOLERANCE)) {
+                return "axpy(float[" + length + "])";
+            }
+
+            y1 = a.clone();
+            y2 = a.clone();
+            candidate.relu(y1, offset, length);
+            reference.relu(y2, offset, length);
+            if (!close(y1, y2, 0.0)) {
+                return "relu(double[" + length + "])";
+            }
+            fy1 = fa.clone();
+            fy2 = fa.clone();
+            candidate.relu(fy1, offset, length);
+            reference.relu(fy2, offset, length);
+            if (!close(fy1, fy2, 0.0)) {
+                return "relu(float[" + length + "])";
+            }
+
+            y1 = b.clone();
+            y2 = b.clone();
+            candidate.reluMask(a, y1, offset, length);
+            reference.reluMask(a, y2, offset, length);
+            if (!close(y1, y2, 0.0)) {
+                return "reluMask(double[" + length + "])";
+            }
+            fy1 = fb.clone();
+            fy2 = fb.clone();
+            candidate.reluMask(fa, fy1, offset, length);
+            reference.reluMask(fa, fy2, offset, length);
+            if (!close(fy1, fy2, 0.0)) {
+                return "reluMask(float[" + length + "])";
+            }
+
+            y1 = a.clone();
+            y2 = a.clone();
+            candidate.softmax(y1, offset, length);
+            reference.softmax(y2, offset, length);
+            if (!close(y1, y2, DOUBLE_TOLERANCE)) {
+                return "softmax(double[" + length + "])";
+            }
+            fy1 = fa.clone();
+            fy2 = fa.clone();
+            candidate.softmax(fy1, offset, length);
+            reference.softmax(fy2, offset, length);
+            if (!close(fy1, fy2, FLOAT_TOLERANCE)) {
+                return "softmax(float[" + length + "])";
+            }
+        }
+        return null;
+    }
+
+    private static double[] randomDoubles(Random random, int length) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = random.nextGaussian() * 4.0;
+        }
+        return values;
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] values = new byte[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = (byte) (random.nextInt(255) - 127);
+        }
+        return values;
+    }
+
+    private static float[] toFloats(double[] values) {
+        float[] result = new float[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (float) values[i];
+        }
+        return result;
+    }
+
+    private static boolean close(double a, double b, double tolerance) {
+        return Math.abs(a - b) <= tolerance * Math.max(1.0, Math.max(Math.abs(a), Math.abs(b)));
+    }
+
+    private static boolean close(double[] a, double[] b, double tolerance) {
+        for (int i = 0; i < a.length; i++) {
+            if (!close(a[i], b[i], tolerance)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean close(float[] a, float[] b, double tolerance) {
+        for (int i = 0; i < a.length; i++) {
+            if (!close(a[i], b[i], tolerance)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,38 @@
+/**
+ * Operações vetoriais elementares usadas nos ciclos internos da rede:
+ * produto interno (também em int8), {@code y += alpha·x}, ReLU, máscara da
+ * derivada da ReLU e softmax. Há uma implementação escalar ({@link ScalarKernels}) e uma
+ * SIMD sobre {@code jdk.incubator.vector}; {@link KernelBackends} escolhe
+ * uma no arranque.
+ */
+public interface Kernels {
+
+    String name();
+
+    double dot(double[] a, int aOffset, double[] b, int bOffset, int length);
+
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /** Produto interno de valores int8 com acumulação em int32. */
+    int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length);
+
+    /** {@code y[yOffset..] += alpha · x[xOffset..]}. */
+    void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length);
+
+    void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length);
+
+    /** {@code values[i] = max(0, values[i])}. */
+    void relu(double[] values, int offset, int length);
+
+    void relu(float[] values, int offset, int length);
+
+    /** Anula os deltas dos neurónios ReLU com saída {@code <= 0}. */
+    void reluMask(double[] outputs, double[] deltas, int offset, int length);
+
+    void reluMask(float[] outputs, float[] deltas, int offset, int length);
+
+    /** Softmax numericamente estável, no próprio array. */
+    void softmax(double[] values, int offset, int length);
+
+    void softmax(float[] values, int offset, int length);
+}
@@ -1,47 +1,374 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * Camada densa com os pesos guardados numa única matriz contígua
+ * {@code [outputSize x inputSize]} em ordem row-major, mais os vetores de
+ * bias, gradientes e estado do último forward/backward. Os ciclos internos
+ * usam o backend de {@link Kernels} escolhido no arranque.
+ */
 public class Layer {
-    private final ArrayList<Neuron> neurons;
+    private static final Kernels KERNELS = KernelBackends.active();
+
+    private final int inputSize;
+    private final int outputSize;
     private final ActivationType activationType;
 
+    private final double[] weights;
+    private final double[] biases;
+    private final double[] weightGradients;
+    private final double[] biasGradients;
+
+    private final double[] netInputs;
+    private final double[] outputs;
+    private final double[] deltas;
+
+    private final List<Neuron> neurons;
+
+    private Optimizer optimizer = new SgdOptimizer();
+    private double[][] weightState = new double[0][];
+    private double[][] biasState = new double[0][];
+    private long optimizerSteps;
+    private final double[] optimizerStepState = new double[1];
+
     public Layer(int numNeurons, int inputSize, ActivationType activationType) {
+        this(numNeurons, inputSize, activationType, ThreadLocalRandom.current());
+    }
+
+    public Layer(int numNeurons, int inputSize, ActivationType activationType, Random random) {
+        this.inputSize = inputSize;
+        this.outputSize = numNeurons;
         this.activationType = activationType;
-        neurons = new ArrayList<>();
+
+        this.weights = new double[numNeurons * inputSize];
+        this.biases = new double[numNeurons];
+        this.weightGradients = new double[numNeurons * inputSize];
+        this.biasGradients = new double[numNeurons];
+        this.netInputs = new double[numNeurons];
+        this.outputs = new double[numNeurons];
+        this.deltas = new double[numNeurons];
+
+        double initRange = activationType == ActivationType.RELU ? Math.sqrt(2.0 / inputSize) : Math.sqrt(1.0 / inputSize);
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = (random.nextDouble() * 2.0 - 1.0) * initRange;
+        }
+
+        ArrayList<Neuron> views = new ArrayList<>(numNeurons);
         for (int i = 0; i < numNeurons; i++) {
-            neurons.add(new Neuron(inputSize, activationType));
+            views.add(new Neuron(this, i));
         }
+        this.neurons = Collections.unmodifiableList(views);
     }
 
+    /**
+     * Produto matriz-vetor {@code W·x + b} seguido da ativação. O array
+     * devolvido pertence à camada e é reutilizado na chamada seguinte.
+     */
     public double[] forward(double[] inputs) {
-        double[] outputs = new double[neurons.size()];
-        for (int i = 0; i < neurons.size(); i++) {
-            outputs[i] = neurons.get(i).activate(inputs);
+        for (int i = 0; i < outputSize; i++) {
+            double sum = biases[i] + KERNELS.dot(weights, i * inputSize, inputs, 0, inputSize);
+            netInputs[i] = sum;
+            outputs[i] = activate(sum);
         }
         return outputs;
     }
 
+    /**
+     * Produto transposto {@code Wᵀ·δ}: escreve em {@code previousDeltas} a
+     * soma ponderada dos deltas desta camada para cada uma das suas entradas.
+     * Percorre a matriz por linhas para manter o acesso sequencial.
+     */
+    public void propagateDeltas(double[] previousDeltas) {
+        for (int j = 0; j < inputSize; j++) {
+            previousDeltas[j] = 0.0;
+        }
+        for (int i = 0; i < outputSize; i++) {
+            double delta = deltas[i];
+            if (delta == 0.0) {
+                continue;
+            }
+            KERNELS.axpy(delta, weights, i * inputSize, previousDeltas, 0, inputSize);
+        }
+    }
+
+    /**
+     * Multiplica os deltas (já preenchidos com o erro propagado) pela
+     * derivada da ativação de cada neurónio.
+     */
+    public void applyActivationDerivative() {
+        for (int i = 0; i < outputSize; i++) {
+            deltas[i] *= activationDerivative(i);
+        }
+    }
+
+    /**
+     * Forward de um bloco {@code [rows x inputSize]} de entradas, escrevendo
+     * as ativações {@code [rows x outputSize]} em {@code outputs}.
+     */
+    public void forwardBatch(double[] inputs, int rows, double[] outputs) {
+        MatrixKernels.multiplyTransposed(inputs, rows, inputSize, weights, outputSize, outputs);
+        for (int r = 0; r < rows; r++) {
+            int row = r * outputSize;
+            KERNELS.axpy(1.0, biases, 0, outputs, row, outputSize);
+            if (activationType == ActivationType.RELU) {
+                KERNELS.relu(outputs, row, outputSize);
+            } else if (activationType != ActivationType.LINEAR) {
+                for (int i = row; i < row + outputSize; i++) {
+                    outputs[i] = activate(outputs[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Versão em bloco de {@link #propagateDeltas(double[])}: {@code previousDeltas = deltas · W}.
+     */
+    public void propagateDeltasBatch(double[] deltas, int rows, double[] previousDeltas) {
+        MatrixKernels.multiply(deltas, rows, outputSize, weights, inputSize, previousDeltas);
+    }
+
+    /**
+     * Versão de {@link #propagateDeltasBatch(double[], int, double[])} para
+     * quando a camada anterior é ReLU: só calcula os deltas das unidades
+     * ativas dela ({@code previousActive}) e deixa os restantes a zero, o
+     * que já é o resultado de {@link #applyActivationDerivativeBatch}. Com
+     * {@code active} não nulo só lê os deltas das unidades ativas desta
+     * camada.
+     */
+    void propagateDeltasBatch(double[] deltas, int rows, double[] previousDeltas, ActiveUnits active,
+                              ActiveUnits previousActive) {
+        MatrixKernels.multiply(deltas, rows, outputSize, active == null ? null : active.rowStarts(),
+                active == null ? null : active.rowUnits(), weights, inputSize,
+                previousActive.rowStarts(), previousActive.rowUnits(), previousDeltas);
+    }
+
+    /**
+     * Multiplica um bloco de deltas pela derivada da ativação, calculada a
+     * partir das saídas guardadas pelo {@link #forwardBatch}.
+     */
+    public void applyActivationDerivativeBatch(double[] outputs, double[] deltas, int rows) {
+        int size = rows * outputSize;
+        if (activationType == ActivationType.RELU) {
+            KERNELS.reluMask(outputs, deltas, 0, size);
+            return;
+        }
+        for (int k = 0; k < size; k++) {
+            deltas[k] *= derivativeFromOutput(outputs[k]);
+        }
+    }
+
+    /**
+     * Soma ao gradiente os produtos externos delta × input de todas as
+     * amostras do bloco.
+     */
+    public void accumulateGradientsBatch(double[] inputs, double[] deltas, int rows) {
+        accumulateGradientsBatch(inputs, deltas, rows, weightGradients, biasGradients);
+    }
+
+    /**
+     * Igual a {@link #accumulateGradientsBatch(double[], double[], int)} mas
+     * acumulando em buffers externos, por exemplo os de um worker.
+     */
+    public void accumulateGradientsBatch(double[] inputs, double[] deltas, int rows,
+                                         double[] weightGradients, double[] biasGradients) {
+        MatrixKernels.accumulateTransposedProduct(deltas, rows, outputSize, inputs, inputSize, weightGradients);
+        MatrixKernels.accumulateColumnSums(deltas, rows, outputSize, biasGradients);
+    }
+
+    /**
+     * Versão de {@link #accumulateGradientsBatch(double[], double[], int, double[], double[])}
+     * em que cada linha de pesos só soma as amostras em que a unidade esteve
+     * ativa; as linhas das unidades inativas em todo o batch ficam intactas.
+     */
+    void accumulateGradientsBatch(double[] inputs, double[] deltas, int rows, double[] weightGradients,
+                                  double[] biasGradients, ActiveUnits active) {
+        MatrixKernels.accumulateTransposedProduct(deltas, outputSize, active.unitStarts(), active.unitRows(), inputs,
+                inputSize, weightGradients);
+        MatrixKernels.accumulateColumnSums(deltas, rows, outputSize, biasGradients);
+    }
+
     public void accumulateGradients(double[] inputs) {
-        for (Neuron neuron : neurons) {
-            neuron.accumulateGradients(inputs);
+        for (int i = 0; i < outputSize; i++) {
+            // Unidades ReLU inativas têm delta nulo: a linha de gradiente não muda.
+            if (deltas[i] != 0.0) {
+                accumulateRowGradients(i, inputs);
+            }
         }
     }
 
     public void applyGradients(double learningRate, int batchSize) {
-        for (Neuron neuron : neurons) {
-            neuron.applyGradients(learningRate, batchSize);
+        applyGradients(weightGradients, biasGradients, learningRate, batchSize);
+        resetGradients();
+    }
+
+    /**
+     * Passo do {@link Optimizer} com gradientes somados fora da camada. Os
+     * buffers não são limpos; isso fica a cargo de quem os acumulou.
+     */
+    public void applyGradients(double[] weightGradients, double[] biasGradients, double learningRate, int batchSize) {
+        optimizerSteps++;
+        optimizer.update(weights, weightGradients, weightState, learningRate, batchSize, optimizerSteps);
+        optimizer.update(biases, biasGradients, biasState, learningRate, batchSize, optimizerSteps);
+    }
+
+    /** Troca o otimizador e recomeça o seu estado a zero. */
+    public void setOptimizer(Optimizer optimizer) {
+        this.optimizer = optimizer;
+        this.weightState = new double[optimizer.stateArrays()][weights.length];
+        this.biasState = new double[optimizer.stateArrays()][outputSize];
+        this.optimizerSteps = 0;
+    }
+
+    public Optimizer getOptimizer() {
+        return optimizer;
+    }
+
+    /**
+     * Número de arrays devolvidos por {@link #copyOptimizerState}: os de
+     * estado dos pesos, os dos biases e um com o número de passos.
+     */
+    int optimizerStateArrays() {
+        return 2 * optimizer.stateArrays() + 1;
+    }
+
+    /**
+     * Escreve em {@code destination[offset..]} referências para o estado do
+     * otimizador (sem cópia), mais um array com o número de passos.
+     */
+    void copyOptimizerState(double[][] destination, int offset) {
+        for (int s = 0; s < weightState.length; s++) {
+            destination[offset++] = weightState[s];
+        }
+        for (int s = 0; s < biasState.length; s++) {
+            destination[offset++] = biasState[s];
+        }
+        optimizerStepState[0] = optimizerSteps;
+        destination[offset] = optimizerStepState;
+    }
+
+    /** Inverso de {@link #copyOptimizerState}: copia o estado guardado num checkpoint. */
+    void restoreOptimizerState(double[][] source, int offset) {
+        for (double[] state : weightState) {
+            copyState(source[offset++], state);
+        }
+        for (double[] state : biasState) {
+            copyState(source[offset++], state);
+        }
+        if (source[offset].length != 1) {
+            throw new IllegalStateException("Estado do otimizador inválido no checkpoint.");
+        }
+        optimizerSteps = (long) source[offset][0];
+    }
+
+    private static void copyState(double[] source, double[] destination) {
+        if (source.length != destination.length) {
+            throw new IllegalStateException("Estado do otimizador com " + source.length + " valores, esperado "
+                    + destination.length + ".");
+        }
+        System.arraycopy(source, 0, destination, 0, source.length);
+    }
+
+    /**
+     * Atualização SGD direta de uma amostra, sem buffers de gradiente nem
+     * sincronização: só as linhas com delta não nulo são escritas. Usada
+     * pelo treino assíncrono, onde várias threads atualizam os mesmos
+     * pesos em simultâneo.
+     */
+    public void applySparseUpdate(double[] inputs, double[] deltas, double scale) {
+        for (int i = 0; i < outputSize; i++) {
+            double delta = deltas[i];
+            if (delta == 0.0) {
+                continue;
+            }
+            double step = scale * delta;
+            KERNELS.axpy(-step, inputs, 0, weights, i * inputSize, inputSize);
+            biases[i] -= step;
         }
     }
 
     public void resetGradients() {
-        for (Neuron neuron : neurons) {
-            neuron.resetGradients();
+        Arrays.fill(weightGradients, 0.0);
+        Arrays.fill(biasGradients, 0.0);
+    }
+
+    double netInput(int neuron, double[] inputs) {
+        double sum = biases[neuron] + KERNELS.dot(weights, neuron * inputSize, inputs, 0, inputSize);
+        netInputs[neuron] = sum;
+        return sum;
+    }
+
+    double activateNeuron(int neuron, double[] inputs) {
+        outputs[neuron] = activate(netInput(neuron, inputs));
+        return outputs[neuron];
+    }
+
+    void accumulateRowGradients(int neuron, double[] inputs) {
+        double delta = deltas[neuron];
+        KERNELS.axpy(delta, inputs, 0, weightGradients, neuron * inputSize, inputSize);
+        biasGradients[neuron] += delta;
+    }
+
+    double activationDerivative(int neuron) {
+        switch (activationType) {
+            case RELU:
+                return netInputs[neuron] > 0 ? 1.0 : 0.0;
+            case SIGMOID:
+                return outputs[neuron] * (1.0 - outputs[neuron]);
+            case LINEAR:
+            default:
+                return 1.0;
+        }
+    }
+
+    private double derivativeFromOutput(double output) {
+        switch (activationType) {
+            case RELU:
+                return output > 0 ? 1.0 : 0.0;
+            case SIGMOID:
+                return output * (1.0 - output);
+            case LINEAR:
+            default:
+                return 1.0;
         }
     }
 
-    public ArrayList<Neuron> getNeurons() {
+    private double activate(double z) {
+        return activationType.apply(z);
+    }
+
+    public List<Neuron> getNeurons() {
         return neurons;
     }
 
+    /** Matriz de pesos row-major {@code [outputSize x inputSize]} (sem cópia). */
+    public double[] getWeights() {
+        return weights;
+    }
+
+    public double[] getBiases() {
+        return biases;
+    }
+
+    public double[] getOutputs() {
+        return outputs;
+    }
+
+    public double[] getDeltas() {
+        return deltas;
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public int getOutputSize() {
+        return outputSize;
+    }
+
     public ActivationType getActivationType() {
         return activationType;
     }
@@ -0,0 +1,122 @@
+/**
+ * Learning rate de cada época a partir da taxa base: aquecimento linear
+ * opcional seguido de taxa constante, decaimento em degraus ou cosseno. A
+ * taxa depende só do número da época, pelo que um treino retomado de um
+ * checkpoint segue a mesma curva.
+ *
+ * <pre>
+ * constant          taxa base
+ * step:N[:F]        multiplica por F (0.5) a cada N épocas
+ * cosine:N[:MIN]    desce da base até MIN × base (0) em N épocas e fica aí
+ * </pre>
+ */
+public final class LearningRateSchedule {
+
+    private enum Kind { CONSTANT, STEP, COSINE }
+
+    private final Kind kind;
+    private final int epochs;
+    private final double factor;
+    private final int warmupEpochs;
+
+    private LearningRateSchedule(Kind kind, int epochs, double factor, int warmupEpochs) {
+        if (warmupEpochs < 0) {
+            throw new IllegalArgumentException("Épocas de aquecimento inválidas: " + warmupEpochs);
+        }
+        this.kind = kind;
+        this.epochs = epochs;
+        this.factor = factor;
+        this.warmupEpochs = warmupEpochs;
+    }
+
+    public static LearningRateSchedule constant() {
+        return new LearningRateSchedule(Kind.CONSTANT, 0, 1.0, 0);
+    }
+
+    public static LearningRateSchedule step(int everyEpochs, double factor) {
+        if (everyEpochs <= 0 || !(factor > 0.0 && factor <= 1.0)) {
+            throw new IllegalArgumentException("Degrau inválido: a cada " + everyEpochs + " épocas, fator " + factor);
+        }
+        return new LearningRateSchedule(Kind.STEP, everyEpochs, factor, 0);
+    }
+
+    public static LearningRateSchedule cosine(int epochs, double minFactor) {
+        if (epochs <= 0 || !(minFactor >= 0.0 && minFactor <= 1.0)) {
+            throw new IllegalArgumentException("Cosseno inválido: " + epochs + " épocas, mínimo " + minFactor);
+        }
+        return new LearningRateSchedule(Kind.COSINE, epochs, minFactor, 0);
+    }
+
+    /** Mesmo decaimento, precedido de {@code epochs} épocas de subida linear até à taxa base. */
+    public LearningRateSchedule withWarmup(int epochs) {
+        return new LearningRateSchedule(kind, this.epochs, factor, epochs);
+    }
+
+    public static LearningRateSchedule parse(String value) {
+        String[] parts = value.toLowerCase().split(":");
+        try {
+            switch (parts[0]) {
+                case "constant":
+                    if (parts.length == 1) {
+                        return constant();
+                    }
+                    break;
+                case "step":
+                    if (parts.length == 2 || parts.length == 3) {
+                        return step(Integer.parseInt(parts[1]), parts.length == 3 ? Double.parseDouble(parts[2]) : 0.5);
+                    }
+                    break;
+                case "cosine":
+                    if (parts.length == 2 || parts.length == 3) {
+                        return cosine(Integer.parseInt(parts[1]), parts.length == 3 ? Double.parseDouble(parts[2]) : 0.0);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            // Tratado abaixo com a mesma mensagem.
+        }
+        throw new IllegalArgumentException("Schedule desconhecido: " + value + " (use constant, step:N[:F] ou cosine:N[:MIN])");
+    }
+
+    /** Taxa da época {@code epoch} (a começar em 0). */
+    public double rate(double baseRate, int epoch) {
+        if (epoch < warmupEpochs) {
+            return baseRate * (epoch + 1) / (warmupEpochs + 1);
+        }
+        int decayEpoch = epoch - warmupEpochs;
+        switch (kind) {
+            case STEP:
+                return baseRate * Math.pow(factor, decayEpoch / epochs);
+            case COSINE:
+                double progress = Math.min(decayEpoch, epochs) / (double) epochs;
+                return baseRate * (factor + (1.0 - factor) * 0.5 * (1.0 + Math.cos(Math.PI * progress)));
+            case CONSTANT:
+            default:
+                return baseRate;
+        }
+    }
+
+    public boolean isConstant() {
+        return kind == Kind.CONSTANT && warmupEpochs == 0;
+    }
+
+    @Override
+    public String toString() {
+        String base;
+        switch (kind) {
+            case STEP:
+                base = "step:" + epochs + ":" + factor;
+                break;
+            case COSINE:
+                base = "cosine:" + epochs + ":" + factor;
+                break;
+            case CONSTANT:
+            default:
+                base = "constant";
+                break;
+        }
+        return warmupEpochs > 0 ? base + " (aquecimento " + warmupEpochs + " épocas)" : base;
+    }
+}
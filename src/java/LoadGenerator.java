@@ -0,0 +1,172 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gerador de carga local para o {@link PredictionServer}. Envia imagens do
+ * conjunto de teste a partir de N clientes concorrentes, cada um com um
+ * pedido de cada vez, e mede o throughput, a latência vista pelo cliente,
+ * o tamanho médio dos batches do servidor e a accuracy, para cada nível de
+ * concorrência.
+ *
+ * <pre>
+ * java -cp src/java LoadGenerator [--url U] [--concurrency 1,8,32,128] [--requests N] [--warmup N]
+ * </pre>
+ */
+public final class LoadGenerator {
+
+    private static final String DEFAULT_URL = "http://localhost:" + PredictionServer.DEFAULT_PORT;
+    private static final int DEFAULT_REQUESTS = 5000;
+    private static final int DEFAULT_WARMUP = 1000;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final URI predictUri;
+    private final String[] bodies;
+    private final int[] labels;
+
+    private LoadGenerator(String url, MnistStore images) {
+        this.predictUri = URI.create(url + "/predict");
+        this.bodies = new String[images.size()];
+        this.labels = new int[images.size()];
+        int pixels = images.inputSize();
+        for (int i = 0; i < bodies.length; i++) {
+            StringBuilder body = new StringBuilder(pixels * 4);
+            for (int p = 0; p < pixels; p++) {
+                if (p > 0) {
+                    body.append(',');
+                }
+                body.append(images.pixel(i, p));
+            }
+            bodies[i] = body.toString();
+            labels[i] = images.label(i);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String url = DEFAULT_URL;
+        String concurrencyList = "1,8,32,128";
+        int requests = DEFAULT_REQUESTS;
+        int warmup = DEFAULT_WARMUP;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--url".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                url = args[++i];
+            } else if ("--concurrency".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                concurrencyList = args[++i];
+            } else if ("--requests".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                requests = Integer.parseInt(args[++i]);
+            } else if ("--warmup".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                warmup = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("Argumento desconhecido: " + arg);
+                System.err.println("Uso: java -cp src/java LoadGenerator [--url U] [--concurrency 1,8,32,128] [--requests N] [--warmup N]");
+                return;
+            }
+        }
+
+        MnistStore testData = MnistStore.open(Main.TEST_IMAGES_PATH, Main.TEST_LABELS_PATH, Main.TEST_EXAMPLES);
+        LoadGenerator generator = new LoadGenerator(url, testData);
+
+        if (warmup > 0) {
+            System.out.println("Aquecimento: " + warmup + " pedidos...");
+            generator.run(8, warmup);
+        }
+
+        System.out.println("\nClientes   Pedidos/s   p50 (µs)   p99 (µs)   Batch médio   Accuracy");
+        for (String level : concurrencyList.split(",")) {
+            int concurrency = Integer.parseInt(level.trim());
+            Result result = generator.run(concurrency, requests);
+            System.out.println(String.format("%8d %11.0f %10.1f %10.1f %13.2f %9.2f%%", concurrency,
+                    result.throughput, result.latency.percentileMicros(0.50), result.latency.percentileMicros(0.99),
+                    result.meanBatchSize, result.accuracy));
+        }
+
+        HttpResponse<String> stats = generator.client.send(
+                HttpRequest.newBuilder(URI.create(url + "/stats")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        System.out.println("\nEstatísticas do servidor: " + stats.body());
+    }
+
+    private static final class Result {
+        double throughput;
+        double meanBatchSize;
+        double accuracy;
+        LatencyHistogram latency;
+    }
+
+    private Result run(int concurrency, int requests) throws InterruptedException {
+        AtomicInteger cursor = new AtomicInteger();
+        LatencyHistogram latency = new LatencyHistogram();
+        LongAdder correct = new LongAdder();
+        LongAdder batchSizeSum = new LongAdder();
+
+        List<Callable<Void>> clients = new ArrayList<>(concurrency);
+        for (int c = 0; c < concurrency; c++) {
+            clients.add(() -> {
+                int index;
+                while ((index = cursor.getAndIncrement()) < requests) {
+                    int image = index % bodies.length;
+                    HttpRequest request = HttpRequest.newBuilder(predictUri)
+                            .POST(HttpRequest.BodyPublishers.ofString(bodies[image]))
+                            .build();
+                    long start = System.nanoTime();
+                    HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                    latency.record(System.nanoTime() - start);
+                    if (response.statusCode() != 200) {
+                        throw new IOException("HTTP " + response.statusCode() + ": " + response.body());
+                    }
+                    if (intField(response.body(), "digit") == labels[image]) {
+                        correct.increment();
+                    }
+                    batchSizeSum.add(intField(response.body(), "batchSize"));
+                }
+                return null;
+            });
+        }
+
+        ExecutorService executor = PredictionServer.virtualThreadExecutorOrNull();
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(concurrency);
+        }
+        long start = System.nanoTime();
+        try {
+            for (Future<Void> client : executor.invokeAll(clients)) {
+                client.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falha num cliente: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Result result = new Result();
+        result.throughput = requests / (elapsed / 1e9);
+        result.meanBatchSize = (double) batchSizeSum.sum() / requests;
+        result.accuracy = 100.0 * correct.sum() / requests;
+        result.latency = latency;
+        return result;
+    }
+
+    private static int intField(String json, String name) {
+        String key = "\"" + name + "\":";
+        int start = json.indexOf(key) + key.length();
+        int end = start;
+        while (end < json.length() && Character.isDigit(json.charAt(end))) {
+            end++;
+        }
+        return Integer.parseInt(json.substring(start, end));
+    }
+}
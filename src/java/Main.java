@@ -1,37 +1,202 @@
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class Main {
 
-    private static final String TRAIN_IMAGES_PATH = "data/train-images-idx3-ubyte";
-    private static final String TRAIN_LABELS_PATH = "data/train-labels-idx1-ubyte";
-    private static final String TEST_IMAGES_PATH = "data/t10k-images-idx3-ubyte";
-    private static final String TEST_LABELS_PATH = "data/t10k-labels-idx1-ubyte";
+    static final String TRAIN_IMAGES_PATH = "data/train-images-idx3-ubyte";
+    static final String TRAIN_LABELS_PATH = "data/train-labels-idx1-ubyte";
+    static final String TEST_IMAGES_PATH = "data/t10k-images-idx3-ubyte";
+    static final String TEST_LABELS_PATH = "data/t10k-labels-idx1-ubyte";
 
     private static final int INPUT_SIZE = 28 * 28;
     private static final int[] HIDDEN_LAYER_SIZES = {256, 128};
     private static final int OUTPUT_SIZE = 10;
 
-    private static final String WEIGHTS_PATH = "weights/pesos.csv";
+    static final String MODEL_PATH = "weights/model.bin";
+    static final String WEIGHTS_CSV_PATH = "weights/pesos.csv";
+    static final String WEB_MODEL_PATH = "weights/model-web.json";
     private static final String LOSS_LOG_PATH = "weights/mse_values.txt";
+    static final String CHECKPOINT_PATH = "weights/checkpoint.bin";
+    static final String SWEEP_RESULTS_PATH = "weights/sweep.csv";
+    private static final int DEFAULT_CHECKPOINT_EPOCHS = 5;
 
-    private static final int TRAIN_EXAMPLES = 60000;
-    private static final int TEST_EXAMPLES = 10000;
+    static final int TRAIN_EXAMPLES = 60000;
+    static final int TEST_EXAMPLES = 10000;
+
+    private int batchSize = NeuralNetwork.DEFAULT_BATCH_SIZE;
+    private int threads = 1;
+    private boolean hogwild;
+    private boolean stream;
+    private String trainImagesPath = TRAIN_IMAGES_PATH;
+    private String trainLabelsPath = TRAIN_LABELS_PATH;
+    private Long seed;
+    private Precision precision = Precision.FLOAT64;
+    private int metricsInterval = TrainingMetrics.DEFAULT_REPORT_INTERVAL_SECONDS;
+    private int checkpointEpochs = DEFAULT_CHECKPOINT_EPOCHS;
+    private int checkpointSeconds;
+    private boolean resume;
+    private int validationSamples;
+    private int patience;
+    private boolean keepBest;
+    private Optimizer optimizer = new SgdOptimizer();
+    private Double learningRate;
+    private LearningRateSchedule schedule = LearningRateSchedule.constant();
+    private int warmupEpochs;
+    private boolean sparseInput;
+    private Augmentation augmentation;
+    private Integer augmentThreads;
+    private String sweepSpec;
+    private int sweepTrials;
+    private int sweepEpochs = HyperparameterSweep.DEFAULT_MAX_EPOCHS;
+    private int sweepEta = HyperparameterSweep.DEFAULT_ETA;
+    private double sweepTarget = HyperparameterSweep.DEFAULT_TARGET_ACCURACY;
+    private Integer sweepThreads;
 
     public static void main(String[] args) {
         boolean shouldTrain = true;
-        if (args.length > 0 && "--test-only".equalsIgnoreCase(args[0])) {
-            shouldTrain = false;
+        Boolean exportCsv = null;
+        WebModelFile.Dtype exportWeb = null;
+        Main mainInstance = new Main();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--test-only".equalsIgnoreCase(arg)) {
+                shouldTrain = false;
+            } else if ("--export-csv".equalsIgnoreCase(arg)) {
+                exportCsv = true;
+            } else if ("--import-csv".equalsIgnoreCase(arg)) {
+                exportCsv = false;
+            } else if ("--export-web".equalsIgnoreCase(arg)) {
+                exportWeb = WebModelFile.Dtype.parse(requireValue(args, ++i, arg));
+            } else if ("--batch-size".equalsIgnoreCase(arg)) {
+                mainInstance.batchSize = parsePositiveInt(args, ++i, arg);
+            } else if ("--threads".equalsIgnoreCase(arg)) {
+                mainInstance.threads = parsePositiveInt(args, ++i, arg);
+            } else if ("--hogwild".equalsIgnoreCase(arg)) {
+                mainInstance.hogwild = true;
+            } else if ("--stream".equalsIgnoreCase(arg)) {
+                mainInstance.stream = true;
+            } else if ("--train-images".equalsIgnoreCase(arg)) {
+                mainInstance.trainImagesPath = requireValue(args, ++i, arg);
+            } else if ("--train-labels".equalsIgnoreCase(arg)) {
+                mainInstance.trainLabelsPath = requireValue(args, ++i, arg);
+            } else if ("--seed".equalsIgnoreCase(arg)) {
+                mainInstance.seed = Long.parseLong(requireValue(args, ++i, arg));
+            } else if ("--precision".equalsIgnoreCase(arg)) {
+                mainInstance.precision = Precision.parse(requireValue(args, ++i, arg));
+            } else if ("--metrics-interval".equalsIgnoreCase(arg)) {
+                mainInstance.metricsInterval = Integer.parseInt(requireValue(args, ++i, arg));
+            } else if ("--checkpoint-every".equalsIgnoreCase(arg)) {
+                mainInstance.checkpointEpochs = parseNonNegativeInt(args, ++i, arg);
+            } else if ("--checkpoint-seconds".equalsIgnoreCase(arg)) {
+                mainInstance.checkpointSeconds = parseNonNegativeInt(args, ++i, arg);
+            } else if ("--resume".equalsIgnoreCase(arg)) {
+                mainInstance.resume = true;
+            } else if ("--validation".equalsIgnoreCase(arg)) {
+                mainInstance.validationSamples = parseNonNegativeInt(args, ++i, arg);
+            } else if ("--patience".equalsIgnoreCase(arg)) {
+                mainInstance.patience = parseNonNegativeInt(args, ++i, arg);
+            } else if ("--keep-best".equalsIgnoreCase(arg)) {
+                mainInstance.keepBest = true;
+            } else if ("--optimizer".equalsIgnoreCase(arg)) {
+                mainInstance.optimizer = Optimizer.parse(requireValue(args, ++i, arg));
+            } else if ("--learning-rate".equalsIgnoreCase(arg)) {
+                mainInstance.learningRate = parsePositiveDouble(args, ++i, arg);
+            } else if ("--lr-schedule".equalsIgnoreCase(arg)) {
+                mainInstance.schedule = LearningRateSchedule.parse(requireValue(args, ++i, arg));
+            } else if ("--warmup-epochs".equalsIgnoreCase(arg)) {
+                mainInstance.warmupEpochs = parseNonNegativeInt(args, ++i, arg);
+            } else if ("--sparse-input".equalsIgnoreCase(arg)) {
+                mainInstance.sparseInput = true;
+            } else if ("--augment".equalsIgnoreCase(arg)) {
+                mainInstance.augmentation = Augmentation.parse(requireValue(args, ++i, arg));
+            } else if ("--augment-threads".equalsIgnoreCase(arg)) {
+                mainInstance.augmentThreads = parsePositiveInt(args, ++i, arg);
+            } else if ("--sweep".equalsIgnoreCase(arg)) {
+                mainInstance.sweepSpec = requireValue(args, ++i, arg);
+            } else if ("--sweep-trials".equalsIgnoreCase(arg)) {
+                mainInstance.sweepTrials = parseNonNegativeInt(args, ++i, arg);
+            } else if ("--sweep-epochs".equalsIgnoreCase(arg)) {
+                mainInstance.sweepEpochs = parsePositiveInt(args, ++i, arg);
+            } else if ("--sweep-eta".equalsIgnoreCase(arg)) {
+                mainInstance.sweepEta = parsePositiveInt(args, ++i, arg);
+            } else if ("--sweep-target".equalsIgnoreCase(arg)) {
+                mainInstance.sweepTarget = parsePositiveDouble(args, ++i, arg);
+            } else if ("--sweep-threads".equalsIgnoreCase(arg)) {
+                mainInstance.sweepThreads = parsePositiveInt(args, ++i, arg);
+            } else {
+                System.err.println("Argumento desconhecido: " + arg);
+                System.err.println("Uso: java -cp src/java Main [--test-only | --export-csv | --import-csv | --export-web float16|int8] [--batch-size N] [--threads N] [--hogwild] [--stream] [--train-images F] [--train-labels F] [--seed S] [--precision float32|float64] [--metrics-interval S] [--checkpoint-every N] [--checkpoint-seconds S] [--resume] [--validation N] [--patience N] [--keep-best] [--optimizer sgd|momentum|nesterov|adam] [--learning-rate R] [--lr-schedule constant|step:N[:F]|cosine:N[:MIN]] [--warmup-epochs N] [--sparse-input] [--augment default|shift:P,rotate:G,scale:F,elastic:P] [--augment-threads N] [--sweep lr=A,B|MIN..MAX;hidden=256x128,128;batch=32,64;optimizer=sgd,adam] [--sweep-trials N] [--sweep-epochs N] [--sweep-eta N] [--sweep-target P] [--sweep-threads N]");
+                return;
+            }
         }
 
-        Main mainInstance = new Main();
+        if (exportCsv != null) {
+            mainInstance.convertWeights(exportCsv);
+            return;
+        }
+        if (exportWeb != null) {
+            mainInstance.exportWebModel(exportWeb);
+            return;
+        }
+        if (mainInstance.sweepSpec != null) {
+            mainInstance.runSweep();
+            return;
+        }
         mainInstance.trainAndTest(shouldTrain);
     }
 
+    private static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Falta o valor de " + option);
+        }
+        return args[index];
+    }
+
+    private static int parsePositiveInt(String[] args, int index, String option) {
+        int value = Integer.parseInt(requireValue(args, index, option));
+        if (value <= 0) {
+            throw new IllegalArgumentException(option + " tem de ser positivo: " + value);
+        }
+        return value;
+    }
+
+    private static double parsePositiveDouble(String[] args, int index, String option) {
+        double value = Double.parseDouble(requireValue(args, index, option));
+        if (!(value > 0.0)) {
+            throw new IllegalArgumentException(option + " tem de ser positivo: " + value);
+        }
+        return value;
+    }
+
+    private static int parseNonNegativeInt(String[] args, int index, String option) {
+        int value = Integer.parseInt(requireValue(args, index, option));
+        if (value < 0) {
+            throw new IllegalArgumentException(option + " não pode ser negativo: " + value);
+        }
+        return value;
+    }
+
     public void trainAndTest(boolean shouldTrain) {
 
         double lossThreshold = 0.005;
-        double learningRate = 0.1;
+        double learningRate = this.learningRate != null ? this.learningRate : optimizer.defaultLearningRate();
+        LearningRateSchedule schedule = warmupEpochs > 0 ? this.schedule.withWarmup(warmupEpochs) : this.schedule;
+        // Por omissão, as threads de aumento ficam com os núcleos que o treino não usa.
+        int augmentThreads = this.augmentThreads != null ? this.augmentThreads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() - threads);
+        // A ordem de cada época só se repete com seed: sem --seed, os checkpoints
+        // guardam uma sorteada aqui para que --resume continue o mesmo treino.
+        boolean generatedSeed = false;
+        if (shouldTrain && !resume && seed == null && (checkpointEpochs > 0 || checkpointSeconds > 0)) {
+            seed = new Random().nextLong();
+            generatedSeed = true;
+        }
 
         System.out.println("========================================");
         System.out.println("  TREINO DA REDE NEURAL - MNIST");
@@ -39,41 +204,130 @@ public class Main {
         System.out.println("Arquitetura: " + architectureString());
         System.out.println("Inputs: " + INPUT_SIZE + " pixels (28x28)");
         System.out.println("Classes: " + OUTPUT_SIZE + " (dígitos 0-9)");
-        System.out.println("Learning Rate: " + learningRate);
+        System.out.println("Otimizador: " + optimizer.name());
+        System.out.println("Learning Rate: " + learningRate + (schedule.isConstant() ? "" : " (" + schedule + ")"));
+        System.out.println("Batch Size: " + batchSize);
+        System.out.println("Threads: " + threads + (hogwild ? " (assíncrono, Hogwild)" : ""));
+        System.out.println("Precisão: " + precision.name().toLowerCase() + (sparseInput ? " (primeira camada esparsa)" : ""));
+        System.out.println("Kernels: " + KernelBackends.active().name());
+        if (augmentation != null) {
+            System.out.println("Aumento de dados: " + augmentation + " (" + augmentThreads + " threads)");
+        }
+        if (seed != null) {
+            System.out.println("Seed: " + seed + (generatedSeed ? " (sorteada e guardada nos checkpoints)" : ""));
+        }
         System.out.println("Loss Threshold: " + lossThreshold);
+        if (shouldTrain) {
+            System.out.println("Métricas: " + Path.of(LOSS_LOG_PATH).resolveSibling(NeuralNetwork.METRICS_FILE_NAME)
+                    + " e JMX " + TrainingMetrics.OBJECT_NAME);
+        }
         System.out.println("========================================\n");
 
-        MnistLoader.MnistDataset trainingData = null;
-        MnistLoader.MnistDataset testData;
+        if (shouldTrain && stream && augmentation != null) {
+            System.err.println("--augment não é suportado com --stream.");
+            return;
+        }
+        if (shouldTrain && validationSamples == 0 && (patience > 0 || keepBest)) {
+            System.err.println("--patience e --keep-best precisam de --validation N.");
+            return;
+        }
+
+        MnistStore trainingData = null;
+        MnistStore testData;
 
         try {
-            if (shouldTrain) {
-                trainingData = MnistLoader.load(TRAIN_IMAGES_PATH, TRAIN_LABELS_PATH, TRAIN_EXAMPLES);
+            if (shouldTrain && !stream) {
+                trainingData = MnistStore.open(trainImagesPath, trainLabelsPath, TRAIN_EXAMPLES);
             }
-            testData = MnistLoader.load(TEST_IMAGES_PATH, TEST_LABELS_PATH, TEST_EXAMPLES);
+            testData = MnistStore.open(TEST_IMAGES_PATH, TEST_LABELS_PATH, TEST_EXAMPLES);
         } catch (IOException e) {
             System.err.println("Erro ao carregar MNIST: " + e.getMessage());
             System.err.println("Execute python download_mnist.py para descarregar os ficheiros IDX para a pasta data/.");
             return;
         }
 
-        if (shouldTrain && trainingData != null) {
-            System.out.println("Dados de treino: " + trainingData.getImages().length + " imagens");
+        SampleSource trainingSource = trainingData;
+        SampleSource validationData = null;
+        int trainingEnd = trainingData != null ? trainingData.size() : 0;
+        if (shouldTrain && validationSamples > 0) {
+            if (stream) {
+                System.err.println("--validation não é suportado com --stream.");
+                return;
+            }
+            if (validationSamples >= trainingData.size()) {
+                System.err.println("--validation tem de deixar amostras para treino: " + validationSamples
+                        + " de " + trainingData.size());
+                return;
+            }
+            trainingEnd = trainingData.size() - validationSamples;
+            trainingSource = trainingData.slice(0, trainingEnd);
+            validationData = trainingData.slice(trainingEnd, trainingData.size());
+        }
+
+        if (shouldTrain && stream) {
+            System.out.println("Dados de treino: em streaming a partir de " + trainImagesPath);
+        } else if (shouldTrain && trainingData != null) {
+            System.out.println("Dados de treino: " + trainingSource.size() + " imagens");
+            if (validationData != null) {
+                System.out.println("Dados de validação: " + validationData.size() + " imagens (fim do conjunto de treino)");
+            }
         } else {
             System.out.println("Modo teste: a carregar apenas os dados de teste.");
         }
-        System.out.println("Dados de teste: " + testData.getImages().length + " imagens\n");
-
-        double[][] trainingTargets = shouldTrain && trainingData != null
-                ? toOneHot(trainingData.getLabels(), OUTPUT_SIZE)
-                : new double[0][0];
+        System.out.println("Dados de teste: " + testData.size() + " imagens\n");
 
         ArrayList<Layer> layers = buildNetwork();
-        NeuralNetwork nn = new NeuralNetwork(layers);
+        NeuralNetwork nn = new NeuralNetwork(layers, batchSize);
+        nn.setWorkerThreads(threads);
+        nn.setAsynchronous(hogwild);
+        nn.setPrecision(precision);
+        nn.setMetricsInterval(metricsInterval);
+        nn.setCheckpointing(CHECKPOINT_PATH, checkpointEpochs, checkpointSeconds);
+        nn.setValidation(validationData);
+        nn.setEarlyStopping(patience);
+        nn.setKeepBest(keepBest);
+        nn.setOptimizer(optimizer);
+        nn.setLearningRateSchedule(schedule);
+        nn.setSparseInput(sparseInput);
+        if (seed != null) {
+            nn.setSeed(seed);
+        }
+
+        if (shouldTrain) {
+            int firstEpoch = 0;
+            if (resume) {
+                try {
+                    TrainingCheckpoint checkpoint = nn.resume(CHECKPOINT_PATH);
+                    firstEpoch = checkpoint.getEpoch();
+                    System.out.println("A retomar o treino do checkpoint " + CHECKPOINT_PATH + " após a época "
+                            + firstEpoch + (nn.getSeed() != null ? " (seed " + nn.getSeed() + ")" : "") + "\n");
+                    if (nn.getSeed() == null) {
+                        System.out.println("Aviso: o checkpoint não tem seed; a ordem das épocas seguintes não"
+                                + " repete a do treino interrompido.\n");
+                    }
+                } catch (IOException e) {
+                    System.err.println("Não foi possível retomar o treino: " + e.getMessage());
+                    return;
+                }
+            }
 
-        if (shouldTrain && trainingData != null) {
             long startTime = System.currentTimeMillis();
-            nn.train(trainingData.getImages(), trainingTargets, lossThreshold, learningRate, LOSS_LOG_PATH, WEIGHTS_PATH);
+            if (stream) {
+                try (StreamingBatchLoader loader = new StreamingBatchLoader(trainImagesPath, trainLabelsPath, batchSize,
+                        nn.getSeed(), firstEpoch)) {
+                    nn.train(loader, lossThreshold, learningRate, LOSS_LOG_PATH, MODEL_PATH);
+                } catch (IOException e) {
+                    System.err.println("Erro ao ler os dados de treino: " + e.getMessage());
+                    return;
+                }
+            } else if (augmentation != null) {
+                try (AugmentingBatchLoader loader = new AugmentingBatchLoader(trainingData, 0, trainingEnd, augmentation,
+                        batchSize, augmentThreads, AugmentingBatchLoader.DEFAULT_PREFETCH_BATCHES, nn.getSeed(), firstEpoch)) {
+                    nn.train(loader, lossThreshold, learningRate, LOSS_LOG_PATH, MODEL_PATH);
+                }
+            } else {
+                nn.train(trainingSource, lossThreshold, learningRate, LOSS_LOG_PATH, MODEL_PATH);
+            }
             long endTime = System.currentTimeMillis();
             long trainingTime = endTime - startTime;
 
@@ -83,8 +337,7 @@ public class Main {
             System.out.println("Tempo de treino: " + trainingTime + " ms (" + (trainingTime / 1000.0) + " segundos)");
             System.out.println("========================================\n");
         } else {
-            System.out.println("A saltar treino. A carregar pesos existentes de weights/pesos.csv...");
-            nn.loadWeights(WEIGHTS_PATH);
+            loadExistingWeights(nn);
         }
 
         System.out.println("========================================");
@@ -92,7 +345,7 @@ public class Main {
         System.out.println("========================================\n");
 
         long testStartTime = System.currentTimeMillis();
-        nn.test(testData.getImages(), testData.getLabels());
+        nn.test(testData);
         long testEndTime = System.currentTimeMillis();
         long testTime = testEndTime - testStartTime;
 
@@ -103,28 +356,138 @@ public class Main {
         System.out.println("========================================\n");
     }
 
+    /**
+     * Procura de hiperparâmetros em vez do treino normal: as configurações
+     * de {@code --sweep} treinam em paralelo sobre uma única cópia dos
+     * dados de treino, validadas no fim do conjunto de treino, e os
+     * resultados vão para {@link #SWEEP_RESULTS_PATH}.
+     */
+    public void runSweep() {
+        int threads = sweepThreads != null ? sweepThreads : Runtime.getRuntime().availableProcessors();
+        LearningRateSchedule schedule = warmupEpochs > 0 ? this.schedule.withWarmup(warmupEpochs) : this.schedule;
+        SearchSpace space = SearchSpace.parse(sweepSpec, learningRate, HIDDEN_LAYER_SIZES, batchSize, optimizer.name());
+        List<SweepConfig> configs = sweepTrials > 0
+                ? space.sample(sweepTrials, seed != null ? new Random(seed) : new Random())
+                : space.grid();
+
+        System.out.println("========================================");
+        System.out.println("  PROCURA DE HIPERPARÂMETROS - MNIST");
+        System.out.println("========================================");
+        System.out.println("Configurações: " + configs.size() + (sweepTrials > 0 ? " (aleatórias)" : " (grid)"));
+        System.out.println("Successive halving: eta " + sweepEta + ", até " + sweepEpochs + " épocas");
+        System.out.println("Accuracy alvo: " + sweepTarget + "%");
+        System.out.println("Threads: " + threads);
+        if (!schedule.isConstant()) {
+            System.out.println("Schedule: " + schedule);
+        }
+        if (seed != null) {
+            System.out.println("Seed: " + seed);
+        }
+        System.out.println("========================================\n");
+
+        MnistStore trainingData;
+        try {
+            trainingData = MnistStore.open(trainImagesPath, trainLabelsPath, TRAIN_EXAMPLES);
+        } catch (IOException e) {
+            System.err.println("Erro ao carregar MNIST: " + e.getMessage());
+            System.err.println("Execute python download_mnist.py para descarregar os ficheiros IDX para a pasta data/.");
+            return;
+        }
+        int validation = validationSamples > 0 ? validationSamples : trainingData.size() / 10;
+        if (validation >= trainingData.size()) {
+            System.err.println("--validation tem de deixar amostras para treino: " + validation
+                    + " de " + trainingData.size());
+            return;
+        }
+        int trainingEnd = trainingData.size() - validation;
+        System.out.println("Dados de treino: " + trainingEnd + " imagens");
+        System.out.println("Dados de validação: " + validation + " imagens (fim do conjunto de treino)\n");
+
+        List<HyperparameterSweep.Trial> results;
+        try (HyperparameterSweep sweep = new HyperparameterSweep(trainingData.slice(0, trainingEnd),
+                trainingData.slice(trainingEnd, trainingData.size()), threads)) {
+            sweep.setEta(sweepEta);
+            sweep.setMaxEpochs(sweepEpochs);
+            sweep.setTargetAccuracy(sweepTarget);
+            sweep.setLearningRateSchedule(schedule);
+            sweep.setSparseInput(sparseInput);
+            sweep.setSeed(seed);
+            results = sweep.run(configs);
+            System.out.println();
+            sweep.printResults(results);
+        }
+        try {
+            HyperparameterSweep.writeResults(results, Path.of(SWEEP_RESULTS_PATH));
+            System.out.println("\nResultados escritos em " + SWEEP_RESULTS_PATH);
+        } catch (IOException e) {
+            System.err.println("Erro ao escrever os resultados do sweep: " + e.getMessage());
+        }
+    }
+
+    private void loadExistingWeights(NeuralNetwork nn) {
+        if (Files.exists(Path.of(MODEL_PATH))) {
+            System.out.println("A saltar treino. A carregar pesos existentes de " + MODEL_PATH + "...");
+            nn.loadModel(MODEL_PATH);
+        } else {
+            System.out.println("A saltar treino. " + MODEL_PATH + " não existe, a importar " + WEIGHTS_CSV_PATH + "...");
+            nn.loadWeights(WEIGHTS_CSV_PATH);
+        }
+    }
+
+    /**
+     * Converte entre o modelo binário e o CSV usado pela interface web,
+     * sem treinar nem testar.
+     */
+    public void convertWeights(boolean exportCsv) {
+        NeuralNetwork nn = new NeuralNetwork(buildNetwork(), batchSize);
+        if (exportCsv) {
+            if (nn.loadModel(MODEL_PATH)) {
+                nn.saveWeights(WEIGHTS_CSV_PATH);
+            }
+        } else {
+            nn.loadWeights(WEIGHTS_CSV_PATH);
+            nn.saveModel(MODEL_PATH);
+        }
+    }
+
+    /**
+     * Exporta o modelo treinado (ou, na falta dele, o CSV) para o formato
+     * compacto que a interface web carrega em vez do CSV.
+     */
+    public void exportWebModel(WebModelFile.Dtype dtype) {
+        NeuralNetwork nn = new NeuralNetwork(buildNetwork(), batchSize);
+        if (Files.exists(Path.of(MODEL_PATH))) {
+            if (!nn.loadModel(MODEL_PATH)) {
+                return;
+            }
+        } else {
+            System.out.println(MODEL_PATH + " não existe, a importar " + WEIGHTS_CSV_PATH + "...");
+            nn.loadWeights(WEIGHTS_CSV_PATH);
+        }
+        nn.saveWebModel(WEB_MODEL_PATH, dtype);
+    }
+
     private ArrayList<Layer> buildNetwork() {
+        return buildLayers(seed == null ? ThreadLocalRandom.current() : new Random(seed));
+    }
+
+    /** Camadas da arquitetura usada pela aplicação, com pesos iniciais aleatórios. */
+    static ArrayList<Layer> buildLayers(Random random) {
+        return buildLayers(HIDDEN_LAYER_SIZES, random);
+    }
+
+    /** Camadas ReLU com os tamanhos {@code hiddenSizes} entre a entrada e a saída softmax. */
+    static ArrayList<Layer> buildLayers(int[] hiddenSizes, Random random) {
         ArrayList<Layer> layers = new ArrayList<>();
         int previousSize = INPUT_SIZE;
-        for (int hiddenSize : HIDDEN_LAYER_SIZES) {
-            layers.add(new Layer(hiddenSize, previousSize, ActivationType.RELU));
+        for (int hiddenSize : hiddenSizes) {
+            layers.add(new Layer(hiddenSize, previousSize, ActivationType.RELU, random));
             previousSize = hiddenSize;
         }
-        layers.add(new Layer(OUTPUT_SIZE, previousSize, ActivationType.LINEAR));
+        layers.add(new Layer(OUTPUT_SIZE, previousSize, ActivationType.LINEAR, random));
         return layers;
     }
 
-    private double[][] toOneHot(int[] labels, int numClasses) {
-        double[][] targets = new double[labels.length][numClasses];
-        for (int i = 0; i < labels.length; i++) {
-            int label = labels[i];
-            if (label >= 0 && label < numClasses) {
-                targets[i][label] = 1.0;
-            }
-        }
-        return targets;
-    }
-
     private String architectureString() {
         StringBuilder builder = new StringBuilder();
         builder.append(INPUT_SIZE);
@@ -0,0 +1,339 @@
+/**
+ * Kernels de multiplicação de matrizes row-major usados no treino por
+ * mini-batch. Os blocos {@link #ROW_BLOCK} e {@link #INNER_BLOCK} mantêm
+ * a fatia de pesos em uso na cache enquanto é reutilizada por todas as
+ * amostras do batch. Os ciclos internos delegam no backend de
+ * {@link Kernels} ativo ({@link KernelBackends#active()}).
+ */
+public final class MatrixKernels {
+
+    static final int ROW_BLOCK = 64;
+    static final int INNER_BLOCK = 256;
+
+    private static final Kernels KERNELS = KernelBackends.active();
+    // O backend escalar mantém o bloco de 4 linhas em registos; com SIMD o
+    // produto interno vetorial por elemento é mais rápido.
+    private static final boolean SCALAR = KERNELS instanceof ScalarKernels;
+
+    // Fração de colunas ativas abaixo da qual calcular só essas compensa o
+    // acesso indexado: o axpy escalar ganha até ~80%, o vetorial só abaixo
+    // de ~20% (medido com 64 x 128 · 128 x 256).
+    private static final double RESTRICT_FRACTION = SCALAR ? 0.8 : 0.2;
+
+    private MatrixKernels() {
+    }
+
+    /**
+     * {@code C[rows x cols] = A[rows x inner] · Bᵀ}, com {@code B} guardada
+     * como {@code [cols x inner]} (o layout dos pesos de uma {@link Layer}).
+     */
+    public static void multiplyTransposed(double[] a, int rows, int inner, double[] b, int cols, double[] c) {
+        int size = rows * cols;
+        for (int i = 0; i < size; i++) {
+            c[i] = 0.0;
+        }
+        if (!SCALAR) {
+            multiplyTransposedWithDot(a, rows, inner, b, cols, c);
+            return;
+        }
+        for (int k0 = 0; k0 < inner; k0 += INNER_BLOCK) {
+            int k1 = Math.min(k0 + INNER_BLOCK, inner);
+            for (int c0 = 0; c0 < cols; c0 += ROW_BLOCK) {
+                int c1 = Math.min(c0 + ROW_BLOCK, cols);
+                int r = 0;
+                for (; r + 4 <= rows; r += 4) {
+                    int a0 = r * inner;
+                    int a1 = a0 + inner;
+                    int a2 = a1 + inner;
+                    int a3 = a2 + inner;
+                    for (int col = c0; col < c1; col++) {
+                        int bRow = col * inner;
+                        double s0 = 0.0;
+                        double s1 = 0.0;
+                        double s2 = 0.0;
+                        double s3 = 0.0;
+                        for (int k = k0; k < k1; k++) {
+                            double w = b[bRow + k];
+                            s0 += a[a0 + k] * w;
+                            s1 += a[a1 + k] * w;
+                            s2 += a[a2 + k] * w;
+                            s3 += a[a3 + k] * w;
+                        }
+                        c[r * cols + col] += s0;
+                        c[(r + 1) * cols + col] += s1;
+                        c[(r + 2) * cols + col] += s2;
+                        c[(r + 3) * cols + col] += s3;
+                    }
+                }
+                for (; r < rows; r++) {
+                    int aRow = r * inner;
+                    for (int col = c0; col < c1; col++) {
+                        int bRow = col * inner;
+                        double sum = 0.0;
+                        for (int k = k0; k < k1; k++) {
+                            sum += a[aRow + k] * b[bRow + k];
+                        }
+                        c[r * cols + col] += sum;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * {@code C[rows x cols] = A[rows x inner] · B[inner x cols]}. Usado para
+     * propagar deltas: as linhas nulas de {@code A} (neurónios sem erro) são
+     * saltadas.
+     */
+    public static void multiply(double[] a, int rows, int inner, double[] b, int cols, double[] c) {
+        int size = rows * cols;
+        for (int i = 0; i < size; i++) {
+            c[i] = 0.0;
+        }
+        for (int c0 = 0; c0 < cols; c0 += INNER_BLOCK) {
+            int c1 = Math.min(c0 + INNER_BLOCK, cols);
+            for (int r = 0; r < rows; r++) {
+                int aRow = r * inner;
+                int cRow = r * cols;
+                for (int k = 0; k < inner; k++) {
+                    double value = a[aRow + k];
+                    if (value == 0.0) {
+                        continue;
+                    }
+                    KERNELS.axpy(value, b, k * cols + c0, c, cRow + c0, c1 - c0);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@code C[aCols x bCols] += Aᵀ · B}, com {@code A = [rows x aCols]} e
+     * {@code B = [rows x bCols]}: a soma dos produtos externos delta × input
+     * de todas as amostras do batch.
+     */
+    public static void accumulateTransposedProduct(double[] a, int rows, int aCols, double[] b, int bCols, double[] c) {
+        for (int j0 = 0; j0 < bCols; j0 += INNER_BLOCK) {
+            int j1 = Math.min(j0 + INNER_BLOCK, bCols);
+            for (int i = 0; i < aCols; i++) {
+                int cRow = i * bCols;
+                for (int r = 0; r < rows; r++) {
+                    double value = a[r * aCols + i];
+                    if (value == 0.0) {
+                        continue;
+                    }
+                    KERNELS.axpy(value, b, r * bCols + j0, c, cRow + j0, j1 - j0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Igual a {@link #multiply(double[], int, int, double[], int, double[])}
+     * mas só calcula, em cada linha {@code r}, as colunas de {@code C}
+     * listadas em {@code cIndices[cStarts[r]..cStarts[r + 1])}; as restantes
+     * ficam a zero. As colunas de {@code A} percorridas são as de
+     * {@code aIndices[aStarts[r]..aStarts[r + 1])} ou, com {@code aStarts}
+     * nulo, todas as não nulas. Cada elemento soma os mesmos termos pela
+     * mesma ordem que a versão densa com o backend escalar.
+     */
+    static void multiply(double[] a, int rows, int inner, int[] aStarts, int[] aIndices, double[] b, int cols,
+                         int[] cStarts, int[] cIndices, double[] c) {
+        int size = rows * cols;
+        for (int i = 0; i < size; i++) {
+            c[i] = 0.0;
+        }
+        for (int r = 0; r < rows; r++) {
+            int cFrom = cStarts[r];
+            int cTo = cStarts[r + 1];
+            if (cFrom == cTo) {
+                continue;
+            }
+            int aRow = r * inner;
+            int cRow = r * cols;
+            int from = aStarts == null ? 0 : aStarts[r];
+            int to = aStarts == null ? inner : aStarts[r + 1];
+            for (int n = from; n < to; n++) {
+                int k = aStarts == null ? n : aIndices[n];
+                double value = a[aRow + k];
+                if (value == 0.0) {
+                    continue;
+                }
+                int bRow = k * cols;
+                for (int m = cFrom; m < cTo; m++) {
+                    int j = cIndices[m];
+                    c[cRow + j] += value * b[bRow + j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Igual a {@link #accumulateTransposedProduct(double[], int, int, double[], int, double[])}
+     * mas, para cada coluna {@code i} de {@code A}, só com as linhas
+     * {@code rowsOf[starts[i]..starts[i + 1])}. As colunas sem linhas
+     * (unidades inativas em todo o batch) não tocam em {@code C}.
+     */
+    static void accumulateTransposedProduct(double[] a, int aCols, int[] starts, int[] rowsOf, double[] b, int bCols,
+                                            double[] c) {
+        for (int j0 = 0; j0 < bCols; j0 += INNER_BLOCK) {
+            int j1 = Math.min(j0 + INNER_BLOCK, bCols);
+            for (int i = 0; i < aCols; i++) {
+                int cRow = i * bCols;
+                for (int n = starts[i]; n < starts[i + 1]; n++) {
+                    int r = rowsOf[n];
+                    KERNELS.axpy(a[r * aCols + i], b, r * bCols + j0, c, cRow + j0, j1 - j0);
+                }
+            }
+        }
+    }
+
+    /**
+     * {@code true} se, com {@code active} de {@code total} elementos de
+     * {@code C} a calcular, {@link #multiply(double[], int, int, int[], int[], double[], int, int[], int[], double[])}
+     * é mais rápido do que o produto denso.
+     */
+    static boolean restrictColumns(int active, int total) {
+        return active <= RESTRICT_FRACTION * total;
+    }
+
+    /** Soma as colunas de {@code a[rows x cols]} em {@code sums}. */
+    public static void accumulateColumnSums(double[] a, int rows, int cols, double[] sums) {
+        for (int r = 0; r < rows; r++) {
+            int row = r * cols;
+            for (int j = 0; j < cols; j++) {
+                sums[j] += a[row + j];
+            }
+        }
+    }
+
+    // Versões float32 dos mesmos kernels, usadas com Precision.FLOAT32.
+
+    public static void multiplyTransposed(float[] a, int rows, int inner, float[] b, int cols, float[] c) {
+        int size = rows * cols;
+        for (int i = 0; i < size; i++) {
+            c[i] = 0f;
+        }
+        if (!SCALAR) {
+            multiplyTransposedWithDot(a, rows, inner, b, cols, c);
+            return;
+        }
+        for (int k0 = 0; k0 < inner; k0 += INNER_BLOCK) {
+            int k1 = Math.min(k0 + INNER_BLOCK, inner);
+            for (int c0 = 0; c0 < cols; c0 += ROW_BLOCK) {
+                int c1 = Math.min(c0 + ROW_BLOCK, cols);
+                int r = 0;
+                for (; r + 4 <= rows; r += 4) {
+                    int a0 = r * inner;
+                    int a1 = a0 + inner;
+                    int a2 = a1 + inner;
+                    int a3 = a2 + inner;
+                    for (int col = c0; col < c1; col++) {
+                        int bRow = col * inner;
+                        float s0 = 0f;
+                        float s1 = 0f;
+                        float s2 = 0f;
+                        float s3 = 0f;
+                        for (int k = k0; k < k1; k++) {
+                            float w = b[bRow + k];
+                            s0 += a[a0 + k] * w;
+                            s1 += a[a1 + k] * w;
+                            s2 += a[a2 + k] * w;
+                            s3 += a[a3 + k] * w;
+                        }
+                        c[r * cols + col] += s0;
+                        c[(r + 1) * cols + col] += s1;
+                        c[(r + 2) * cols + col] += s2;
+                        c[(r + 3) * cols + col] += s3;
+                    }
+                }
+                for (; r < rows; r++) {
+                    int aRow = r * inner;
+                    for (int col = c0; col < c1; col++) {
+                        int bRow = col * inner;
+                        float sum = 0f;
+                        for (int k = k0; k < k1; k++) {
+                            sum += a[aRow + k] * b[bRow + k];
+                        }
+                        c[r * cols + col] += sum;
+                    }
+                }
+            }
+        }
+    }
+
+    public static void multiply(float[] a, int rows, int inner, float[] b, int cols, float[] c) {
+        int size = rows * cols;
+        for (int i = 0; i < size; i++) {
+            c[i] = 0f;
+        }
+        for (int c0 = 0; c0 < cols; c0 += INNER_BLOCK) {
+            int c1 = Math.min(c0 + INNER_BLOCK, cols);
+            for (int r = 0; r < rows; r++) {
+                int aRow = r * inner;
+                int cRow = r * cols;
+                for (int k = 0; k < inner; k++) {
+                    float value = a[aRow + k];
+                    if (value == 0f) {
+                        continue;
+                    }
+                    KERNELS.axpy(value, b, k * cols + c0, c, cRow + c0, c1 - c0);
+                }
+            }
+        }
+    }
+
+    public static void accumulateTransposedProduct(float[] a, int rows, int aCols, float[] b, int bCols, float[] c) {
+        for (int j0 = 0; j0 < bCols; j0 += INNER_BLOCK) {
+            int j1 = Math.min(j0 + INNER_BLOCK, bCols);
+            for (int i = 0; i < aCols; i++) {
+                int cRow = i * bCols;
+                for (int r = 0; r < rows; r++) {
+                    float value = a[r * aCols + i];
+                    if (value == 0f) {
+                        continue;
+                    }
+                    KERNELS.axpy(value, b, r * bCols + j0, c, cRow + j0, j1 - j0);
+                }
+            }
+        }
+    }
+
+    public static void accumulateColumnSums(float[] a, int rows, int cols, float[] sums) {
+        for (int r = 0; r < rows; r++) {
+            int row = r * cols;
+            for (int j = 0; j < cols; j++) {
+                sums[j] += a[row + j];
+            }
+        }
+    }
+
+    private static void multiplyTransposedWithDot(double[] a, int rows, int inner, double[] b, int cols, double[] c) {
+        for (int k0 = 0; k0 < inner; k0 += INNER_BLOCK) {
+            int k1 = Math.min(k0 + INNER_BLOCK, inner);
+            for (int c0 = 0; c0 < cols; c0 += ROW_BLOCK) {
+                int c1 = Math.min(c0 + ROW_BLOCK, cols);
+                for (int r = 0; r < rows; r++) {
+                    int aRow = r * inner;
+                    for (int col = c0; col < c1; col++) {
+                        c[r * cols + col] += KERNELS.dot(a, aRow + k0, b, col * inner + k0, k1 - k0);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void multiplyTransposedWithDot(float[] a, int rows, int inner, float[] b, int cols, float[] c) {
+        for (int k0 = 0; k0 < inner; k0 += INNER_BLOCK) {
+            int k1 = Math.min(k0 + INNER_BLOCK, inner);
+            for (int c0 = 0; c0 < cols; c0 += ROW_BLOCK) {
+                int c1 = Math.min(c0 + ROW_BLOCK, cols);
+                for (int r = 0; r < rows; r++) {
+                    int aRow = r * inner;
+                    for (int col = c0; col < c1; col++) {
+                        c[r * cols + col] += KERNELS.dot(a, aRow + k0, b, col * inner + k0, k1 - k0);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agrupa pedidos de predição concorrentes em micro-batches. Os pedidos
+ * entram numa fila; uma thread despachante espera pelo primeiro, junta os
+ * que chegarem até {@code maxBatchSize} pedidos ou até passarem
+ * {@code maxWaitMicros} desde a chegada do primeiro, e corre o batch num
+ * só {@link InferenceSession#predictBatch}. Com pouca carga um pedido
+ * espera no máximo {@code maxWaitMicros}; com muita carga a fila já tem
+ * pedidos e os batches enchem sem espera. A fila guarda no máximo
+ * {@code maxQueued} pedidos: acima disso {@link #submit} rejeita em vez de
+ * deixar a memória e a latência crescer sem limite.
+ */
+public class MicroBatcher implements AutoCloseable {
+
+    private final Model model;
+    private final InferenceSession session;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Request> queue;
+    private final int maxQueued;
+    // submit e close trocam de estado sob este lock: depois de close nenhum
+    // pedido entra na fila, pelo que o esvaziamento final apanha todos.
+    private final Object stateLock = new Object();
+    private final Thread dispatcher;
+    private final double[] inputs;
+    private final double[] outputs;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder[] batchSizes;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private volatile boolean closed;
+
+    public MicroBatcher(Model model, int maxBatchSize, long maxWaitMicros, int maxQueued) {
+        if (maxBatchSize <= 0 || maxWaitMicros < 0 || maxQueued <= 0) {
+            throw new IllegalArgumentException("Configuração de micro-batching inválida.");
+        }
+        this.queue = new ArrayBlockingQueue<>(maxQueued);
+        this.maxQueued = maxQueued;
+        this.model = model;
+        this.session = model.newSession();
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.inputs = new double[maxBatchSize * model.getInputSize()];
+        this.outputs = new double[maxBatchSize * model.getOutputSize()];
+        this.batchSizes = new LongAdder[maxBatchSize + 1];
+        for (int i = 0; i < batchSizes.length; i++) {
+            batchSizes[i] = new LongAdder();
+        }
+        this.dispatcher = new Thread(this::dispatch, "micro-batcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /** Resultado de um pedido: classe, probabilidades e tamanho do batch em que correu. */
+    public static final class Prediction {
+        private final int digit;
+        private final double[] probabilities;
+        private final int batchSize;
+
+        Prediction(int digit, double[] probabilities, int batchSize) {
+            this.digit = digit;
+            this.probabilities = probabilities;
+            this.batchSize = batchSize;
+        }
+
+        public int getDigit() {
+            return digit;
+        }
+
+        public double[] getProbabilities() {
+            return probabilities;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+    }
+
+    private static final class Request {
+        final double[] input;
+        final long enqueuedNanos = System.nanoTime();
+        final CompletableFuture<Prediction> result = new CompletableFuture<>();
+
+        Request(double[] input) {
+            this.input = input;
+        }
+    }
+
+    /**
+     * Põe {@code input} (já normalizado) na fila; o futuro completa quando o
+     * seu batch terminar. Lança {@link RejectedExecutionException} se a
+     * fila estiver cheia ou depois de {@link #close}; os pedidos ainda por
+     * correr quando o micro-batcher fecha falham com a mesma exceção.
+     */
+    public CompletableFuture<Prediction> submit(double[] input) {
+        if (input.length != model.getInputSize()) {
+            throw new IllegalArgumentException("Esperados " + model.getInputSize() + " valores, recebidos "
+                    + input.length);
+        }
+        Request request = new Request(input);
+        synchronized (stateLock) {
+            if (closed) {
+                throw new RejectedExecutionException("O micro-batcher está fechado.");
+            }
+            if (!queue.offer(request)) {
+                rejected.increment();
+                throw new RejectedExecutionException("Fila de pedidos cheia (" + maxQueued + ").");
+            }
+        }
+        return request.result;
+    }
+
+    private void dispatch() {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!closed) {
+                try {
+                    Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    long deadline = first.enqueuedNanos + maxWaitNanos;
+                    while (batch.size() < maxBatchSize) {
+                        long remaining = deadline - System.nanoTime();
+                        Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                    }
+                    run(batch);
+                } catch (InterruptedException e) {
+                    break;
+                } catch (Throwable e) {
+                    // Também um Error (p. ex. OutOfMemoryError): só este batch falha e a thread continua.
+                    fail(batch, e);
+                }
+                batch.clear();
+            }
+        } finally {
+            // Se a thread sair por qualquer motivo, submit deixa de aceitar pedidos
+            // e os já tirados da fila, bem como os que ficaram nela, falham.
+            synchronized (stateLock) {
+                closed = true;
+            }
+            RejectedExecutionException closedError = new RejectedExecutionException("O micro-batcher foi fechado.");
+            fail(batch, closedError);
+            Request pending;
+            while ((pending = queue.poll()) != null) {
+                pending.result.completeExceptionally(closedError);
+            }
+        }
+    }
+
+    private static void fail(List<Request> batch, Throwable error) {
+        for (Request request : batch) {
+            request.result.completeExceptionally(error);
+        }
+    }
+
+    private void run(List<Request> batch) {
+        int rows = batch.size();
+        int inputSize = model.getInputSize();
+        int outputSize = model.getOutputSize();
+        for (int r = 0; r < rows; r++) {
+            System.arraycopy(batch.get(r).input, 0, inputs, r * inputSize, inputSize);
+        }
+        session.predictBatch(inputs, rows, outputs);
+
+        long now = System.nanoTime();
+        for (int r = 0; r < rows; r++) {
+            Request request = batch.get(r);
+            double[] probabilities = Arrays.copyOfRange(outputs, r * outputSize, (r + 1) * outputSize);
+            latency.record(now - request.enqueuedNanos);
+            request.result.complete(new Prediction(InferenceSession.indexOfMax(probabilities), probabilities, rows));
+        }
+        batchSizes[rows].increment();
+        requests.add(rows);
+    }
+
+    /** Latência desde a entrada na fila até ao fim do batch. */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /** Número de batches executados com cada tamanho (índice = tamanho). */
+    public long[] getBatchSizeCounts() {
+        long[] counts = new long[batchSizes.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = batchSizes[i].sum();
+        }
+        return counts;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public long getMaxWaitMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxWaitNanos);
+    }
+
+    /** Pedidos recusados por a fila estar cheia. */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    @Override
+    public void close() {
+        synchronized (stateLock) {
+            closed = true;
+        }
+        dispatcher.interrupt();
+    }
+}
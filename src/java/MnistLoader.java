@@ -13,6 +13,20 @@ public class MnistLoader {
     public static final int IMAGE_MAGIC = 2051;
     public static final int LABEL_MAGIC = 2049;
 
+    public static final double PIXEL_MEAN = 0.1307;
+    public static final double PIXEL_STD = 0.3081;
+
+    /** Valor normalizado {@code (v/255 - mean) / std} de cada um dos 256 níveis de cinzento. */
+    public static final double[] NORMALIZED_PIXELS = new double[256];
+    public static final float[] NORMALIZED_PIXELS_FLOAT = new float[256];
+
+    static {
+        for (int value = 0; value < NORMALIZED_PIXELS.length; value++) {
+            NORMALIZED_PIXELS[value] = (value / 255.0 - PIXEL_MEAN) / PIXEL_STD;
+            NORMALIZED_PIXELS_FLOAT[value] = (float) NORMALIZED_PIXELS[value];
+        }
+    }
+
     public static class MnistDataset {
         private final double[][] images;
         private final int[] labels;
@@ -57,15 +71,10 @@ public class MnistLoader {
             double[][] images = new double[imagesToRead][pixelsPerImage];
             byte[] buffer = new byte[pixelsPerImage];
 
-            final double mean = 0.1307;
-            final double std = 0.3081;
-
             for (int i = 0; i < imagesToRead; i++) {
                 dis.readFully(buffer);
                 for (int j = 0; j < pixelsPerImage; j++) {
-                    int unsigned = buffer[j] & 0xFF;
-                    double normalized = (unsigned / 255.0 - mean) / std;
-                    images[i][j] = normalized;
+                    images[i][j] = NORMALIZED_PIXELS[buffer[j] & 0xFF];
                 }
             }
             return images;
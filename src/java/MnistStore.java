@@ -0,0 +1,141 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Dataset MNIST mapeado em memória diretamente a partir dos ficheiros IDX.
+ * Os píxeis ficam em uint8 (1 byte por píxel em vez de 8) e só são
+ * normalizados, através de {@link MnistLoader#NORMALIZED_PIXELS}, quando
+ * copiados para o buffer de um batch. Abrir o dataset não lê as imagens:
+ * as páginas são carregadas pelo sistema operativo à medida que são usadas.
+ */
+public class MnistStore implements SampleSource {
+    private final ByteBuffer pixels;
+    private final int imageOffset;
+    private final int pixelsPerImage;
+    private final int rows;
+    private final int cols;
+    private final int count;
+    private final byte[] labels;
+
+    private MnistStore(ByteBuffer pixels, int imageOffset, int rows, int cols, int count, byte[] labels) {
+        this.pixels = pixels;
+        this.imageOffset = imageOffset;
+        this.rows = rows;
+        this.cols = cols;
+        this.pixelsPerImage = rows * cols;
+        this.count = count;
+        this.labels = labels;
+    }
+
+    public static MnistStore open(String imagesPath, String labelsPath, int limit) throws IOException {
+        ByteBuffer images = map(imagesPath);
+        requireBytes(images, 16, "imagens", imagesPath);
+        int magic = images.getInt(0);
+        if (magic != MnistLoader.IMAGE_MAGIC) {
+            throw new IOException("Ficheiro de imagens inválido: magic number " + magic);
+        }
+        int totalImages = images.getInt(4);
+        int rows = images.getInt(8);
+        int cols = images.getInt(12);
+        if (totalImages < 0 || rows <= 0 || cols <= 0) {
+            throw new IOException("Cabeçalho inválido em " + imagesPath + ": " + totalImages + " imagens de " + rows + "x" + cols);
+        }
+        int imagesToRead = limit > 0 ? Math.min(limit, totalImages) : totalImages;
+        requireBytes(images, 16L + (long) imagesToRead * rows * cols, "imagens", imagesPath);
+
+        byte[] labels = loadLabels(labelsPath, imagesToRead);
+        if (labels.length != imagesToRead) {
+            throw new IOException("Número de imagens (" + imagesToRead + ") diferente do número de labels (" + labels.length + ")");
+        }
+        return new MnistStore(images, 16, rows, cols, imagesToRead, labels);
+    }
+
+    private static ByteBuffer map(String path) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(path + " tem mais de 2 GB; use o treino em streaming.");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static byte[] loadLabels(String path, int limit) throws IOException {
+        ByteBuffer buffer = map(path);
+        requireBytes(buffer, 8, "labels", path);
+        int magic = buffer.getInt(0);
+        if (magic != MnistLoader.LABEL_MAGIC) {
+            throw new IOException("Ficheiro de labels inválido: magic number " + magic);
+        }
+        int totalLabels = buffer.getInt(4);
+        if (totalLabels < 0) {
+            throw new IOException("Cabeçalho inválido em " + path + ": " + totalLabels + " labels");
+        }
+        int labelsToRead = Math.min(limit, totalLabels);
+        requireBytes(buffer, 8L + labelsToRead, "labels", path);
+        byte[] labels = new byte[labelsToRead];
+        buffer.get(8, labels);
+        return labels;
+    }
+
+    /** Falha com o nome do ficheiro se este tiver menos de {@code required} bytes. */
+    private static void requireBytes(ByteBuffer buffer, long required, String kind, String path) throws IOException {
+        if (buffer.limit() < required) {
+            throw new IOException("Ficheiro de " + kind + " truncado: esperados " + required + " bytes, "
+                    + path + " tem " + buffer.limit());
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int inputSize() {
+        return pixelsPerImage;
+    }
+
+    @Override
+    public void copyInput(int index, double[] destination, int offset) {
+        double[] table = MnistLoader.NORMALIZED_PIXELS;
+        int base = imageOffset + index * pixelsPerImage;
+        for (int j = 0; j < pixelsPerImage; j++) {
+            destination[offset + j] = table[pixels.get(base + j) & 0xFF];
+        }
+    }
+
+    @Override
+    public void copyInput(int index, float[] destination, int offset) {
+        float[] table = MnistLoader.NORMALIZED_PIXELS_FLOAT;
+        int base = imageOffset + index * pixelsPerImage;
+        for (int j = 0; j < pixelsPerImage; j++) {
+            destination[offset + j] = table[pixels.get(base + j) & 0xFF];
+        }
+    }
+
+    /** Copia os píxeis brutos (uint8) da imagem {@code index} para {@code destination[offset..]}. */
+    public void copyPixels(int index, byte[] destination, int offset) {
+        pixels.get(imageOffset + index * pixelsPerImage, destination, offset, pixelsPerImage);
+    }
+
+    /** Valor bruto (0-255) de um píxel. */
+    public int pixel(int index, int position) {
+        return pixels.get(imageOffset + index * pixelsPerImage + position) & 0xFF;
+    }
+
+    @Override
+    public int label(int index) {
+        return labels[index] & 0xFF;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+}
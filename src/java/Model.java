@@ -0,0 +1,131 @@
+import java.util.List;
+
+/**
+ * Cópia imutável dos pesos de uma rede treinada. Pode ser partilhada por
+ * qualquer número de threads; cada thread faz inferência através da sua
+ * própria {@link InferenceSession}. Com {@link Precision#FLOAT32} os pesos
+ * ficam guardados em float e a inferência é feita em float.
+ */
+public final class Model {
+    private final ActivationType[] activations;
+    private final int[] inputSizes;
+    private final int[] outputSizes;
+    private final double[][] weights;
+    private final double[][] biases;
+    private final float[][] floatWeights;
+    private final float[][] floatBiases;
+    private final boolean softmaxOutput;
+
+    Model(ActivationType[] activations, int[] inputSizes, int[] outputSizes,
+          double[][] weights, double[][] biases, boolean softmaxOutput) {
+        this(activations, inputSizes, outputSizes, weights, biases, null, null, softmaxOutput);
+    }
+
+    Model(ActivationType[] activations, int[] inputSizes, int[] outputSizes,
+          float[][] weights, float[][] biases, boolean softmaxOutput) {
+        this(activations, inputSizes, outputSizes, null, null, weights, biases, softmaxOutput);
+    }
+
+    private Model(ActivationType[] activations, int[] inputSizes, int[] outputSizes,
+                  double[][] weights, double[][] biases, float[][] floatWeights, float[][] floatBiases,
+                  boolean softmaxOutput) {
+        this.activations = activations;
+        this.inputSizes = inputSizes;
+        this.outputSizes = outputSizes;
+        this.weights = weights;
+        this.biases = biases;
+        this.floatWeights = floatWeights;
+        this.floatBiases = floatBiases;
+        this.softmaxOutput = softmaxOutput;
+    }
+
+    /** Copia os pesos atuais das camadas. */
+    public static Model of(List<Layer> layers, boolean softmaxOutput) {
+        int count = layers.size();
+        ActivationType[] activations = new ActivationType[count];
+        int[] inputSizes = new int[count];
+        int[] outputSizes = new int[count];
+        double[][] weights = new double[count][];
+        double[][] biases = new double[count][];
+        for (int i = 0; i < count; i++) {
+            Layer layer = layers.get(i);
+            activations[i] = layer.getActivationType();
+            inputSizes[i] = layer.getInputSize();
+            outputSizes[i] = layer.getOutputSize();
+            weights[i] = layer.getWeights().clone();
+            biases[i] = layer.getBiases().clone();
+        }
+        return new Model(activations, inputSizes, outputSizes, weights, biases, softmaxOutput);
+    }
+
+    /** Copia os pesos atuais das camadas, convertendo-os para float em {@link Precision#FLOAT32}. */
+    public static Model of(List<Layer> layers, boolean softmaxOutput, Precision precision) {
+        Model model = of(layers, softmaxOutput);
+        return precision == Precision.FLOAT32 ? model.toFloat32() : model;
+    }
+
+    private Model toFloat32() {
+        if (floatWeights != null) {
+            return this;
+        }
+        float[][] convertedWeights = new float[weights.length][];
+        float[][] convertedBiases = new float[biases.length][];
+        for (int i = 0; i < weights.length; i++) {
+            convertedWeights[i] = Float32Trainer.toFloat(weights[i]);
+            convertedBiases[i] = Float32Trainer.toFloat(biases[i]);
+        }
+        return new Model(activations, inputSizes, outputSizes, convertedWeights, convertedBiases, softmaxOutput);
+    }
+
+    public InferenceSession newSession() {
+        return new InferenceSession(this);
+    }
+
+    public int getLayerCount() {
+        return activations.length;
+    }
+
+    public Precision getPrecision() {
+        return floatWeights != null ? Precision.FLOAT32 : Precision.FLOAT64;
+    }
+
+    public int getInputSize() {
+        return inputSizes[0];
+    }
+
+    public int getOutputSize() {
+        return outputSizes[outputSizes.length - 1];
+    }
+
+    public int getInputSize(int layer) {
+        return inputSizes[layer];
+    }
+
+    public int getOutputSize(int layer) {
+        return outputSizes[layer];
+    }
+
+    public ActivationType getActivationType(int layer) {
+        return activations[layer];
+    }
+
+    public boolean hasSoftmaxOutput() {
+        return softmaxOutput;
+    }
+
+    double[] weights(int layer) {
+        return weights[layer];
+    }
+
+    double[] biases(int layer) {
+        return biases[layer];
+    }
+
+    float[] floatWeights(int layer) {
+        return floatWeights[layer];
+    }
+
+    float[] floatBiases(int layer) {
+        return floatBiases[layer];
+    }
+}
@@ -0,0 +1,379 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Formato binário versionado dos pesos da rede (substitui o CSV como
+ * formato principal). Tudo em little-endian:
+ *
+ * <pre>
+ * int    magic ("MNNW")
+ * int    versão
+ * int    dtype (0 = float64, 1 = float32, 2 = int8)
+ * int    número de camadas
+ * int    flags (bit 0 = softmax na saída)
+ * por camada: int inputSize, int outputSize, int ativação (ordinal)
+ * long   CRC32 do payload
+ * (padding até múltiplo de 8 bytes)
+ * payload: por camada, pesos [outputSize x inputSize] row-major e biases,
+ *         com 8 ou 4 bytes por valor conforme o dtype
+ * </pre>
+ *
+ * No dtype int8 ({@link QuantizedModel}) o payload de cada camada é
+ * {@code float escalaDaEntrada, float[outputSize] escalasDasLinhas,
+ * float[outputSize] biases, byte[outputSize x inputSize] pesos}, com
+ * padding até múltiplo de 4 bytes.
+ *
+ * A leitura mapeia o ficheiro em memória e copia cada bloco de uma vez
+ * para as matrizes das camadas, sem parsing nem objetos intermédios.
+ */
+public final class ModelFile {
+
+    public static final int MAGIC = 0x574E4E4D;
+    public static final int VERSION = 1;
+    public static final int DTYPE_FLOAT64 = 0;
+    public static final int DTYPE_FLOAT32 = 1;
+    public static final int DTYPE_INT8 = 2;
+
+    private static final int FLAG_SOFTMAX = 1;
+
+    private ModelFile() {
+    }
+
+    public static void write(Path path, List<Layer> layers, boolean softmaxOutput) throws IOException {
+        write(path, Model.of(layers, softmaxOutput));
+    }
+
+    public static void write(Path path, List<Layer> layers, boolean softmaxOutput, Precision precision)
+            throws IOException {
+        write(path, Model.of(layers, softmaxOutput, precision));
+    }
+
+    /**
+     * Escreve o modelo num ficheiro temporário, força-o para o disco e só
+     * então substitui o destino, para que um ficheiro meio escrito nunca
+     * fique no lugar do anterior, nem depois de um crash do sistema.
+     */
+    public static void write(Path path, Model model) throws IOException {
+        int layerCount = model.getLayerCount();
+        boolean float32 = model.getPrecision() == Precision.FLOAT32;
+        int dtype = float32 ? DTYPE_FLOAT32 : DTYPE_FLOAT64;
+        int payloadSize = 0;
+        for (int i = 0; i < layerCount; i++) {
+            payloadSize += (int) layerPayloadBytes(dtype, model.getInputSize(i), model.getOutputSize(i));
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(payloadSize).order(ByteOrder.LITTLE_ENDIAN);
+        if (float32) {
+            FloatBuffer floats = payload.asFloatBuffer();
+            for (int i = 0; i < layerCount; i++) {
+                floats.put(model.floatWeights(i));
+                floats.put(model.floatBiases(i));
+            }
+        } else {
+            DoubleBuffer doubles = payload.asDoubleBuffer();
+            for (int i = 0; i < layerCount; i++) {
+                doubles.put(model.weights(i));
+                doubles.put(model.biases(i));
+            }
+        }
+
+        int[] inputSizes = new int[layerCount];
+        int[] outputSizes = new int[layerCount];
+        ActivationType[] activations = new ActivationType[layerCount];
+        for (int i = 0; i < layerCount; i++) {
+            inputSizes[i] = model.getInputSize(i);
+            outputSizes[i] = model.getOutputSize(i);
+            activations[i] = model.getActivationType(i);
+        }
+        writeFile(path, dtype, model.hasSoftmaxOutput(),
+                inputSizes, outputSizes, activations, payload);
+    }
+
+    /** Escreve um {@link QuantizedModel} com o dtype int8. */
+    public static void writeQuantized(Path path, QuantizedModel model) throws IOException {
+        int layerCount = model.getLayerCount();
+        int[] inputSizes = new int[layerCount];
+        int[] outputSizes = new int[layerCount];
+        ActivationType[] activations = new ActivationType[layerCount];
+        int payloadSize = 0;
+        for (int i = 0; i < layerCount; i++) {
+            inputSizes[i] = model.getInputSize(i);
+            outputSizes[i] = model.getOutputSize(i);
+            activations[i] = model.getActivationType(i);
+            payloadSize += (int) layerPayloadBytes(DTYPE_INT8, inputSizes[i], outputSizes[i]);
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(payloadSize).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < layerCount; i++) {
+            int start = payload.position();
+            payload.putFloat(model.inputScale(i));
+            payload.asFloatBuffer().put(model.rowScales(i)).put(model.biases(i));
+            payload.position(payload.position() + 2 * outputSizes[i] * Float.BYTES);
+            payload.put(model.weights(i));
+            payload.position(start + (int) layerPayloadBytes(DTYPE_INT8, inputSizes[i], outputSizes[i]));
+        }
+        payload.position(0);
+        writeFile(path, DTYPE_INT8, model.hasSoftmaxOutput(), inputSizes, outputSizes, activations, payload);
+    }
+
+    private static void writeFile(Path path, int dtype, boolean softmaxOutput, int[] inputSizes, int[] outputSizes,
+                                  ActivationType[] activations, ByteBuffer payload) throws IOException {
+        int layerCount = inputSizes.length;
+        int headerSize = align8(5 * Integer.BYTES + layerCount * 3 * Integer.BYTES + Long.BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(payload.array(), 0, payload.limit());
+
+        ByteBuffer header = ByteBuffer.allocate(headerSize).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(dtype);
+        header.putInt(layerCount);
+        header.putInt(softmaxOutput ? FLAG_SOFTMAX : 0);
+        for (int i = 0; i < layerCount; i++) {
+            header.putInt(inputSizes[i]);
+            header.putInt(outputSizes[i]);
+            header.putInt(activations[i].ordinal());
+        }
+        header.putLong(crc.getValue());
+        header.position(0);
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer[] blocks = {header, payload};
+            while (header.hasRemaining() || payload.hasRemaining()) {
+                channel.write(blocks);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Carrega os pesos para camadas já construídas, validando que a
+     * arquitetura do ficheiro coincide com a delas. Um ficheiro float32 é
+     * convertido para os pesos double das camadas.
+     */
+    public static void read(Path path, List<Layer> layers) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            Header header = readHeader(buffer, path);
+            requireFloatingPoint(header, path);
+
+            if (header.layerCount != layers.size()) {
+                throw new IOException(String.format("%s tem %d camadas, a rede tem %d.",
+                        path, header.layerCount, layers.size()));
+            }
+            for (int i = 0; i < layers.size(); i++) {
+                Layer layer = layers.get(i);
+                if (header.inputSizes[i] != layer.getInputSize() || header.outputSizes[i] != layer.getOutputSize()
+                        || header.activations[i] != layer.getActivationType()) {
+                    throw new IOException(String.format(
+                            "Camada %d em %s é %dx%d %s, esperado %dx%d %s.", i, path,
+                            header.outputSizes[i], header.inputSizes[i], header.activations[i],
+                            layer.getOutputSize(), layer.getInputSize(), layer.getActivationType()));
+                }
+            }
+
+            ByteBuffer payload = buffer.position(header.payloadOffset).slice().order(ByteOrder.LITTLE_ENDIAN);
+            if (header.dtype == DTYPE_FLOAT32) {
+                FloatBuffer floats = payload.asFloatBuffer();
+                for (Layer layer : layers) {
+                    readFloats(floats, layer.getWeights());
+                    readFloats(floats, layer.getBiases());
+                }
+            } else {
+                DoubleBuffer doubles = payload.asDoubleBuffer();
+                for (Layer layer : layers) {
+                    doubles.get(layer.getWeights());
+                    doubles.get(layer.getBiases());
+                }
+            }
+        }
+    }
+
+    /**
+     * Lê o ficheiro diretamente para um {@link Model} imutável, na precisão
+     * em que foi guardado.
+     */
+    public static Model readModel(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            Header header = readHeader(buffer, path);
+            requireFloatingPoint(header, path);
+
+            ByteBuffer payload = buffer.position(header.payloadOffset).slice().order(ByteOrder.LITTLE_ENDIAN);
+            if (header.dtype == DTYPE_FLOAT32) {
+                FloatBuffer floats = payload.asFloatBuffer();
+                float[][] weights = new float[header.layerCount][];
+                float[][] biases = new float[header.layerCount][];
+                for (int i = 0; i < header.layerCount; i++) {
+                    weights[i] = new float[header.inputSizes[i] * header.outputSizes[i]];
+                    biases[i] = new float[header.outputSizes[i]];
+                    floats.get(weights[i]);
+                    floats.get(biases[i]);
+                }
+                return new Model(header.activations, header.inputSizes, header.outputSizes,
+                        weights, biases, header.softmaxOutput);
+            }
+
+            DoubleBuffer doubles = payload.asDoubleBuffer();
+            double[][] weights = new double[header.layerCount][];
+            double[][] biases = new double[header.layerCount][];
+            for (int i = 0; i < header.layerCount; i++) {
+                weights[i] = new double[header.inputSizes[i] * header.outputSizes[i]];
+                biases[i] = new double[header.outputSizes[i]];
+                doubles.get(weights[i]);
+                doubles.get(biases[i]);
+            }
+            return new Model(header.activations, header.inputSizes, header.outputSizes,
+                    weights, biases, header.softmaxOutput);
+        }
+    }
+
+    /** Lê um modelo guardado com {@link #writeQuantized}. */
+    public static QuantizedModel readQuantized(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            Header header = readHeader(buffer, path);
+            if (header.dtype != DTYPE_INT8) {
+                throw new IOException(path + " não é um modelo int8.");
+            }
+
+            int count = header.layerCount;
+            byte[][] weights = new byte[count][];
+            float[][] rowScales = new float[count][];
+            float[][] biases = new float[count][];
+            float[] inputScales = new float[count];
+            int position = header.payloadOffset;
+            for (int i = 0; i < count; i++) {
+                int outputSize = header.outputSizes[i];
+                ByteBuffer layer = buffer.position(position).slice().order(ByteOrder.LITTLE_ENDIAN);
+                inputScales[i] = layer.getFloat();
+                rowScales[i] = new float[outputSize];
+                biases[i] = new float[outputSize];
+                layer.asFloatBuffer().get(rowScales[i]).get(biases[i]);
+                layer.position(layer.position() + 2 * outputSize * Float.BYTES);
+                weights[i] = new byte[header.inputSizes[i] * outputSize];
+                layer.get(weights[i]);
+                position += (int) layerPayloadBytes(DTYPE_INT8, header.inputSizes[i], outputSize);
+            }
+            return new QuantizedModel(header.activations, header.inputSizes, header.outputSizes,
+                    weights, rowScales, biases, inputScales, header.softmaxOutput);
+        }
+    }
+
+    private static void requireFloatingPoint(Header header, Path path) throws IOException {
+        if (header.dtype == DTYPE_INT8) {
+            throw new IOException(path + " é um modelo int8; use ModelFile.readQuantized.");
+        }
+    }
+
+    private static long layerPayloadBytes(int dtype, int inputSize, int outputSize) {
+        long weights = (long) inputSize * outputSize;
+        switch (dtype) {
+            case DTYPE_FLOAT32:
+                return (weights + outputSize) * Float.BYTES;
+            case DTYPE_INT8:
+                return align4(Float.BYTES + 2L * outputSize * Float.BYTES + weights);
+            case DTYPE_FLOAT64:
+            default:
+                return (weights + outputSize) * Double.BYTES;
+        }
+    }
+
+    private static Header readHeader(ByteBuffer buffer, Path path) throws IOException {
+        if (buffer.remaining() < 5 * Integer.BYTES) {
+            throw new IOException("Ficheiro de modelo truncado: " + path);
+        }
+        int magic = buffer.getInt();
+        if (magic != MAGIC) {
+            throw new IOException("Ficheiro de modelo inválido: magic number " + magic + " em " + path);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Versão de modelo não suportada: " + version + " em " + path);
+        }
+        int dtype = buffer.getInt();
+        if (dtype != DTYPE_FLOAT64 && dtype != DTYPE_FLOAT32 && dtype != DTYPE_INT8) {
+            throw new IOException("Tipo de dados não suportado: " + dtype + " em " + path);
+        }
+
+        Header header = new Header();
+        header.dtype = dtype;
+        header.layerCount = buffer.getInt();
+        header.softmaxOutput = (buffer.getInt() & FLAG_SOFTMAX) != 0;
+        if (header.layerCount <= 0 || buffer.remaining() < header.layerCount * 3 * Integer.BYTES + Long.BYTES) {
+            throw new IOException("Cabeçalho de modelo inválido em " + path);
+        }
+        header.inputSizes = new int[header.layerCount];
+        header.outputSizes = new int[header.layerCount];
+        header.activations = new ActivationType[header.layerCount];
+        long payloadSize = 0;
+        for (int i = 0; i < header.layerCount; i++) {
+            header.inputSizes[i] = buffer.getInt();
+            header.outputSizes[i] = buffer.getInt();
+            int activation = buffer.getInt();
+            if (activation < 0 || activation >= ActivationType.values().length) {
+                throw new IOException("Ativação desconhecida " + activation + " na camada " + i + " de " + path);
+            }
+            header.activations[i] = ActivationType.values()[activation];
+            payloadSize += layerPayloadBytes(dtype, header.inputSizes[i], header.outputSizes[i]);
+        }
+        long checksum = buffer.getLong();
+        header.payloadOffset = align8(buffer.position());
+
+        if (header.payloadOffset + payloadSize != buffer.limit()) {
+            throw new IOException(String.format("Tamanho inválido de %s: esperado %d bytes, encontrado %d.",
+                    path, header.payloadOffset + payloadSize, buffer.limit()));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().position(header.payloadOffset));
+        if (crc.getValue() != checksum) {
+            throw new IOException("Checksum inválido em " + path + ": o ficheiro está corrompido.");
+        }
+        return header;
+    }
+
+    private static void readFloats(FloatBuffer floats, double[] target) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] = floats.get();
+        }
+    }
+
+    private static int align8(int value) {
+        return (value + 7) & ~7;
+    }
+
+    private static long align4(long value) {
+        return (value + 3) & ~3L;
+    }
+
+    private static final class Header {
+        int layerCount;
+        int dtype;
+        boolean softmaxOutput;
+        int[] inputSizes;
+        int[] outputSizes;
+        ActivationType[] activations;
+        int payloadOffset;
+    }
+}
@@ -0,0 +1,56 @@
+/**
+ * SGD com momentum (formulação do PyTorch): {@code v = μ·v + g} e
+ * {@code p -= lr·v}, ou {@code p -= lr·(g + μ·v)} com Nesterov. O gradiente
+ * é a média do batch.
+ */
+public final class MomentumOptimizer implements Optimizer {
+    public static final double DEFAULT_MOMENTUM = 0.9;
+
+    private final double momentum;
+    private final boolean nesterov;
+
+    public MomentumOptimizer(double momentum, boolean nesterov) {
+        if (!(momentum >= 0.0 && momentum < 1.0)) {
+            throw new IllegalArgumentException("Momentum tem de estar em [0, 1): " + momentum);
+        }
+        this.momentum = momentum;
+        this.nesterov = nesterov;
+    }
+
+    @Override
+    public int stateArrays() {
+        return 1;
+    }
+
+    @Override
+    public void update(double[] params, double[] gradients, double[][] state, double learningRate, int batchSize,
+                       long step) {
+        double[] velocity = state[0];
+        double mu = momentum;
+        double inverseBatch = 1.0 / batchSize;
+        if (nesterov) {
+            for (int i = 0; i < params.length; i++) {
+                double g = gradients[i] * inverseBatch;
+                double v = mu * velocity[i] + g;
+                velocity[i] = v;
+                params[i] -= learningRate * (g + mu * v);
+            }
+        } else {
+            for (int i = 0; i < params.length; i++) {
+                double v = mu * velocity[i] + gradients[i] * inverseBatch;
+                velocity[i] = v;
+                params[i] -= learningRate * v;
+            }
+        }
+    }
+
+    @Override
+    public String name() {
+        return nesterov ? "nesterov" : "momentum";
+    }
+
+    @Override
+    public double defaultLearningRate() {
+        return 0.01;
+    }
+}
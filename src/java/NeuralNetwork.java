@@ -6,77 +6,278 @@ import java.util.List;
 import java.util.Random;
 
 public class NeuralNetwork {
+    private static final Kernels KERNELS = KernelBackends.active();
+
     private final ArrayList<Layer> layers;
     private final double[][] lastInputsPerLayer;
     private final double[][] lastOutputsPerLayer;
+    private final double[] probabilities;
+    private final Random shuffleRandom = new Random();
     private final boolean useSoftmaxOutput = true;
-    private final int batchSize = 64;
+    private int batchSize;
+    private int workerThreads = 1;
+    private boolean asynchronous;
+    private Long seed;
+    private Precision precision = Precision.FLOAT64;
     private double learningRate;
+    private double baseLearningRate;
+    private Optimizer optimizer = new SgdOptimizer();
+    private LearningRateSchedule schedule = LearningRateSchedule.constant();
+    private double[][] optimizerState;
+    private TrainingMetrics metrics = new TrainingMetrics();
+    private String checkpointPath;
+    private int checkpointEveryEpochs;
+    private int checkpointEverySeconds;
+    private TrainingCheckpoint resumeState;
+    private SampleSource validation;
+    private int patience;
+    private boolean keepBest;
+    private boolean sparseInput;
+    private int metricsInterval = TrainingMetrics.DEFAULT_REPORT_INTERVAL_SECONDS;
+    private BatchWorkspace epochWorkspace;
+    private int[] epochOrder;
+
+    public static final int DEFAULT_BATCH_SIZE = 64;
+    /** Ficheiro de métricas (JSON lines), escrito ao lado do log de loss. */
+    public static final String METRICS_FILE_NAME = "metrics.jsonl";
 
     public NeuralNetwork(ArrayList<Layer> layers) {
+        this(layers, DEFAULT_BATCH_SIZE);
+    }
+
+    public NeuralNetwork(ArrayList<Layer> layers, int batchSize) {
         this.layers = layers;
         this.lastInputsPerLayer = new double[layers.size()][];
         this.lastOutputsPerLayer = new double[layers.size()][];
+        this.probabilities = new double[layers.get(layers.size() - 1).getOutputSize()];
+        setBatchSize(batchSize);
     }
 
+    /**
+     * Treina sobre targets one-hot, um por amostra, com uma posição por
+     * classe da camada de saída; um target que não o seja é rejeitado com
+     * {@link IllegalArgumentException}.
+     */
     public void train(double[][] inputs, double[][] targets, double lossThreshold, double learningRate,
                       String lossLogPath, String weightsPath) {
         if (inputs.length != targets.length) {
             throw new IllegalArgumentException("Inputs e targets têm comprimentos diferentes.");
         }
+        int classes = layers.get(layers.size() - 1).getOutputSize();
+        train(new ArraySampleSource(inputs, targets, classes), lossThreshold, learningRate, lossLogPath, weightsPath);
+    }
+
+    /**
+     * Treina até o loss médio da época descer abaixo de {@code lossThreshold}
+     * ou aumentar face a 10 épocas antes. As amostras são lidas da fonte
+     * pela ordem de uma permutação de índices baralhada em cada época.
+     * {@code learningRate} é a taxa base do {@link LearningRateSchedule}.
+     */
+    public void train(SampleSource source, double lossThreshold, double learningRate,
+                      String lossLogPath, String weightsPath) {
+        requireInputSize(source.inputSize());
+        this.baseLearningRate = learningRate;
+        if (!(optimizer instanceof SgdOptimizer) && (precision == Precision.FLOAT32 || asynchronous)) {
+            throw new IllegalStateException("O otimizador " + optimizer.name()
+                    + " não é suportado nos modos float32 e assíncrono; use sgd.");
+        }
+        if (sparseInput && (precision == Precision.FLOAT32 || asynchronous)) {
+            throw new IllegalStateException("O caminho esparso só suporta o treino em bloco em float64.");
+        }
+        if (precision == Precision.FLOAT32) {
+            trainFloat32(source, lossThreshold, lossLogPath, weightsPath);
+            return;
+        }
+
+        DataParallelTrainer parallelTrainer = workerThreads > 1 && !asynchronous
+                ? new DataParallelTrainer(this, layers, workerThreads, batchSize)
+                : null;
+        HogwildTrainer hogwildTrainer = asynchronous ? new HogwildTrainer(this, layers, workerThreads) : null;
+        BatchWorkspace workspace = parallelTrainer == null && hogwildTrainer == null
+                ? newWorkspace(batchSize)
+                : null;
+
+        int samples = source.size();
+        int[] order = new int[samples];
+        for (int i = 0; i < samples; i++) {
+            order[i] = i;
+        }
+
+        try {
+            runTraining(samples, epoch -> {
+                shuffleOrder(order, epoch);
+                return hogwildTrainer != null
+                        ? hogwildTrainer.runEpoch(source, order, epoch, this.learningRate, batchSize)
+                        : runSynchronousEpoch(source, order, epoch, workspace, parallelTrainer, true);
+            }, lossThreshold, lossLogPath, weightsPath);
+        } finally {
+            if (parallelTrainer != null) {
+                parallelTrainer.close();
+            }
+            if (hogwildTrainer != null) {
+                hogwildTrainer.close();
+            }
+        }
+    }
+
+    /**
+     * Treino em float32 com {@link Float32Trainer}, numa só thread. Os pesos
+     * das camadas são atualizados no fim de cada época.
+     */
+    private void trainFloat32(SampleSource source, double lossThreshold, String lossLogPath, String weightsPath) {
+        if (workerThreads > 1 || asynchronous) {
+            throw new IllegalStateException("O modo float32 só suporta o treino síncrono numa thread.");
+        }
+        Float32Trainer trainer = new Float32Trainer(layers, batchSize, metrics);
+
+        int samples = source.size();
+        int[] order = new int[samples];
+        for (int i = 0; i < samples; i++) {
+            order[i] = i;
+        }
+
+        runTraining(samples, epoch -> {
+            shuffleOrder(order, epoch);
+            double totalLoss = 0.0;
+            for (int start = 0; start < samples; start += batchSize) {
+                int rows = Math.min(batchSize, samples - start);
+                totalLoss += trainer.trainBatch(source, order, start, rows, learningRate);
+                metrics.addSamples(rows);
+                reportProgress(epoch, start, start + rows, samples, totalLoss);
+            }
+            trainer.copyWeightsTo(layers);
+            return totalLoss;
+        }, lossThreshold, lossLogPath, weightsPath);
+    }
+
+    /**
+     * Treino a partir de batches que chegam já normalizados das threads
+     * produtoras do {@code loader}: leitura em streaming
+     * ({@link StreamingBatchLoader}), em que o dataset nunca precisa de caber
+     * em memória, ou aumento de dados ({@link AugmentingBatchLoader}). No
+     * fim de cada época é mostrado o tempo que o treino esteve parado à
+     * espera de dados. Não suporta o modo assíncrono.
+     */
+    public void train(BatchLoader loader, double lossThreshold, double learningRate,
+                      String lossLogPath, String weightsPath) {
+        requireInputSize(loader.inputSize());
+        if (asynchronous) {
+            throw new IllegalStateException("O treino em streaming ou com aumento de dados não suporta o modo assíncrono.");
+        }
+        if (precision == Precision.FLOAT32) {
+            throw new IllegalStateException("O treino em streaming ou com aumento de dados não suporta o modo float32.");
+        }
+        this.baseLearningRate = learningRate;
+
+        DataParallelTrainer parallelTrainer = workerThreads > 1
+                ? new DataParallelTrainer(this, layers, workerThreads, batchSize)
+                : null;
+        BatchWorkspace workspace = parallelTrainer == null ? newWorkspace(batchSize) : null;
 
-        this.learningRate = learningRate;
+        try {
+            runTraining(loader.size(), epoch -> runStreamingEpoch(loader, epoch, workspace, parallelTrainer),
+                    lossThreshold, lossLogPath, weightsPath);
+        } finally {
+            if (parallelTrainer != null) {
+                parallelTrainer.close();
+            }
+        }
+    }
+
+    /** Falha antes de treinar se as amostras não tiverem o tamanho da entrada da primeira camada. */
+    private void requireInputSize(int inputSize) {
+        int expected = layers.get(0).getInputSize();
+        if (inputSize != expected) {
+            throw new IllegalArgumentException("As amostras têm " + inputSize + " valores, a rede espera " + expected);
+        }
+    }
+
+    /**
+     * Treina uma única época {@code epoch} sobre {@code source} na thread
+     * que chama, sem logs, ficheiros nem checkpoints, com o learning rate
+     * do schedule para essa época. É o passo usado por quem decide de fora
+     * quando parar, como o {@link HyperparameterSweep}; o workspace e a
+     * permutação são reutilizados entre chamadas. Devolve o loss médio.
+     */
+    public double trainEpoch(SampleSource source, double learningRate, int epoch) {
+        requireInputSize(source.inputSize());
+        if (precision == Precision.FLOAT32 || asynchronous) {
+            throw new IllegalStateException("O treino época a época só suporta o modo síncrono em float64.");
+        }
+        this.baseLearningRate = learningRate;
+        this.learningRate = schedule.rate(learningRate, epoch);
+        int samples = source.size();
+        if (epochWorkspace == null || epochWorkspace.getCapacity() != batchSize) {
+            epochWorkspace = newWorkspace(batchSize);
+            metrics.trackLayers(layers.size());
+        }
+        if (epochOrder == null || epochOrder.length != samples) {
+            epochOrder = new int[samples];
+        }
+        shuffleOrder(epochOrder, epoch);
+        return runSynchronousEpoch(source, epochOrder, epoch, epochWorkspace, null, false) / samples;
+    }
+
+    private void runTraining(int samples, EpochRunner epochRunner, double lossThreshold,
+                             String lossLogPath, String weightsPath) {
         int epoch = 0;
         List<Double> lossHistory = new ArrayList<>();
         Double previousEpochLoss = null;
+        if (resumeState != null) {
+            epoch = resumeState.getEpoch();
+            for (double loss : resumeState.getLossHistory()) {
+                lossHistory.add(loss);
+            }
+            previousEpochLoss = lossHistory.isEmpty() ? null : lossHistory.get(lossHistory.size() - 1);
+            resumeState = null;
+        }
 
         try {
             ensureParentDirectory(lossLogPath);
             ensureParentDirectory(weightsPath);
+            metrics.trackLayers(layers.size());
+            metrics.start(Path.of(lossLogPath).resolveSibling(METRICS_FILE_NAME), metricsInterval);
         } catch (IOException e) {
             throw new RuntimeException("Não foi possível preparar diretórios de saída: " + e.getMessage(), e);
         }
 
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(lossLogPath))) {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(lossLogPath));
+             Checkpointer checkpointer = checkpointPath == null || (checkpointEveryEpochs == 0 && checkpointEverySeconds == 0)
+                     ? null
+                     : new Checkpointer(layers, Path.of(checkpointPath), checkpointEveryEpochs, checkpointEverySeconds);
+             AsyncValidator validator = validation == null ? null : new AsyncValidator(layers, useSoftmaxOutput,
+                     precision, validation, metrics, patience, validationThreads())) {
 
+            for (double loss : lossHistory) {
+                writeLoss(writer, loss);
+            }
             while (true) {
-                shuffleData(inputs, targets);
-                double totalLoss = 0.0;
-                int samplesProcessed = 0;
-                int progressInterval = Math.max(1, inputs.length / 20);
-
-                for (int start = 0; start < inputs.length; start += batchSize) {
-                    int end = Math.min(start + batchSize, inputs.length);
-                    resetGradients();
-
-                    for (int i = start; i < end; i++) {
-                        double[] output = forward(inputs[i]);
-                        totalLoss += sampleError(output, targets[i]);
-                        backward(targets[i]);
-                        accumulateGradients();
-
-                        samplesProcessed++;
-                        if (samplesProcessed % progressInterval == 0 || samplesProcessed == inputs.length) {
-                            double partialLoss = totalLoss / samplesProcessed;
-                            System.out.println(String.format("   -> Época %d | Amostra %d/%d | Loss parcial: %.6f",
-                                    epoch + 1, samplesProcessed, inputs.length, partialLoss));
-                        }
-                    }
-
-                    applyGradients(end - start);
+                learningRate = schedule.rate(baseLearningRate, epoch);
+                if (learningRate <= 0.0) {
+                    System.out.println("O learning rate chegou a zero após a época " + epoch + ". Interrompendo o treinamento.");
+                    break;
                 }
+                metrics.beginEpoch();
+                double totalLoss = epochRunner.run(epoch);
 
-                double epochLoss = totalLoss / inputs.length;
+                double epochLoss = totalLoss / samples;
                 lossHistory.add(epochLoss);
+                metrics.endEpoch(epoch + 1, samples, epochLoss);
 
-                writer.write(" " + String.format("%.100f", epochLoss).replace('.', ','));
-                writer.newLine();
+                writeLoss(writer, epochLoss);
 
                 epoch++;
+                if (checkpointer != null) {
+                    checkpointer.onEpochEnd(epoch, lossHistory, seed, learningRate, optimizerState());
+                }
 
                 double delta = previousEpochLoss == null ? 0.0 : epochLoss - previousEpochLoss;
                 String deltaStr = previousEpochLoss == null ? "" : String.format(" (Δ %.6f)", delta);
-                System.out.println("Época " + epoch + " - Loss: " + String.format("%.6f", epochLoss) + deltaStr);
+                String rateStr = schedule.isConstant() ? "" : String.format(" | LR %.6g", learningRate);
+                System.out.println("Época " + epoch + " - Loss: " + String.format("%.6f", epochLoss) + deltaStr + rateStr);
+                if (validator != null) {
+                    validator.onEpochEnd(epoch);
+                }
                 previousEpochLoss = epochLoss;
 
                 if (epochLoss < lossThreshold) {
@@ -92,15 +293,222 @@ public class NeuralNetwork {
                         break;
                     }
                 }
+
+                if (validator != null && validator.shouldStop()) {
+                    System.out.println("A validação deixou de melhorar (época " + epoch + "). Interrompendo o treinamento.");
+                    break;
+                }
             }
 
-            saveWeights(weightsPath);
+            if (validator != null) {
+                validator.finish();
+                if (validator.getBestEpoch() > 0) {
+                    System.out.println(String.format("Melhor validação: época %d (accuracy %.2f%%)",
+                            validator.getBestEpoch(), validator.getBestAccuracy()));
+                }
+                if (keepBest && validator.restoreBest(layers)) {
+                    System.out.println("A guardar os pesos da época " + validator.getBestEpoch() + ".");
+                }
+            }
+            saveModel(weightsPath);
+            metrics.printSummary();
 
         } catch (IOException e) {
             System.err.println("Erro ao escrever valores de loss no arquivo: " + e.getMessage());
+        } finally {
+            metrics.stop();
         }
     }
 
+    private static void writeLoss(BufferedWriter writer, double loss) throws IOException {
+        writer.write(" " + String.format("%.100f", loss).replace('.', ','));
+        writer.newLine();
+    }
+
+    private interface EpochRunner {
+        double run(int epoch);
+    }
+
+    /**
+     * Uma época síncrona sobre {@code order}, com {@code workspace} ou com
+     * {@code parallelTrainer}. Sem {@code progress} o ciclo dos batches não
+     * aloca nada depois do aquecimento; as linhas de progresso, até 20 por
+     * época, formatam texto.
+     */
+    private double runSynchronousEpoch(SampleSource source, int[] order, int epoch,
+                                       BatchWorkspace workspace, DataParallelTrainer parallelTrainer,
+                                       boolean progress) {
+        double totalLoss = 0.0;
+        int samples = order.length;
+        int samplesProcessed = 0;
+
+        for (int start = 0; start < samples; start += batchSize) {
+            int end = Math.min(start + batchSize, samples);
+            int rows = end - start;
+
+            if (parallelTrainer != null) {
+                totalLoss += parallelTrainer.trainBatch(source, order, start, rows);
+            } else {
+                long loadStart = metrics.start();
+                workspace.load(source, order, start, rows);
+                metrics.record(TrainingMetrics.Phase.DATA, loadStart);
+                totalLoss += trainBatch(workspace, rows);
+            }
+
+            metrics.addSamples(rows);
+            if (progress) {
+                reportProgress(epoch, samplesProcessed, samplesProcessed + rows, samples, totalLoss);
+            }
+            samplesProcessed += rows;
+        }
+        return totalLoss;
+    }
+
+    private double runStreamingEpoch(BatchLoader loader, int epoch,
+                                     BatchWorkspace workspace, DataParallelTrainer parallelTrainer) {
+        double totalLoss = 0.0;
+        int samplesProcessed = 0;
+        long waitNanos = 0;
+        long epochStart = System.nanoTime();
+
+        try {
+            while (true) {
+                long waitStart = System.nanoTime();
+                SampleBatch batch = loader.next();
+                long waited = System.nanoTime() - waitStart;
+                waitNanos += waited;
+                if (batch == null) {
+                    break;
+                }
+                metrics.recordNanos(TrainingMetrics.Phase.DATA, waited);
+
+                int rows = batch.getRows();
+                if (parallelTrainer != null) {
+                    totalLoss += parallelTrainer.trainBatch(batch);
+                } else {
+                    long loadStart = metrics.start();
+                    workspace.load(batch, 0, rows);
+                    metrics.record(TrainingMetrics.Phase.DATA, loadStart);
+                    totalLoss += trainBatch(workspace, rows);
+                }
+                loader.release(batch);
+                metrics.addSamples(rows);
+
+                reportProgress(epoch, samplesProcessed, samplesProcessed + rows, loader.size(), totalLoss);
+                samplesProcessed += rows;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Treino em streaming interrompido", e);
+        }
+
+        long epochNanos = System.nanoTime() - epochStart;
+        System.out.println(String.format("   -> Espera por dados: %.1f ms (%.1f%% da época)",
+                waitNanos / 1e6, 100.0 * waitNanos / epochNanos));
+        return totalLoss;
+    }
+
+    private void reportProgress(int epoch, int before, int after, int samples, double totalLoss) {
+        int progressInterval = Math.max(1, samples / 20);
+        if (after / progressInterval > before / progressInterval || after == samples) {
+            double partialLoss = totalLoss / after;
+            System.out.println(String.format("   -> Época %d | Amostra %d/%d | Loss parcial: %.6f",
+                    epoch + 1, after, samples, partialLoss));
+        }
+    }
+
+    /**
+     * Executa forward, backward e atualização dos pesos para as {@code rows}
+     * primeiras amostras carregadas no workspace, camada a camada em bloco.
+     * Devolve a soma do loss das amostras do batch.
+     */
+    public double trainBatch(BatchWorkspace workspace, int rows) {
+        workspace.resetGradients();
+        double loss = computeGradients(workspace, rows);
+        applyGradients(workspace, rows);
+        return loss;
+    }
+
+    /**
+     * Forward e backward em bloco, somando os gradientes aos acumuladores
+     * do workspace sem tocar nos pesos. Só lê o estado partilhado da rede,
+     * pelo que vários workers podem chamá-lo em simultâneo com workspaces
+     * distintos.
+     */
+    public double computeGradients(BatchWorkspace workspace, int rows) {
+        double loss = forwardBackward(workspace, rows);
+        long gradientsStart = metrics.start();
+        SparseInputPath sparse = workspace.getSparseInput();
+        for (int i = 0; i < layers.size(); i++) {
+            ActiveUnits active = workspace.getActiveUnits(i);
+            if (i == 0 && sparse != null && sparse.isActive()) {
+                sparse.accumulateGradients(workspace.getDeltas(0), rows, workspace.getWeightGradients(0),
+                        workspace.getBiasGradients(0));
+            } else if (active != null) {
+                layers.get(i).accumulateGradientsBatch(workspace.layerInputs(i), workspace.getDeltas(i), rows,
+                        workspace.getWeightGradients(i), workspace.getBiasGradients(i), active);
+            } else {
+                layers.get(i).accumulateGradientsBatch(workspace.layerInputs(i), workspace.getDeltas(i), rows,
+                        workspace.getWeightGradients(i), workspace.getBiasGradients(i));
+            }
+        }
+        metrics.record(TrainingMetrics.Phase.GRADIENTS, gradientsStart);
+        return loss;
+    }
+
+    /**
+     * Forward e propagação dos deltas em bloco, deixando no workspace as
+     * ativações e os deltas de cada camada. Devolve a soma do loss.
+     */
+    public double forwardBackward(BatchWorkspace workspace, int rows) {
+        long forwardStart = metrics.start();
+        int lastLayer = layers.size() - 1;
+        double[] current = workspace.getInputs();
+        SparseInputPath sparse = workspace.getSparseInput();
+        for (int i = 0; i < layers.size(); i++) {
+            if (i > 0 || sparse == null || !sparse.forward(layers.get(0), current, rows, workspace.getActivations(0))) {
+                layers.get(i).forwardBatch(current, rows, workspace.getActivations(i));
+            }
+            current = workspace.getActivations(i);
+            ActiveUnits active = workspace.getActiveUnits(i);
+            if (active != null) {
+                active.build(current, rows);
+                metrics.recordActivity(i, active.count(), (long) rows * active.units());
+            }
+        }
+
+        int outputSize = getOutputSize();
+        double[] probabilities = workspace.getActivations(lastLayer);
+        int[] labels = workspace.getLabels();
+        double[] outputDeltas = workspace.getDeltas(lastLayer);
+        double loss = 0.0;
+        for (int r = 0; r < rows; r++) {
+            loss += outputLossAndDeltas(probabilities, r * outputSize, labels[r], outputDeltas);
+        }
+        long backwardStart = metrics.start();
+        metrics.recordNanos(TrainingMetrics.Phase.FORWARD, backwardStart - forwardStart);
+
+        for (int i = lastLayer; i > 0; i--) {
+            ActiveUnits previousActive = workspace.getActiveUnits(i - 1);
+            if (previousActive != null
+                    && MatrixKernels.restrictColumns(previousActive.count(), rows * previousActive.units())) {
+                // Poucas unidades ReLU ativas: só os deltas delas, onde a derivada é 1; os outros ficam a zero.
+                layers.get(i).propagateDeltasBatch(workspace.getDeltas(i), rows, workspace.getDeltas(i - 1),
+                        workspace.getActiveUnits(i), previousActive);
+            } else {
+                layers.get(i).propagateDeltasBatch(workspace.getDeltas(i), rows, workspace.getDeltas(i - 1));
+                layers.get(i - 1).applyActivationDerivativeBatch(workspace.getActivations(i - 1),
+                        workspace.getDeltas(i - 1), rows);
+            }
+        }
+        metrics.record(TrainingMetrics.Phase.BACKWARD, backwardStart);
+        return loss;
+    }
+
+    /**
+     * Forward de uma amostra. O array devolvido pertence à rede e é
+     * reutilizado na chamada seguinte.
+     */
     public double[] forward(double[] input) {
         double[] current = input;
         for (int i = 0; i < layers.size(); i++) {
@@ -110,155 +518,385 @@ public class NeuralNetwork {
         }
 
         if (useSoftmaxOutput) {
-            double[] probabilities = softmax(current);
+            System.arraycopy(current, 0, probabilities, 0, probabilities.length);
+            KERNELS.softmax(probabilities, 0, probabilities.length);
             lastOutputsPerLayer[lastOutputsPerLayer.length - 1] = probabilities;
             return probabilities;
         }
         return current;
     }
 
-    private double[] softmax(double[] logits) {
-        double max = Double.NEGATIVE_INFINITY;
-        for (double logit : logits) {
-            if (logit > max) {
-                max = logit;
-            }
+    /**
+     * Softmax (se ativo), cross-entropy e deltas de saída de uma amostra,
+     * numa passagem e a partir do índice do label em vez de um target
+     * one-hot. As probabilidades ficam em {@code outputs}; devolve o loss.
+     */
+    private double outputLossAndDeltas(double[] outputs, int offset, int label, double[] deltas) {
+        int outputSize = getOutputSize();
+        if (useSoftmaxOutput) {
+            KERNELS.softmax(outputs, offset, outputSize);
         }
-        double sum = 0.0;
-        double[] expValues = new double[logits.length];
-        for (int i = 0; i < logits.length; i++) {
-            expValues[i] = Math.exp(logits[i] - max);
-            sum += expValues[i];
+        System.arraycopy(outputs, offset, deltas, offset, outputSize);
+        if (label < 0 || label >= outputSize) {
+            return 0.0;
         }
-        for (int i = 0; i < expValues.length; i++) {
-            expValues[i] /= sum;
+        deltas[offset + label] -= 1.0;
+        return -Math.log(outputs[offset + label] + 1e-9);
+    }
+
+    void applyGradients(BatchWorkspace workspace, int batchSamples) {
+        long applyStart = metrics.start();
+        for (int i = 0; i < layers.size(); i++) {
+            layers.get(i).applyGradients(workspace.getWeightGradients(i), workspace.getBiasGradients(i),
+                    learningRate, batchSamples);
         }
-        return expValues;
+        metrics.record(TrainingMetrics.Phase.APPLY, applyStart);
+    }
+
+    /** Backward da última amostra do {@link #forward}, com o label como índice da classe certa. */
+    public void backward(int label) {
+        double[] outputDeltas = layers.get(layers.size() - 1).getDeltas();
+        double[] outputs = lastOutputsPerLayer[lastOutputsPerLayer.length - 1];
+        System.arraycopy(outputs, 0, outputDeltas, 0, outputDeltas.length);
+        if (label >= 0 && label < outputDeltas.length) {
+            outputDeltas[label] -= 1.0;
+        }
+        propagateDeltas();
     }
 
     public void backward(double[] target) {
         Layer outputLayer = layers.get(layers.size() - 1);
         double[] outputProbabilities = lastOutputsPerLayer[lastOutputsPerLayer.length - 1];
+        double[] outputDeltas = outputLayer.getDeltas();
 
-        for (int i = 0; i < outputLayer.getNeurons().size(); i++) {
-            Neuron neuron = outputLayer.getNeurons().get(i);
-            double delta = outputProbabilities[i] - target[i];
-            neuron.setDelta(delta);
+        for (int i = 0; i < outputDeltas.length; i++) {
+            outputDeltas[i] = outputProbabilities[i] - target[i];
         }
+        propagateDeltas();
+    }
 
+    private void propagateDeltas() {
         for (int i = layers.size() - 2; i >= 0; i--) {
             Layer currentLayer = layers.get(i);
-            Layer nextLayer = layers.get(i + 1);
-            for (int j = 0; j < currentLayer.getNeurons().size(); j++) {
-                Neuron neuron = currentLayer.getNeurons().get(j);
-                double sum = 0.0;
-                for (Neuron nextNeuron : nextLayer.getNeurons()) {
-                    sum += nextNeuron.getWeights().get(j) * nextNeuron.getDelta();
-                }
-                neuron.setDelta(sum * neuron.activationDerivative());
-            }
+            layers.get(i + 1).propagateDeltas(currentLayer.getDeltas());
+            currentLayer.applyActivationDerivative();
         }
     }
 
-    private void accumulateGradients() {
+    public void accumulateGradients() {
         for (int i = 0; i < layers.size(); i++) {
             double[] inputs = lastInputsPerLayer[i];
             layers.get(i).accumulateGradients(inputs);
         }
     }
 
-    private void applyGradients(int batchSamples) {
+    public void applyGradients(int batchSamples) {
         for (Layer layer : layers) {
             layer.applyGradients(learningRate, batchSamples);
         }
     }
 
-    private void resetGradients() {
+    public double test(double[][] inputs, int[] labels) {
+        return test(new ArraySampleSource(inputs, labels));
+    }
+
+    /** Mostra o relatório de {@link #evaluate} sobre {@code source} e devolve a accuracy (em %). */
+    public double test(SampleSource source) {
+        EvaluationResult result = evaluate(source);
+        result.print();
+        return result.getAccuracy();
+    }
+
+    /** Avalia a rede sobre {@code source} em paralelo, com um {@link Evaluator} temporário. */
+    public EvaluationResult evaluate(SampleSource source) {
+        try (Evaluator evaluator = new Evaluator()) {
+            return evaluator.evaluate(toModel(), source);
+        }
+    }
+
+    public double[][] predict(double[][] inputs) {
+        InferenceSession session = toModel().newSession();
+        double[][] outputs = new double[inputs.length][getOutputSize()];
+        for (int i = 0; i < inputs.length; i++) {
+            session.predictInto(inputs[i], outputs[i]);
+        }
+        return outputs;
+    }
+
+    /**
+     * Cópia imutável dos pesos atuais, partilhável entre threads de
+     * inferência através de {@link Model#newSession()}, na precisão da rede.
+     */
+    public Model toModel() {
+        return Model.of(layers, useSoftmaxOutput, precision);
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size tem de ser positivo: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * Número de threads do treino em paralelo de dados. Com 1 (valor por
+     * omissão) o treino corre na thread que chama {@link #train}.
+     */
+    public void setWorkerThreads(int workerThreads) {
+        if (workerThreads <= 0) {
+            throw new IllegalArgumentException("Número de threads tem de ser positivo: " + workerThreads);
+        }
+        this.workerThreads = workerThreads;
+    }
+
+    public boolean isAsynchronous() {
+        return asynchronous;
+    }
+
+    /**
+     * Ativa o treino assíncrono sem locks ({@link HogwildTrainer}) com
+     * {@link #getWorkerThreads()} threads, em vez do treino síncrono por batch.
+     */
+    public void setAsynchronous(boolean asynchronous) {
+        this.asynchronous = asynchronous;
+    }
+
+    /**
+     * Fixa a seed do baralhamento por época, tornando o treino reprodutível
+     * quando os pesos iniciais também são gerados com seed.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public Precision getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Precisão do treino, da inferência e do modelo guardado. Em
+     * {@link Precision#FLOAT32} pesos, ativações, gradientes e entradas são
+     * float, o que reduz para metade a memória lida em cada batch.
+     */
+    public void setPrecision(Precision precision) {
+        this.precision = precision;
+    }
+
+    public TrainingMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void setMetrics(TrainingMetrics metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException("As métricas não podem ser nulas.");
+        }
+        this.metrics = metrics;
+    }
+
+    /** Intervalo, em segundos, entre snapshots das métricas; 0 escreve só as linhas de cada época. */
+    public void setMetricsInterval(int seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("Intervalo de métricas inválido: " + seconds);
+        }
+        this.metricsInterval = seconds;
+    }
+
+    /**
+     * Ativa o caminho esparso da primeira camada ({@link SparseInputPath})
+     * nos workspaces do treino em bloco, com o fundo do MNIST
+     * normalizado como valor constante.
+     */
+    public void setSparseInput(boolean sparseInput) {
+        this.sparseInput = sparseInput;
+    }
+
+    /** Workspace de treino com {@code capacity} linhas, já com o caminho esparso se estiver ativo. */
+    BatchWorkspace newWorkspace(int capacity) {
+        BatchWorkspace workspace = new BatchWorkspace(layers, capacity);
+        if (sparseInput) {
+            workspace.enableSparseInput(layers.get(0), MnistLoader.NORMALIZED_PIXELS[0]);
+        }
+        return workspace;
+    }
+
+    /** Otimizador de todas as camadas; o estado anterior é descartado. */
+    public void setOptimizer(Optimizer optimizer) {
+        this.optimizer = optimizer;
         for (Layer layer : layers) {
-            layer.resetGradients();
+            layer.setOptimizer(optimizer);
         }
+        this.optimizerState = null;
     }
 
-    public void test(double[][] inputs, int[] labels) {
-        double totalLoss = 0.0;
-        int correct = 0;
+    public Optimizer getOptimizer() {
+        return optimizer;
+    }
 
-        for (int i = 0; i < inputs.length; i++) {
-            double[] prediction = forward(inputs[i]);
-            int predictedLabel = argMax(prediction);
-            if (predictedLabel == labels[i]) {
-                correct++;
+    public void setLearningRateSchedule(LearningRateSchedule schedule) {
+        this.schedule = schedule;
+    }
+
+    /**
+     * Vista (sem cópia) do estado do otimizador de todas as camadas, pela
+     * ordem de {@link Layer#copyOptimizerState}; é o que vai para os
+     * checkpoints.
+     */
+    double[][] optimizerState() {
+        if (optimizerState == null) {
+            int count = 0;
+            for (Layer layer : layers) {
+                count += layer.optimizerStateArrays();
             }
-            totalLoss += sampleError(prediction, oneHot(labels[i]));
+            optimizerState = new double[count][];
+        }
+        int offset = 0;
+        for (Layer layer : layers) {
+            layer.copyOptimizerState(optimizerState, offset);
+            offset += layer.optimizerStateArrays();
         }
+        return optimizerState;
+    }
 
-        double averageLoss = totalLoss / inputs.length;
-        double accuracy = (double) correct / inputs.length * 100.0;
+    /**
+     * Conjunto avaliado no fim de cada época ({@code null} desativa), numa
+     * thread de fundo ({@link AsyncValidator}) enquanto o treino continua;
+     * o resultado é mostrado e escrito nas métricas.
+     */
+    public void setValidation(SampleSource validation) {
+        this.validation = validation;
+    }
 
-        System.out.println("\n════════════════════════════════════════");
-        System.out.println("  RESULTADOS DO TESTE");
-        System.out.println("════════════════════════════════════════");
-        System.out.println("Accuracy: " + String.format("%.2f", accuracy) + "%");
-        System.out.println("Corretos: " + correct + " de " + inputs.length);
-        System.out.println("Loss médio: " + String.format("%.6f", averageLoss));
-        System.out.println("════════════════════════════════════════");
+    /**
+     * Pára o treino quando a accuracy de validação não melhora há
+     * {@code patience} épocas (0 desativa). Precisa de {@link #setValidation}.
+     */
+    public void setEarlyStopping(int patience) {
+        if (patience < 0) {
+            throw new IllegalArgumentException("Paciência inválida: " + patience);
+        }
+        this.patience = patience;
     }
 
-    public double[][] predict(double[][] inputs) {
-        double[][] outputs = new double[inputs.length][];
-        for (int i = 0; i < inputs.length; i++) {
-            outputs[i] = forward(inputs[i]);
+    /** Guarda os pesos da melhor época de validação em vez dos da última. */
+    public void setKeepBest(boolean keepBest) {
+        this.keepBest = keepBest;
+    }
+
+    /** Threads da validação: os núcleos que o treino não usa, pelo menos 1. */
+    private int validationThreads() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() - workerThreads);
+    }
+
+    /**
+     * Ativa checkpoints assíncronos em {@code path} a cada
+     * {@code everyEpochs} épocas e/ou {@code everySeconds} segundos (0
+     * desativa cada critério).
+     */
+    public void setCheckpointing(String path, int everyEpochs, int everySeconds) {
+        if (everyEpochs < 0 || everySeconds < 0) {
+            throw new IllegalArgumentException("Intervalo de checkpoint inválido.");
         }
-        return outputs;
+        this.checkpointPath = path;
+        this.checkpointEveryEpochs = everyEpochs;
+        this.checkpointEverySeconds = everySeconds;
     }
 
-    private double sampleError(double[] output, double[] target) {
-        double error = 0.0;
-        for (int i = 0; i < output.length; i++) {
-            double eps = 1e-9;
-            error -= target[i] * Math.log(output[i] + eps);
+    /**
+     * Carrega o checkpoint válido mais recente de {@code path} para as
+     * camadas; o próximo {@code train} continua na época seguinte, com o
+     * histórico do loss e a seed (se a rede não tiver outra) do checkpoint.
+     */
+    public TrainingCheckpoint resume(String path) throws IOException {
+        TrainingCheckpoint checkpoint = TrainingCheckpoint.readLatest(Path.of(path));
+        checkpoint.restoreTo(layers);
+        restoreOptimizerState(checkpoint.getOptimizerState());
+        if (seed == null) {
+            seed = checkpoint.getSeed();
         }
-        return error;
+        resumeState = checkpoint;
+        return checkpoint;
     }
 
-    private int argMax(double[] values) {
-        int index = 0;
-        double best = values[0];
-        for (int i = 1; i < values.length; i++) {
-            if (values[i] > best) {
-                best = values[i];
-                index = i;
+    private void restoreOptimizerState(double[][] state) {
+        if (state.length != optimizerState().length) {
+            if (optimizer.stateArrays() > 0) {
+                System.out.println("O checkpoint não tem estado para o otimizador " + optimizer.name()
+                        + "; o estado recomeça a zero.");
             }
+            return;
+        }
+        int offset = 0;
+        for (Layer layer : layers) {
+            layer.restoreOptimizerState(state, offset);
+            offset += layer.optimizerStateArrays();
         }
-        return index;
     }
 
-    private double[] oneHot(int label) {
-        double[] target = new double[getOutputSize()];
-        if (label >= 0 && label < target.length) {
-            target[label] = 1.0;
-        }
-        return target;
+    public Long getSeed() {
+        return seed;
     }
 
     private int getOutputSize() {
-        return layers.get(layers.size() - 1).getNeurons().size();
+        return layers.get(layers.size() - 1).getOutputSize();
     }
 
-    private void shuffleData(double[][] inputs, double[][] targets) {
-        Random random = new Random();
-        for (int i = inputs.length - 1; i > 0; i--) {
+    /**
+     * Permutação da época {@code epoch}: parte sempre da identidade, pelo
+     * que só depende da seed e do número da época e um treino retomado de
+     * um checkpoint vê a mesma ordem.
+     */
+    private void shuffleOrder(int[] order, int epoch) {
+        long shuffleStart = metrics.start();
+        Random random = shuffleRandom;
+        if (seed != null) {
+            // setSeed repete a sequência de new Random(seed * 31 + epoch) sem alocar por época.
+            random.setSeed(seed * 31 + epoch);
+        }
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        for (int i = order.length - 1; i > 0; i--) {
             int j = random.nextInt(i + 1);
-            double[] tempInput = inputs[i];
-            inputs[i] = inputs[j];
-            inputs[j] = tempInput;
+            int temp = order[i];
+            order[i] = order[j];
+            order[j] = temp;
+        }
+        metrics.record(TrainingMetrics.Phase.SHUFFLE, shuffleStart);
+    }
+
+    /** Guarda os pesos no formato binário de {@link ModelFile}, na precisão da rede. */
+    public void saveModel(String filename) {
+        try {
+            ModelFile.write(Path.of(filename), layers, useSoftmaxOutput, precision);
+            System.out.println("Modelo salvo em " + filename);
+        } catch (IOException e) {
+            System.err.println("Erro ao salvar o modelo: " + e.getMessage());
+        }
+    }
 
-            double[] tempTarget = targets[i];
-            targets[i] = targets[j];
-            targets[j] = tempTarget;
+    /**
+     * Carrega pesos no formato binário de {@link ModelFile}. Devolve
+     * {@code false} se o ficheiro não existir ou for inválido.
+     */
+    public boolean loadModel(String filename) {
+        try {
+            ModelFile.read(Path.of(filename), layers);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Erro ao carregar o modelo: " + e.getMessage());
+            return false;
         }
     }
 
+    /** Exporta os pesos em CSV (uma linha por neurónio), o formato lido pela interface web. */
     public void saveWeights(String filename) {
         try {
             ensureParentDirectory(filename);
@@ -268,11 +906,18 @@ public class NeuralNetwork {
 
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
             for (Layer layer : layers) {
-                for (Neuron neuron : layer.getNeurons()) {
-                    for (double weight : neuron.getWeights()) {
-                        writer.write(weight + ",");
+                double[] weights = layer.getWeights();
+                double[] biases = layer.getBiases();
+                int inputSize = layer.getInputSize();
+                StringBuilder line = new StringBuilder();
+                for (int i = 0; i < layer.getOutputSize(); i++) {
+                    line.setLength(0);
+                    int row = i * inputSize;
+                    for (int j = 0; j < inputSize; j++) {
+                        line.append(weights[row + j]).append(',');
                     }
-                    writer.write(neuron.getBias() + "");
+                    line.append(biases[i]);
+                    writer.write(line.toString());
                     writer.newLine();
                 }
             }
@@ -282,6 +927,23 @@ public class NeuralNetwork {
         }
     }
 
+    /**
+     * Exporta os pesos para a interface web no formato compacto de
+     * {@link WebModelFile}: {@code manifestPath} e um blob {@code .bin} ao
+     * lado, com pesos float16 ou int8.
+     */
+    public void saveWebModel(String manifestPath, WebModelFile.Dtype dtype) {
+        Path manifest = Path.of(manifestPath);
+        try {
+            WebModelFile.write(manifest, layers, useSoftmaxOutput, dtype);
+            System.out.println("Modelo web (" + dtype.name().toLowerCase() + ") salvo em " + manifestPath + " e "
+                    + WebModelFile.blobPath(manifest) + " (" + Files.size(WebModelFile.blobPath(manifest)) + " bytes)");
+        } catch (IOException e) {
+            System.err.println("Erro ao salvar o modelo web: " + e.getMessage());
+        }
+    }
+
+    /** Importa pesos do CSV gerado por {@link #saveWeights(String)}. */
     public void loadWeights(String filename) {
         try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
             String line;
@@ -294,8 +956,7 @@ public class NeuralNetwork {
 
                 String[] tokens = line.split(",");
                 Layer layer = layers.get(layerIndex);
-                Neuron neuron = layer.getNeurons().get(neuronIndex);
-                int expectedWeights = neuron.getWeights().size();
+                int expectedWeights = layer.getInputSize();
                 int providedWeights = tokens.length - 1;
 
                 if (providedWeights != expectedWeights) {
@@ -304,17 +965,15 @@ public class NeuralNetwork {
                             lineNumber, filename, expectedWeights, providedWeights));
                 }
 
-                ArrayList<Double> weights = new ArrayList<>();
+                double[] weights = layer.getWeights();
+                int row = neuronIndex * expectedWeights;
                 for (int i = 0; i < providedWeights; i++) {
-                    weights.add(Double.parseDouble(tokens[i]));
+                    weights[row + i] = Double.parseDouble(tokens[i]);
                 }
-                double bias = Double.parseDouble(tokens[tokens.length - 1]);
-
-                neuron.setWeights(weights);
-                neuron.setBias(bias);
+                layer.getBiases()[neuronIndex] = Double.parseDouble(tokens[tokens.length - 1]);
 
                 neuronIndex++;
-                if (neuronIndex >= layer.getNeurons().size()) {
+                if (neuronIndex >= layer.getOutputSize()) {
                     neuronIndex = 0;
                     layerIndex++;
                     if (layerIndex >= layers.size()) {
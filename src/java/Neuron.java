@@ -1,125 +1,82 @@
-import java.util.ArrayList;
-import java.util.concurrent.ThreadLocalRandom;
-
+/**
+ * Vista leve sobre uma linha da matriz de pesos de uma {@link Layer}.
+ * Não guarda estado próprio: pesos, bias, output e delta vivem nos
+ * arrays contíguos da camada.
+ */
 public class Neuron {
 
-    private final ArrayList<Double> weights;
-    private final double[] weightGradients;
-    private double bias;
-    private double biasGradient;
-    private double output;
-    private double delta;
-    private double netInput;
-    private final ActivationType activationType;
-
-    public Neuron(int inputSize, ActivationType activationType) {
-        this.activationType = activationType;
-        this.weights = new ArrayList<>(inputSize);
-        double initRange = activationType == ActivationType.RELU ? Math.sqrt(2.0 / inputSize) : Math.sqrt(1.0 / inputSize);
-        ThreadLocalRandom random = ThreadLocalRandom.current();
-
-        for (int i = 0; i < inputSize; i++) {
-            double value = random.nextDouble(-initRange, initRange);
-            weights.add(value);
-        }
-        this.bias = 0.0;
-        this.weightGradients = new double[inputSize];
-        this.biasGradient = 0.0;
+    private final Layer layer;
+    private final int index;
+
+    Neuron(Layer layer, int index) {
+        this.layer = layer;
+        this.index = index;
     }
 
     public double netInput(double[] inputs) {
-        double sum = bias;
-        for (int i = 0; i < weights.size(); i++) {
-            sum += weights.get(i) * inputs[i];
-        }
-        this.netInput = sum;
-        return sum;
+        return layer.netInput(index, inputs);
     }
 
     public double activate(double[] inputs) {
-        double z = netInput(inputs);
-        switch (activationType) {
-            case RELU:
-                output = Math.max(0, z);
-                break;
-            case SIGMOID:
-                output = 1.0 / (1.0 + Math.exp(-z));
-                break;
-            case LINEAR:
-            default:
-                output = z;
-        }
-        return output;
+        return layer.activateNeuron(index, inputs);
     }
 
     public void accumulateGradients(double[] inputs) {
-        for (int j = 0; j < weights.size(); j++) {
-            weightGradients[j] += delta * inputs[j];
-        }
-        biasGradient += delta;
+        layer.accumulateRowGradients(index, inputs);
     }
 
-    public void applyGradients(double learningRate, int batchSize) {
-        double scale = learningRate / batchSize;
-        for (int j = 0; j < weights.size(); j++) {
-            double updated = weights.get(j) - scale * weightGradients[j];
-            weights.set(j, updated);
-            weightGradients[j] = 0.0;
-        }
-        bias -= scale * biasGradient;
-        biasGradient = 0.0;
+    public double activationDerivative() {
+        return layer.activationDerivative(index);
     }
 
-    public void resetGradients() {
-        for (int j = 0; j < weightGradients.length; j++) {
-            weightGradients[j] = 0.0;
-        }
-        biasGradient = 0.0;
+    public int getInputSize() {
+        return layer.getInputSize();
     }
 
-    public double activationDerivative() {
-        switch (activationType) {
-            case RELU:
-                return netInput > 0 ? 1.0 : 0.0;
-            case SIGMOID:
-                return output * (1.0 - output);
-            case LINEAR:
-            default:
-                return 1.0;
-        }
+    public double getWeight(int input) {
+        return layer.getWeights()[index * layer.getInputSize() + input];
+    }
+
+    public void setWeight(int input, double value) {
+        layer.getWeights()[index * layer.getInputSize() + input] = value;
     }
 
-    public ArrayList<Double> getWeights() {
-        return weights;
+    /** Cópia da linha de pesos deste neurónio. */
+    public double[] getWeights() {
+        double[] row = new double[layer.getInputSize()];
+        System.arraycopy(layer.getWeights(), index * row.length, row, 0, row.length);
+        return row;
     }
 
-    public void setWeights(ArrayList<Double> weights) {
-        for (int i = 0; i < weights.size(); i++) {
-            this.weights.set(i, weights.get(i));
+    public void setWeights(double[] weights) {
+        int inputSize = layer.getInputSize();
+        if (weights.length != inputSize) {
+            throw new IllegalArgumentException("Esperado " + inputSize + " pesos, recebido " + weights.length + ".");
         }
+        System.arraycopy(weights, 0, layer.getWeights(), index * inputSize, inputSize);
     }
 
     public double getBias() {
-        return bias;
+        return layer.getBiases()[index];
     }
 
     public void setBias(double bias) {
-        this.bias = bias;
+        layer.getBiases()[index] = bias;
     }
 
     public double getOutput() {
-        return output;
+        return layer.getOutputs()[index];
     }
 
     public double getDelta() {
-        return delta;
+        return layer.getDeltas()[index];
     }
 
     public void setDelta(double delta) {
-        this.delta = delta;
+        layer.getDeltas()[index] = delta;
     }
 
     public ActivationType getActivationType() {
-        return activationType;
+        return layer.getActivationType();
     }
 }
@@ -0,0 +1,41 @@
+/**
+ * Regra de atualização dos parâmetros a partir do gradiente somado de um
+ * mini-batch. O estado (velocidade, momentos) vive em arrays planos com o
+ * comprimento dos parâmetros, guardados pela {@link Layer} ao lado dos
+ * pesos; cada implementação atualiza parâmetros e estado numa única
+ * passagem.
+ */
+public interface Optimizer {
+
+    /** Número de arrays de estado por array de parâmetros. */
+    int stateArrays();
+
+    /**
+     * Aplica o gradiente {@code gradients} (soma de {@code batchSize}
+     * amostras) a {@code params}. {@code state} tem {@link #stateArrays()}
+     * arrays do comprimento de {@code params}; {@code step} conta as
+     * atualizações a partir de 1.
+     */
+    void update(double[] params, double[] gradients, double[][] state, double learningRate, int batchSize, long step);
+
+    String name();
+
+    /** Learning rate usada quando não é indicada nenhuma. */
+    double defaultLearningRate();
+
+    static Optimizer parse(String value) {
+        switch (value.toLowerCase()) {
+            case "sgd":
+                return new SgdOptimizer();
+            case "momentum":
+                return new MomentumOptimizer(MomentumOptimizer.DEFAULT_MOMENTUM, false);
+            case "nesterov":
+                return new MomentumOptimizer(MomentumOptimizer.DEFAULT_MOMENTUM, true);
+            case "adam":
+                return new AdamOptimizer();
+            default:
+                throw new IllegalArgumentException("Otimizador desconhecido: " + value
+                        + " (use sgd, momentum, nesterov ou adam)");
+        }
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * Precisão numérica usada para guardar pesos e ativações e para o
+ * formato do modelo guardado.
+ */
+public enum Precision {
+    FLOAT64,
+    FLOAT32;
+
+    public static Precision parse(String value) {
+        switch (value.toLowerCase()) {
+            case "float64":
+            case "double":
+            case "fp64":
+                return FLOAT64;
+            case "float32":
+            case "float":
+            case "fp32":
+                return FLOAT32;
+            default:
+                throw new IllegalArgumentException("Precisão desconhecida: " + value + " (use float32 ou float64)");
+        }
+    }
+}
@@ -0,0 +1,266 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Serviço HTTP de inferência (JDK {@code HttpServer}, sem dependências).
+ * Carrega os pesos uma vez e agrupa os pedidos concorrentes num
+ * {@link MicroBatcher}.
+ *
+ * <pre>
+ * POST /predict   corpo: 784 intensidades 0-255 separadas por vírgulas ou espaços
+ *                 (um array JSON também serve) -> {"digit":7,"probabilities":[...],"batchSize":12}
+ * GET  /stats     pedidos, latência p50/p99/p99.9 e distribuição dos tamanhos de batch
+ * GET  /health    "ok"
+ *
+ * java -cp src/java PredictionServer [--port N] [--model F | --csv F] [--max-batch N] [--max-wait-us N] [--max-queue N]
+ * </pre>
+ *
+ * Com a fila do micro-batcher cheia ({@code --max-queue}), durante o
+ * encerramento ou sem resposta ao fim de {@link #REQUEST_TIMEOUT_MILLIS}
+ * o pedido recebe 503; um corpo acima de {@link #MAX_BODY_BYTES} recebe 413.
+ *
+ * Cada pedido HTTP corre numa virtual thread quando a JVM as suporta
+ * (Java 21+); caso contrário num pool de threads que cresce com a carga.
+ */
+public final class PredictionServer {
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_MAX_BATCH = 32;
+    public static final int DEFAULT_MAX_WAIT_MICROS = 1000;
+    public static final int DEFAULT_MAX_QUEUE = 1024;
+    /** 784 valores "255.000000," ocupam ~8,6 KB; o resto da margem cobre espaços e JSON. */
+    public static final int MAX_BODY_BYTES = 64 * 1024;
+    /** Espera máxima de um pedido pelo seu batch; cobre a fila cheia e um despachante parado. */
+    public static final int REQUEST_TIMEOUT_MILLIS = 10_000;
+
+    private final MicroBatcher batcher;
+    private final HttpServer server;
+    private final String executorName;
+    private final int inputSize;
+
+    public PredictionServer(Model model, int port, int maxBatch, long maxWaitMicros, int maxQueue) throws IOException {
+        // Sem TCP_NODELAY cada resposta fica ~40 ms à espera do ACK atrasado
+        // do cliente (algoritmo de Nagle). O HttpServer lê a propriedade ao
+        // arrancar, por isso tem de ser definida antes de create().
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        this.batcher = new MicroBatcher(model, maxBatch, maxWaitMicros, maxQueue);
+        this.inputSize = model.getInputSize();
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        ExecutorService executor = virtualThreadExecutorOrNull();
+        this.executorName = executor != null ? "virtual threads" : "pool de threads";
+        server.setExecutor(executor != null ? executor : Executors.newCachedThreadPool());
+        server.createContext("/predict", this::handlePredict);
+        server.createContext("/stats", this::handleStats);
+        server.createContext("/health", exchange -> respond(exchange, 200, "text/plain", "ok"));
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        String modelPath = Main.MODEL_PATH;
+        String csvPath = null;
+        int maxBatch = DEFAULT_MAX_BATCH;
+        int maxWaitMicros = DEFAULT_MAX_WAIT_MICROS;
+        int maxQueue = DEFAULT_MAX_QUEUE;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--port".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                port = Integer.parseInt(args[++i]);
+            } else if ("--model".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                modelPath = args[++i];
+            } else if ("--csv".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                csvPath = args[++i];
+            } else if ("--max-batch".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                maxBatch = Integer.parseInt(args[++i]);
+            } else if ("--max-wait-us".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                maxWaitMicros = Integer.parseInt(args[++i]);
+            } else if ("--max-queue".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                maxQueue = Integer.parseInt(args[++i]);
+            } else {
+                System.err.println("Argumento desconhecido: " + arg);
+                System.err.println("Uso: java -cp src/java PredictionServer [--port N] [--model F | --csv F] [--max-batch N] [--max-wait-us N] [--max-queue N]");
+                return;
+            }
+        }
+
+        NeuralNetwork nn = new NeuralNetwork(Main.buildLayers(ThreadLocalRandom.current()));
+        if (csvPath == null && Files.exists(Path.of(modelPath))) {
+            System.out.println("A carregar pesos de " + modelPath);
+            if (!nn.loadModel(modelPath)) {
+                return;
+            }
+        } else {
+            csvPath = csvPath == null ? Main.WEIGHTS_CSV_PATH : csvPath;
+            System.out.println("A carregar pesos de " + csvPath);
+            nn.loadWeights(csvPath);
+        }
+
+        PredictionServer server = new PredictionServer(nn.toModel(), port, maxBatch, maxWaitMicros, maxQueue);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.out.println("Servidor de inferência em http://localhost:" + port + "/predict");
+        System.out.println("Micro-batching: até " + maxBatch + " pedidos, espera máxima " + maxWaitMicros
+                + " µs, fila de " + maxQueue);
+        System.out.println("Pedidos em: " + server.executorName + " | Kernels: " + KernelBackends.active().name());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        batcher.close();
+    }
+
+    private void handlePredict(HttpExchange exchange) throws IOException {
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            respond(exchange, 405, "application/json", "{\"error\":\"Use POST\"}");
+            return;
+        }
+        double[] input;
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                respond(exchange, 413, "application/json",
+                        "{\"error\":\"Corpo acima de " + MAX_BODY_BYTES + " bytes\"}");
+                return;
+            }
+            input = parsePixels(new String(bytes, StandardCharsets.UTF_8), inputSize);
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, "application/json", "{\"error\":\"" + e.getMessage().replace('"', '\'') + "\"}");
+            return;
+        }
+
+        MicroBatcher.Prediction prediction;
+        CompletableFuture<MicroBatcher.Prediction> future = null;
+        try {
+            future = batcher.submit(input);
+            prediction = future.get(REQUEST_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            respond(exchange, 503, "application/json", "{\"error\":\"sem resposta em " + REQUEST_TIMEOUT_MILLIS + " ms\"}");
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, "application/json", "{\"error\":\"interrompido\"}");
+            return;
+        } catch (RejectedExecutionException e) {
+            respond(exchange, 503, "application/json", "{\"error\":\"" + e.getMessage().replace('"', '\'') + "\"}");
+            return;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                respond(exchange, 503, "application/json", "{\"error\":\"servidor a encerrar\"}");
+            } else {
+                respond(exchange, 500, "application/json", "{\"error\":\"falha na inferência\"}");
+            }
+            return;
+        }
+
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"digit\":").append(prediction.getDigit()).append(",\"probabilities\":[");
+        double[] probabilities = prediction.getProbabilities();
+        for (int i = 0; i < probabilities.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(String.format(Locale.ROOT, "%.6f", probabilities[i]));
+        }
+        json.append("],\"batchSize\":").append(prediction.getBatchSize()).append('}');
+        respond(exchange, 200, "application/json", json.toString());
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, "application/json", statsJson());
+    }
+
+    String statsJson() {
+        LatencyHistogram latency = batcher.getLatency();
+        long[] batchSizes = batcher.getBatchSizeCounts();
+        long batches = 0;
+        StringBuilder distribution = new StringBuilder();
+        for (int size = 1; size < batchSizes.length; size++) {
+            if (batchSizes[size] == 0) {
+                continue;
+            }
+            batches += batchSizes[size];
+            if (distribution.length() > 0) {
+                distribution.append(',');
+            }
+            distribution.append('"').append(size).append("\":").append(batchSizes[size]);
+        }
+        long requests = batcher.getRequestCount();
+        return String.format(Locale.ROOT,
+                "{\"requests\":%d,\"rejected\":%d,\"batches\":%d,\"meanBatchSize\":%.2f,"
+                        + "\"latencyMicros\":{\"p50\":%.1f,\"p99\":%.1f,\"p999\":%.1f},"
+                        + "\"batchSizes\":{%s},\"maxBatchSize\":%d,\"maxWaitMicros\":%d,\"maxQueue\":%d,"
+                        + "\"executor\":\"%s\"}",
+                requests, batcher.getRejectedCount(), batches, batches == 0 ? 0.0 : (double) requests / batches,
+                latency.percentileMicros(0.50), latency.percentileMicros(0.99), latency.percentileMicros(0.999),
+                distribution, batcher.getMaxBatchSize(), batcher.getMaxWaitMicros(), batcher.getMaxQueued(),
+                executorName);
+    }
+
+    /** Lê {@code expected} intensidades (0-255) e normaliza-as como {@link MnistLoader}. */
+    static double[] parsePixels(String body, int expected) {
+        String[] tokens = body.replace('[', ' ').replace(']', ' ').trim().split("[,\\s]+");
+        if (tokens.length != expected) {
+            throw new IllegalArgumentException("Esperados " + expected + " pixels, recebidos "
+                    + (tokens.length == 1 && tokens[0].isEmpty() ? 0 : tokens.length));
+        }
+        double[] input = new double[expected];
+        for (int i = 0; i < expected; i++) {
+            double value;
+            try {
+                value = Double.parseDouble(tokens[i]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Pixel inválido na posição " + i + ": " + tokens[i]);
+            }
+            if (!(value >= 0.0 && value <= 255.0)) {
+                throw new IllegalArgumentException("Pixel fora de 0-255 na posição " + i + ": " + tokens[i]);
+            }
+            input[i] = (value / 255.0 - MnistLoader.PIXEL_MEAN) / MnistLoader.PIXEL_STD;
+        }
+        return input;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body)
+            throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()} por reflexão, para
+     * compilar em Java 17; {@code null} se a JVM não tiver virtual threads.
+     */
+    static ExecutorService virtualThreadExecutorOrNull() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+import java.util.List;
+
+/**
+ * Versão int8 de um modelo treinado, para inferência. Os pesos de cada
+ * linha são quantizados simetricamente com a sua própria escala
+ * ({@code max|w| / 127}); as entradas de cada camada usam uma escala por
+ * camada calibrada com o máximo absoluto observado numa amostra de dados.
+ * Os biases ficam em float. É imutável e partilhável entre threads; cada
+ * thread usa o seu {@link Int8InferenceEngine}.
+ */
+public final class QuantizedModel {
+
+    static final int QUANT_MAX = 127;
+
+    private final ActivationType[] activations;
+    private final int[] inputSizes;
+    private final int[] outputSizes;
+    private final byte[][] weights;
+    private final float[][] rowScales;
+    private final float[][] biases;
+    private final float[] inputScales;
+    private final boolean softmaxOutput;
+
+    QuantizedModel(ActivationType[] activations, int[] inputSizes, int[] outputSizes, byte[][] weights,
+                   float[][] rowScales, float[][] biases, float[] inputScales, boolean softmaxOutput) {
+        this.activations = activations;
+        this.inputSizes = inputSizes;
+        this.outputSizes = outputSizes;
+        this.weights = weights;
+        this.rowScales = rowScales;
+        this.biases = biases;
+        this.inputScales = inputScales;
+        this.softmaxOutput = softmaxOutput;
+    }
+
+    /**
+     * Quantiza os pesos atuais das camadas, calibrando as escalas das
+     * entradas com as primeiras {@code calibrationSamples} amostras de
+     * {@code calibration}.
+     */
+    public static QuantizedModel quantize(List<Layer> layers, boolean softmaxOutput,
+                                          SampleSource calibration, int calibrationSamples) {
+        int count = layers.size();
+        int samples = Math.min(calibrationSamples, calibration.size());
+        if (samples <= 0) {
+            throw new IllegalArgumentException("A calibração precisa de pelo menos uma amostra.");
+        }
+
+        double[] maxInputs = new double[count];
+        double[] input = new double[calibration.inputSize()];
+        for (int s = 0; s < samples; s++) {
+            calibration.copyInput(s, input, 0);
+            double[] current = input;
+            for (int l = 0; l < count; l++) {
+                maxInputs[l] = Math.max(maxInputs[l], maxAbs(current, current.length));
+                current = layers.get(l).forward(current);
+            }
+        }
+
+        ActivationType[] activations = new ActivationType[count];
+        int[] inputSizes = new int[count];
+        int[] outputSizes = new int[count];
+        byte[][] weights = new byte[count][];
+        float[][] rowScales = new float[count][];
+        float[][] biases = new float[count][];
+        float[] inputScales = new float[count];
+        for (int l = 0; l < count; l++) {
+            Layer layer = layers.get(l);
+            int inputSize = layer.getInputSize();
+            int outputSize = layer.getOutputSize();
+            activations[l] = layer.getActivationType();
+            inputSizes[l] = inputSize;
+            outputSizes[l] = outputSize;
+            inputScales[l] = scaleFor(maxInputs[l]);
+            biases[l] = Float32Trainer.toFloat(layer.getBiases());
+            weights[l] = new byte[outputSize * inputSize];
+            rowScales[l] = new float[outputSize];
+
+            double[] source = layer.getWeights();
+            for (int i = 0; i < outputSize; i++) {
+                int row = i * inputSize;
+                double max = 0.0;
+                for (int j = 0; j < inputSize; j++) {
+                    max = Math.max(max, Math.abs(source[row + j]));
+                }
+                float scale = scaleFor(max);
+                rowScales[l][i] = scale;
+                for (int j = 0; j < inputSize; j++) {
+                    weights[l][row + j] = quantize(source[row + j], scale);
+                }
+            }
+        }
+        return new QuantizedModel(activations, inputSizes, outputSizes, weights, rowScales, biases,
+                inputScales, softmaxOutput);
+    }
+
+    static byte quantize(double value, float scale) {
+        long q = Math.round(value / scale);
+        return (byte) Math.max(-QUANT_MAX, Math.min(QUANT_MAX, q));
+    }
+
+    static float scaleFor(double maxAbs) {
+        return maxAbs > 0.0 ? (float) (maxAbs / QUANT_MAX) : 1f;
+    }
+
+    private static double maxAbs(double[] values, int length) {
+        double max = 0.0;
+        for (int i = 0; i < length; i++) {
+            max = Math.max(max, Math.abs(values[i]));
+        }
+        return max;
+    }
+
+    public Int8InferenceEngine newEngine() {
+        return new Int8InferenceEngine(this);
+    }
+
+    public int getLayerCount() {
+        return activations.length;
+    }
+
+    public int getInputSize() {
+        return inputSizes[0];
+    }
+
+    public int getOutputSize() {
+        return outputSizes[outputSizes.length - 1];
+    }
+
+    public int getInputSize(int layer) {
+        return inputSizes[layer];
+    }
+
+    public int getOutputSize(int layer) {
+        return outputSizes[layer];
+    }
+
+    public ActivationType getActivationType(int layer) {
+        return activations[layer];
+    }
+
+    public boolean hasSoftmaxOutput() {
+        return softmaxOutput;
+    }
+
+    /** Bytes ocupados pelos pesos, escalas e biases. */
+    public long parameterBytes() {
+        long total = 0;
+        for (int l = 0; l < weights.length; l++) {
+            total += weights[l].length + (long) (rowScales[l].length + biases[l].length + 1) * Float.BYTES;
+        }
+        return total;
+    }
+
+    byte[] weights(int layer) {
+        return weights[layer];
+    }
+
+    float[] rowScales(int layer) {
+        return rowScales[layer];
+    }
+
+    float[] biases(int layer) {
+        return biases[layer];
+    }
+
+    float inputScale(int layer) {
+        return inputScales[layer];
+    }
+}
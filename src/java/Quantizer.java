@@ -0,0 +1,166 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ferramenta de quantização pós-treino. Lê os pesos guardados (modelo
+ * binário ou, na falta dele, o CSV de {@link NeuralNetwork#saveWeights}),
+ * calibra as escalas int8 numa amostra do conjunto de treino, grava o
+ * modelo quantizado e compara-o com o modelo em vírgula flutuante:
+ * accuracy no conjunto de teste, latência por imagem e throughput.
+ *
+ * <pre>
+ * java -cp src/java Quantizer [--model F | --csv F] [--calibration N] [--output F]
+ * </pre>
+ */
+public final class Quantizer {
+
+    static final String QUANTIZED_MODEL_PATH = "weights/model-int8.bin";
+    private static final int DEFAULT_CALIBRATION_SAMPLES = 1000;
+    private static final int BENCHMARK_ROUNDS = 3;
+
+    private Quantizer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        String modelPath = Main.MODEL_PATH;
+        String csvPath = null;
+        String outputPath = QUANTIZED_MODEL_PATH;
+        int calibrationSamples = DEFAULT_CALIBRATION_SAMPLES;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--model".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                modelPath = args[++i];
+            } else if ("--csv".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                csvPath = args[++i];
+            } else if ("--calibration".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                calibrationSamples = Integer.parseInt(args[++i]);
+            } else if ("--output".equalsIgnoreCase(arg) && i + 1 < args.length) {
+                outputPath = args[++i];
+            } else {
+                System.err.println("Argumento desconhecido: " + arg);
+                System.err.println("Uso: java -cp src/java Quantizer [--model F | --csv F] [--calibration N] [--output F]");
+                return;
+            }
+        }
+
+        ArrayList<Layer> layers = Main.buildLayers(ThreadLocalRandom.current());
+        NeuralNetwork nn = new NeuralNetwork(layers);
+        if (csvPath == null && Files.exists(Path.of(modelPath))) {
+            System.out.println("A carregar pesos de " + modelPath);
+            if (!nn.loadModel(modelPath)) {
+                return;
+            }
+        } else {
+            csvPath = csvPath == null ? Main.WEIGHTS_CSV_PATH : csvPath;
+            System.out.println("A carregar pesos de " + csvPath);
+            nn.loadWeights(csvPath);
+        }
+
+        MnistStore calibration;
+        MnistStore testData;
+        try {
+            calibration = MnistStore.open(Main.TRAIN_IMAGES_PATH, Main.TRAIN_LABELS_PATH, calibrationSamples);
+            testData = MnistStore.open(Main.TEST_IMAGES_PATH, Main.TEST_LABELS_PATH, Main.TEST_EXAMPLES);
+        } catch (IOException e) {
+            System.err.println("Erro ao carregar MNIST: " + e.getMessage());
+            return;
+        }
+
+        System.out.println("A calibrar com " + calibration.size() + " imagens de treino...");
+        QuantizedModel quantized = QuantizedModel.quantize(layers, true, calibration, calibration.size());
+        ModelFile.writeQuantized(Path.of(outputPath), quantized);
+        quantized = ModelFile.readQuantized(Path.of(outputPath));
+        System.out.println("Modelo int8 salvo em " + outputPath + " (" + Files.size(Path.of(outputPath)) + " bytes)");
+
+        double floatAccuracy = nn.test(testData);
+        double int8Accuracy = int8Accuracy(quantized, testData);
+
+        Model model = nn.toModel();
+        InferenceSession session = model.newSession();
+        Int8InferenceEngine engine = quantized.newEngine();
+        double[][] inputs = new double[testData.size()][testData.inputSize()];
+        for (int i = 0; i < inputs.length; i++) {
+            testData.copyInput(i, inputs[i], 0);
+        }
+        Timing floatTiming = null;
+        Timing int8Timing = null;
+        for (int round = 0; round < BENCHMARK_ROUNDS; round++) {
+            floatTiming = time(inputs, session::argmax);
+            int8Timing = time(inputs, engine::argmax);
+        }
+
+        System.out.println("\n════════════════════════════════════════");
+        System.out.println("  QUANTIZAÇÃO INT8");
+        System.out.println("════════════════════════════════════════");
+        System.out.println(String.format("Accuracy float: %.2f%% | int8: %.2f%% | diferença: %+.2f pp",
+                floatAccuracy, int8Accuracy, int8Accuracy - floatAccuracy));
+        System.out.println(String.format("Parâmetros: %d bytes (%s) -> %d bytes (int8)",
+                parameterBytes(model), model.getPrecision().name().toLowerCase(), quantized.parameterBytes()));
+        System.out.println(String.format("Latência p50: %.1f µs -> %.1f µs | p99: %.1f µs -> %.1f µs",
+                floatTiming.p50Micros, int8Timing.p50Micros, floatTiming.p99Micros, int8Timing.p99Micros));
+        System.out.println(String.format("Throughput: %.0f -> %.0f imagens/s (%.2fx)",
+                floatTiming.throughput, int8Timing.throughput, int8Timing.throughput / floatTiming.throughput));
+        System.out.println("Kernels: " + KernelBackends.active().name());
+        System.out.println("════════════════════════════════════════");
+    }
+
+    private static double int8Accuracy(QuantizedModel model, SampleSource source) {
+        Int8InferenceEngine engine = model.newEngine();
+        double[] input = new double[source.inputSize()];
+        int correct = 0;
+        for (int i = 0; i < source.size(); i++) {
+            source.copyInput(i, input, 0);
+            if (engine.argmax(input) == source.label(i)) {
+                correct++;
+            }
+        }
+        return (double) correct / source.size() * 100.0;
+    }
+
+    private static long parameterBytes(Model model) {
+        int valueBytes = model.getPrecision() == Precision.FLOAT32 ? Float.BYTES : Double.BYTES;
+        long values = 0;
+        for (int l = 0; l < model.getLayerCount(); l++) {
+            values += (long) model.getOutputSize(l) * (model.getInputSize(l) + 1);
+        }
+        return values * valueBytes;
+    }
+
+    private interface Classifier {
+        int argmax(double[] input);
+    }
+
+    private static final class Timing {
+        double p50Micros;
+        double p99Micros;
+        double throughput;
+    }
+
+    /** Mede a latência de cada predição e o throughput de uma passagem completa. */
+    private static Timing time(double[][] inputs, Classifier classifier) {
+        long[] latencies = new long[inputs.length];
+        int checksum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < inputs.length; i++) {
+            long before = System.nanoTime();
+            checksum += classifier.argmax(inputs[i]);
+            latencies[i] = System.nanoTime() - before;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (checksum < 0) {
+            System.out.println(checksum);
+        }
+
+        Arrays.sort(latencies);
+        Timing timing = new Timing();
+        timing.p50Micros = latencies[latencies.length / 2] / 1e3;
+        timing.p99Micros = latencies[Math.min(latencies.length - 1, (int) (latencies.length * 0.99))] / 1e3;
+        timing.throughput = inputs.length / (elapsed / 1e9);
+        return timing;
+    }
+}
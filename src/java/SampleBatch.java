@@ -0,0 +1,45 @@
+/**
+ * Bloco reutilizável de amostras já normalizadas ({@code [capacity x inputSize]})
+ * e respetivos labels, passado de uma thread produtora para o treino.
+ */
+public class SampleBatch {
+    private final int capacity;
+    private final int inputSize;
+    private final double[] inputs;
+    private final int[] labels;
+    private int rows;
+
+    public SampleBatch(int capacity, int inputSize) {
+        this.capacity = capacity;
+        this.inputSize = inputSize;
+        this.inputs = new double[capacity * inputSize];
+        this.labels = new int[capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public double[] getInputs() {
+        return inputs;
+    }
+
+    public int[] getLabels() {
+        return labels;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public void setRows(int rows) {
+        if (rows < 0 || rows > capacity) {
+            throw new IllegalArgumentException("Número de linhas inválido: " + rows);
+        }
+        this.rows = rows;
+    }
+}
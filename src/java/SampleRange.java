@@ -0,0 +1,45 @@
+/**
+ * Vista de um intervalo contíguo de outro {@link SampleSource}, usada para
+ * separar um conjunto de validação do fim do conjunto de treino sem copiar
+ * imagens.
+ */
+public class SampleRange implements SampleSource {
+    private final SampleSource source;
+    private final int from;
+    private final int size;
+
+    public SampleRange(SampleSource source, int from, int to) {
+        if (from < 0 || to > source.size() || from > to) {
+            throw new IllegalArgumentException("Intervalo inválido [" + from + ", " + to + ") para "
+                    + source.size() + " amostras.");
+        }
+        this.source = source;
+        this.from = from;
+        this.size = to - from;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int inputSize() {
+        return source.inputSize();
+    }
+
+    @Override
+    public void copyInput(int index, double[] destination, int offset) {
+        source.copyInput(from + index, destination, offset);
+    }
+
+    @Override
+    public void copyInput(int index, float[] destination, int offset) {
+        source.copyInput(from + index, destination, offset);
+    }
+
+    @Override
+    public int label(int index) {
+        return source.label(from + index);
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * Conjunto de amostras de treino/teste acedido por índice. As entradas
+ * são normalizadas diretamente para o buffer de quem pede, pelo que a
+ * implementação pode guardar os dados no formato mais compacto que tiver.
+ * Todos os métodos têm de ser seguros para leitura concorrente.
+ */
+public interface SampleSource {
+
+    int size();
+
+    int inputSize();
+
+    /** Escreve a entrada {@code index} em {@code destination[offset..offset + inputSize())}. */
+    void copyInput(int index, double[] destination, int offset);
+
+    /** Igual a {@link #copyInput(int, double[], int)} para buffers float32. */
+    void copyInput(int index, float[] destination, int offset);
+
+    int label(int index);
+
+    /** Vista das amostras {@code [from, to)}, sem copiar dados. */
+    default SampleSource slice(int from, int to) {
+        return new SampleRange(this, from, to);
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Implementação escalar de {@link Kernels}, usada quando o módulo
+ * {@code jdk.incubator.vector} não está disponível. É também a referência
+ * contra a qual a implementação SIMD é validada.
+ */
+public final class ScalarKernels implements Kernels {
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    @Override
+    public double dot(double[] a, int aOffset, double[] b, int bOffset, int length) {
+        double sum = 0.0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum = 0f;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public int dot(byte[] a, int aOffset, byte[] b, int bOffset, int length) {
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    public void axpy(double alpha, double[] x, int xOffset, double[] y, int yOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    @Override
+    public void axpy(float alpha, float[] x, int xOffset, float[] y, int yOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            y[yOffset + i] += alpha * x[xOffset + i];
+        }
+    }
+
+    @Override
+    public void relu(double[] values, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (values[i] < 0.0) {
+                values[i] = 0.0;
+            }
+        }
+    }
+
+    @Override
+    public void relu(float[] values, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (values[i] < 0f) {
+                values[i] = 0f;
+            }
+        }
+    }
+
+    @Override
+    public void reluMask(double[] outputs, double[] deltas, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (outputs[i] <= 0.0) {
+                deltas[i] = 0.0;
+            }
+        }
+    }
+
+    @Override
+    public void reluMask(float[] outputs, float[] deltas, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (outputs[i] <= 0f) {
+                deltas[i] = 0f;
+            }
+        }
+    }
+
+    @Override
+    public void softmax(double[] values, int offset, int length) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = offset; i < offset + length; i++) {
+            if (values[i] > max) {
+                max = values[i];
+            }
+        }
+        double sum = 0.0;
+        for (int i = offset; i < offset + length; i++) {
+            values[i] = Math.exp(values[i] - max);
+            sum += values[i];
+        }
+        for (int i = offset; i < offset + length; i++) {
+            values[i] /= sum;
+        }
+    }
+
+    @Override
+    public void softmax(float[] values, int offset, int length) {
+        float max = Float.NEGATIVE_INFINITY;
+        for (int i = offset; i < offset + length; i++) {
+            if (values[i] > max) {
+                max = values[i];
+            }
+        }
+        float sum = 0f;
+        for (int i = offset; i < offset + length; i++) {
+            values[i] = (float) Math.exp(values[i] - max);
+            sum += values[i];
+        }
+        for (int i = offset; i < offset + length; i++) {
+            values[i] /= sum;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Espaço de procura de um {@link HyperparameterSweep}: uma lista de valores
+ * por hiperparâmetro, de onde saem todas as combinações (grid) ou
+ * amostras aleatórias. As chaves omitidas ficam com o valor por omissão
+ * da aplicação.
+ *
+ * <pre>
+ * lr=0.05,0.1,0.2            learning rates
+ * lr=0.01..0.3               intervalo, amostrado em escala logarítmica (só na procura aleatória)
+ * hidden=256x128,128         camadas escondidas
+ * batch=32,64                batch sizes
+ * optimizer=sgd,adam         otimizadores
+ * </pre>
+ *
+ * As chaves são separadas por {@code ;}, por exemplo
+ * {@code "lr=0.05,0.1;hidden=256x128,128;batch=32,64"}.
+ */
+public final class SearchSpace {
+
+    private final double[] learningRates;
+    private final double[] learningRateRange;
+    private final List<int[]> hiddenSizes;
+    private final int[] batchSizes;
+    private final String[] optimizers;
+
+    private SearchSpace(double[] learningRates, double[] learningRateRange, List<int[]> hiddenSizes,
+                        int[] batchSizes, String[] optimizers) {
+        this.learningRates = learningRates;
+        this.learningRateRange = learningRateRange;
+        this.hiddenSizes = hiddenSizes;
+        this.batchSizes = batchSizes;
+        this.optimizers = optimizers;
+    }
+
+    /**
+     * Lê a spec; as chaves omitidas ficam com {@code defaultHidden},
+     * {@code defaultBatch} e {@code defaultOptimizer}, e sem {@code lr}
+     * cada otimizador usa {@code defaultLearningRate} ou, se for
+     * {@code null}, a sua learning rate por omissão.
+     */
+    public static SearchSpace parse(String value, Double defaultLearningRate, int[] defaultHidden,
+                                    int defaultBatch, String defaultOptimizer) {
+        double[] learningRates = defaultLearningRate != null ? new double[]{defaultLearningRate} : null;
+        double[] range = null;
+        List<int[]> hidden = new ArrayList<>();
+        hidden.add(defaultHidden.clone());
+        int[] batches = {defaultBatch};
+        String[] optimizers = {defaultOptimizer};
+
+        try {
+            for (String part : value.split(";")) {
+                String entry = part.trim();
+                if (entry.isEmpty()) {
+                    continue;
+                }
+                int equals = entry.indexOf('=');
+                if (equals <= 0) {
+                    throw new IllegalArgumentException(unknown(value));
+                }
+                String key = entry.substring(0, equals).trim().toLowerCase(Locale.ROOT);
+                String[] values = entry.substring(equals + 1).split(",");
+                switch (key) {
+                    case "lr":
+                        if (values.length == 1 && values[0].contains("..")) {
+                            String[] bounds = values[0].split("\\.\\.");
+                            range = new double[]{Double.parseDouble(bounds[0].trim()), Double.parseDouble(bounds[1].trim())};
+                            if (!(range[0] > 0.0 && range[1] >= range[0])) {
+                                throw new IllegalArgumentException("Intervalo de learning rate inválido: " + values[0]);
+                            }
+                            learningRates = null;
+                        } else {
+                            learningRates = new double[values.length];
+                            for (int i = 0; i < values.length; i++) {
+                                learningRates[i] = Double.parseDouble(values[i].trim());
+                            }
+                            range = null;
+                        }
+                        break;
+                    case "hidden":
+                        hidden.clear();
+                        for (String layers : values) {
+                            String[] sizes = layers.trim().split("x");
+                            int[] parsed = new int[sizes.length];
+                            for (int i = 0; i < sizes.length; i++) {
+                                parsed[i] = Integer.parseInt(sizes[i].trim());
+                            }
+                            hidden.add(parsed);
+                        }
+                        break;
+                    case "batch":
+                        batches = new int[values.length];
+                        for (int i = 0; i < values.length; i++) {
+                            batches[i] = Integer.parseInt(values[i].trim());
+                        }
+                        break;
+                    case "optimizer":
+                        optimizers = new String[values.length];
+                        for (int i = 0; i < values.length; i++) {
+                            optimizers[i] = values[i].trim();
+                            Optimizer.parse(optimizers[i]);
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException(unknown(value));
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException(unknown(value), e);
+        }
+        return new SearchSpace(learningRates, range, hidden, batches, optimizers);
+    }
+
+    private static String unknown(String value) {
+        return "Espaço de procura desconhecido: " + value
+                + " (use lr=A,B|MIN..MAX;hidden=256x128,128;batch=32,64;optimizer=sgd,adam)";
+    }
+
+    /** Todas as combinações, pela ordem lr, hidden, batch, otimizador. */
+    public List<SweepConfig> grid() {
+        if (learningRateRange != null) {
+            throw new IllegalArgumentException("Um intervalo de learning rate só é suportado na procura aleatória"
+                    + " (--sweep-trials N).");
+        }
+        List<SweepConfig> configs = new ArrayList<>();
+        for (String optimizer : optimizers) {
+            for (double learningRate : learningRates(optimizer)) {
+                for (int[] hidden : hiddenSizes) {
+                    for (int batch : batchSizes) {
+                        configs.add(new SweepConfig(learningRate, hidden, batch, optimizer));
+                    }
+                }
+            }
+        }
+        return configs;
+    }
+
+    /** {@code trials} configurações sorteadas de forma uniforme (com reposição). */
+    public List<SweepConfig> sample(int trials, Random random) {
+        List<SweepConfig> configs = new ArrayList<>(trials);
+        for (int t = 0; t < trials; t++) {
+            String optimizer = optimizers[random.nextInt(optimizers.length)];
+            double learningRate;
+            if (learningRateRange != null) {
+                double low = Math.log(learningRateRange[0]);
+                double high = Math.log(learningRateRange[1]);
+                learningRate = Math.exp(low + random.nextDouble() * (high - low));
+            } else {
+                double[] rates = learningRates(optimizer);
+                learningRate = rates[random.nextInt(rates.length)];
+            }
+            int[] hidden = hiddenSizes.get(random.nextInt(hiddenSizes.size()));
+            int batch = batchSizes[random.nextInt(batchSizes.length)];
+            configs.add(new SweepConfig(learningRate, hidden, batch, optimizer));
+        }
+        return configs;
+    }
+
+    private double[] learningRates(String optimizer) {
+        return learningRates != null ? learningRates : new double[]{Optimizer.parse(optimizer).defaultLearningRate()};
+    }
+}
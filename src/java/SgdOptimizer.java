@@ -0,0 +1,26 @@
+/** SGD simples: {@code p -= lr/n · g}. Não tem estado. */
+public final class SgdOptimizer implements Optimizer {
+    private static final Kernels KERNELS = KernelBackends.active();
+
+    @Override
+    public int stateArrays() {
+        return 0;
+    }
+
+    @Override
+    public void update(double[] params, double[] gradients, double[][] state, double learningRate, int batchSize,
+                       long step) {
+        double scale = learningRate / batchSize;
+        KERNELS.axpy(-scale, gradients, 0, params, 0, params.length);
+    }
+
+    @Override
+    public String name() {
+        return "sgd";
+    }
+
+    @Override
+    public double defaultLearningRate() {
+        return 0.1;
+    }
+}
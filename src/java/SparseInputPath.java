@@ -0,0 +1,176 @@
+import java.util.Arrays;
+
+/**
+ * Forward e gradientes da primeira camada para entradas quase todas iguais
+ * a um valor de fundo constante (no MNIST, o fundo normalizado
+ * {@code (0 - 0.1307) / 0.3081}). Cada entrada é tratada como
+ * {@code c + d}, com {@code d} esparso:
+ *
+ * <pre>
+ * z_i     = b_i + c·Σ_j W_ij + Σ_{j ativo} d_j·W_ij
+ * ∂W_ij  += c·Σ_r δ_ri + Σ_{r: j ativo} d_rj·δ_ri
+ * </pre>
+ *
+ * As somas das linhas e uma cópia transposta dos pesos são recalculadas
+ * uma vez por batch, pelo que cada píxel ativo custa um {@code axpy}
+ * contíguo de {@code outputSize} elementos. O resultado é igual ao do
+ * caminho denso a menos de arredondamentos. Os buffers pertencem a um só
+ * {@link BatchWorkspace}, pelo que cada thread de treino tem os seus.
+ */
+final class SparseInputPath {
+    private static final Kernels KERNELS = KernelBackends.active();
+    private static final int TILE = 32;
+
+    /*
+     * Modelo de custo, em linhas densas: o recálculo por batch custa cerca de
+     * OVERHEAD_ROWS linhas e cada valor ativo cerca de ACTIVE_COST vezes um
+     * valor denso (axpy com salto em vez de um produto interno contíguo).
+     */
+    static final int OVERHEAD_ROWS = 8;
+    static final int ACTIVE_COST = 2;
+
+    private final double background;
+    private final int inputSize;
+    private final int outputSize;
+    private final int[] rowStarts;
+    private final int[] indices;
+    private final double[] values;
+    private final double[] transposedWeights;
+    private final double[] rowBase;
+    private final double[] transposedGradients;
+    private final double[] deltaSums;
+    private boolean active;
+
+    SparseInputPath(Layer layer, int capacity, double background) {
+        this.background = background;
+        this.inputSize = layer.getInputSize();
+        this.outputSize = layer.getOutputSize();
+        this.rowStarts = new int[capacity + 1];
+        this.indices = new int[capacity * inputSize];
+        this.values = new double[capacity * inputSize];
+        this.transposedWeights = new double[inputSize * outputSize];
+        this.rowBase = new double[outputSize];
+        this.transposedGradients = new double[inputSize * outputSize];
+        this.deltaSums = new double[outputSize];
+    }
+
+    /**
+     * Forward de {@code rows} entradas densas {@code inputs}. Devolve
+     * {@code false}, sem escrever nada, se pelo modelo de custo o bloco for
+     * pequeno ou denso demais; nesse caso o chamador usa o caminho denso, e
+     * o {@link #accumulateGradients} seguinte também.
+     */
+    boolean forward(Layer layer, double[] inputs, int rows, double[] outputs) {
+        active = encode(inputs, rows);
+        if (!active) {
+            return false;
+        }
+        refreshWeights(layer);
+        ActivationType activation = layer.getActivationType();
+        for (int r = 0; r < rows; r++) {
+            int row = r * outputSize;
+            System.arraycopy(rowBase, 0, outputs, row, outputSize);
+            for (int k = rowStarts[r]; k < rowStarts[r + 1]; k++) {
+                KERNELS.axpy(values[k], transposedWeights, indices[k] * outputSize, outputs, row, outputSize);
+            }
+            if (activation == ActivationType.RELU) {
+                KERNELS.relu(outputs, row, outputSize);
+            } else if (activation != ActivationType.LINEAR) {
+                for (int i = row; i < row + outputSize; i++) {
+                    outputs[i] = activation.apply(outputs[i]);
+                }
+            }
+        }
+        return true;
+    }
+
+    /** Se o último {@link #forward} usou o caminho esparso. */
+    boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Soma aos acumuladores os gradientes do bloco codificado no último
+     * {@link #forward}, com os deltas {@code [rows x outputSize]}.
+     */
+    void accumulateGradients(double[] deltas, int rows, double[] weightGradients, double[] biasGradients) {
+        Arrays.fill(deltaSums, 0.0);
+        MatrixKernels.accumulateColumnSums(deltas, rows, outputSize, deltaSums);
+        for (int r = 0; r < rows; r++) {
+            int row = r * outputSize;
+            for (int k = rowStarts[r]; k < rowStarts[r + 1]; k++) {
+                KERNELS.axpy(values[k], deltas, row, transposedGradients, indices[k] * outputSize, outputSize);
+            }
+        }
+
+        // Transposição por blocos, somando a parte constante e limpando o buffer para o próximo batch.
+        // O ciclo interno percorre a dimensão contígua do buffer transposto: o passo de outputSize
+        // doubles é muitas vezes uma potência de 2 e faria colidir as linhas na cache L1.
+        for (int j0 = 0; j0 < inputSize; j0 += TILE) {
+            int j1 = Math.min(inputSize, j0 + TILE);
+            for (int i0 = 0; i0 < outputSize; i0 += TILE) {
+                int i1 = Math.min(outputSize, i0 + TILE);
+                for (int j = j0; j < j1; j++) {
+                    int transposedRow = j * outputSize;
+                    for (int i = i0; i < i1; i++) {
+                        weightGradients[i * inputSize + j] += background * deltaSums[i] + transposedGradients[transposedRow + i];
+                        transposedGradients[transposedRow + i] = 0.0;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < outputSize; i++) {
+            biasGradients[i] += deltaSums[i];
+        }
+    }
+
+    /** Codifica o bloco em CSR; {@code false} se o caminho esparso não compensar. */
+    private boolean encode(double[] inputs, int rows) {
+        int limit = (rows - OVERHEAD_ROWS) * inputSize / ACTIVE_COST;
+        if (limit <= 0) {
+            return false;
+        }
+        int count = 0;
+        for (int r = 0; r < rows; r++) {
+            rowStarts[r] = count;
+            int row = r * inputSize;
+            for (int j = 0; j < inputSize; j++) {
+                double value = inputs[row + j];
+                if (value != background) {
+                    if (count == limit) {
+                        return false;
+                    }
+                    indices[count] = j;
+                    values[count] = value - background;
+                    count++;
+                }
+            }
+        }
+        rowStarts[rows] = count;
+        return true;
+    }
+
+    /** Copia os pesos transpostos e calcula {@code b_i + c·Σ_j W_ij}, numa passagem por blocos. */
+    private void refreshWeights(Layer layer) {
+        double[] weights = layer.getWeights();
+        double[] biases = layer.getBiases();
+        Arrays.fill(rowBase, 0.0);
+        for (int j0 = 0; j0 < inputSize; j0 += TILE) {
+            int j1 = Math.min(inputSize, j0 + TILE);
+            for (int i0 = 0; i0 < outputSize; i0 += TILE) {
+                int i1 = Math.min(outputSize, i0 + TILE);
+                for (int j = j0; j < j1; j++) {
+                    int transposedRow = j * outputSize;
+                    for (int i = i0; i < i1; i++) {
+                        double w = weights[i * inputSize + j];
+                        rowBase[i] += w;
+                        transposedWeights[transposedRow + i] = w;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < outputSize; i++) {
+            rowBase[i] = biases[i] + background * rowBase[i];
+        }
+    }
+}
@@ -0,0 +1,245 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Leitura em streaming de ficheiros IDX maiores do que a memória. Uma
+ * thread produtora lê blocos contíguos de imagens do disco por uma ordem
+ * baralhada, baralha as imagens dentro de cada bloco, normaliza-as e
+ * entrega batches prontos através de uma fila limitada. A memória usada
+ * é fixa: um bloco de bytes mais {@code prefetchBatches} batches
+ * reutilizados, independentemente do tamanho do dataset.
+ */
+public class StreamingBatchLoader implements BatchLoader, AutoCloseable {
+
+    public static final int DEFAULT_CHUNK_IMAGES = 4096;
+    public static final int DEFAULT_PREFETCH_BATCHES = 8;
+
+    private static final SampleBatch END_OF_EPOCH = new SampleBatch(0, 0);
+
+    private final FileChannel images;
+    private final FileChannel labels;
+    private final int count;
+    private final int pixelsPerImage;
+    private final int batchSize;
+    private final int chunkImages;
+    private final Long seed;
+    private final int firstEpoch;
+
+    private final BlockingQueue<SampleBatch> ready;
+    private final BlockingQueue<SampleBatch> free;
+    private final Thread producer;
+    private volatile Throwable failure;
+    private volatile boolean closed;
+
+    public StreamingBatchLoader(String imagesPath, String labelsPath, int batchSize, Long seed) throws IOException {
+        this(imagesPath, labelsPath, batchSize, DEFAULT_CHUNK_IMAGES, DEFAULT_PREFETCH_BATCHES, seed, 0);
+    }
+
+    /** Começa na época {@code firstEpoch}, para retomar um treino com a mesma ordem de leitura. */
+    public StreamingBatchLoader(String imagesPath, String labelsPath, int batchSize, Long seed, int firstEpoch)
+            throws IOException {
+        this(imagesPath, labelsPath, batchSize, DEFAULT_CHUNK_IMAGES, DEFAULT_PREFETCH_BATCHES, seed, firstEpoch);
+    }
+
+    public StreamingBatchLoader(String imagesPath, String labelsPath, int batchSize, int chunkImages,
+                                int prefetchBatches, Long seed) throws IOException {
+        this(imagesPath, labelsPath, batchSize, chunkImages, prefetchBatches, seed, 0);
+    }
+
+    public StreamingBatchLoader(String imagesPath, String labelsPath, int batchSize, int chunkImages,
+                                int prefetchBatches, Long seed, int firstEpoch) throws IOException {
+        this.images = FileChannel.open(Path.of(imagesPath), StandardOpenOption.READ);
+        this.labels = FileChannel.open(Path.of(labelsPath), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = readFully(images, 0, 16);
+            if (header.getInt(0) != MnistLoader.IMAGE_MAGIC) {
+                throw new IOException("Ficheiro de imagens inválido: magic number " + header.getInt(0));
+            }
+            ByteBuffer labelHeader = readFully(labels, 0, 8);
+            if (labelHeader.getInt(0) != MnistLoader.LABEL_MAGIC) {
+                throw new IOException("Ficheiro de labels inválido: magic number " + labelHeader.getInt(0));
+            }
+            if (header.getInt(4) != labelHeader.getInt(4)) {
+                throw new IOException("Número de imagens (" + header.getInt(4) + ") diferente do número de labels ("
+                        + labelHeader.getInt(4) + ")");
+            }
+            int totalImages = header.getInt(4);
+            int rows = header.getInt(8);
+            int cols = header.getInt(12);
+            if (totalImages <= 0 || rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE) {
+                throw new IOException("Cabeçalho inválido em " + imagesPath + ": " + totalImages + " imagens de "
+                        + rows + "x" + cols);
+            }
+            long requiredImages = 16L + (long) totalImages * rows * cols;
+            if (images.size() < requiredImages) {
+                throw new IOException("Ficheiro de imagens truncado: esperados " + requiredImages + " bytes, "
+                        + imagesPath + " tem " + images.size());
+            }
+            if (labels.size() < 8L + totalImages) {
+                throw new IOException("Ficheiro de labels truncado: esperados " + (8L + totalImages) + " bytes, "
+                        + labelsPath + " tem " + labels.size());
+            }
+            this.count = totalImages;
+            this.pixelsPerImage = rows * cols;
+        } catch (IOException e) {
+            images.close();
+            labels.close();
+            throw e;
+        }
+
+        this.batchSize = batchSize;
+        // O bloco é um único byte[]: limitado a 2 GB e ao tamanho do dataset.
+        long chunk = Math.min(Math.max(batchSize, chunkImages), count);
+        this.chunkImages = (int) Math.max(1, Math.min(chunk, (Integer.MAX_VALUE - 8) / pixelsPerImage));
+        this.seed = seed;
+        this.firstEpoch = firstEpoch;
+        this.ready = new ArrayBlockingQueue<>(prefetchBatches + 1);
+        this.free = new ArrayBlockingQueue<>(prefetchBatches);
+        for (int i = 0; i < prefetchBatches; i++) {
+            free.add(new SampleBatch(batchSize, pixelsPerImage));
+        }
+        this.producer = new Thread(this::produce, "streaming-batch-loader");
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    @Override
+    public SampleBatch next() throws InterruptedException {
+        SampleBatch batch = ready.take();
+        if (batch == END_OF_EPOCH) {
+            if (failure != null) {
+                throw new IllegalStateException("Falha a ler o dataset: " + failure.getMessage(), failure);
+            }
+            return null;
+        }
+        return batch;
+    }
+
+    @Override
+    public void release(SampleBatch batch) {
+        free.add(batch);
+    }
+
+    private void produce() {
+        try {
+            byte[] chunkPixels = new byte[chunkImages * pixelsPerImage];
+            byte[] chunkLabels = new byte[chunkImages];
+            int[] chunkOrder = new int[chunkImages];
+            int chunks = (count + chunkImages - 1) / chunkImages;
+            int[] order = new int[chunks];
+            double[] table = MnistLoader.NORMALIZED_PIXELS;
+
+            for (int epoch = firstEpoch; !closed; epoch++) {
+                Random random = seed == null ? new Random() : new Random(seed * 31 + epoch);
+                for (int i = 0; i < chunks; i++) {
+                    order[i] = i;
+                }
+                shuffle(order, chunks, random);
+
+                SampleBatch batch = null;
+                for (int c = 0; c < chunks; c++) {
+                    int first = order[c] * chunkImages;
+                    int imagesInChunk = Math.min(chunkImages, count - first);
+                    readInto(images, 16L + (long) first * pixelsPerImage, chunkPixels, imagesInChunk * pixelsPerImage);
+                    readInto(labels, 8L + first, chunkLabels, imagesInChunk);
+                    for (int i = 0; i < imagesInChunk; i++) {
+                        chunkOrder[i] = i;
+                    }
+                    shuffle(chunkOrder, imagesInChunk, random);
+
+                    for (int i = 0; i < imagesInChunk; i++) {
+                        if (batch == null) {
+                            batch = free.take();
+                            batch.setRows(0);
+                        }
+                        int image = chunkOrder[i];
+                        int row = batch.getRows();
+                        double[] inputs = batch.getInputs();
+                        int source = image * pixelsPerImage;
+                        int target = row * pixelsPerImage;
+                        for (int j = 0; j < pixelsPerImage; j++) {
+                            inputs[target + j] = table[chunkPixels[source + j] & 0xFF];
+                        }
+                        batch.getLabels()[row] = chunkLabels[image] & 0xFF;
+                        batch.setRows(row + 1);
+                        if (row + 1 == batchSize) {
+                            ready.put(batch);
+                            batch = null;
+                        }
+                    }
+                }
+                if (batch != null) {
+                    ready.put(batch);
+                }
+                ready.put(END_OF_EPOCH);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            // Qualquer falha (também um OutOfMemoryError) tem de chegar ao
+            // consumidor, senão next() fica bloqueado para sempre.
+            failure = e;
+            try {
+                ready.put(END_OF_EPOCH);
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void shuffle(int[] values, int length, Random random) {
+        for (int i = length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temp = values[i];
+            values[i] = values[j];
+            values[j] = temp;
+        }
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        readInto(channel, position, bytes, length);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    /** Lê {@code length} bytes a partir de {@code position} sem mexer na posição do canal (seguro entre threads). */
+    static void readInto(FileChannel channel, long position, byte[] target, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(target, 0, length);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException("Fim inesperado do ficheiro na posição " + (position + buffer.position()));
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int inputSize() {
+        return pixelsPerImage;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        producer.interrupt();
+        try {
+            producer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        images.close();
+        labels.close();
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Uma configuração de um {@link HyperparameterSweep}: learning rate,
+ * tamanhos das camadas escondidas, batch size e otimizador.
+ */
+public final class SweepConfig {
+
+    private final double learningRate;
+    private final int[] hiddenSizes;
+    private final int batchSize;
+    private final String optimizer;
+
+    public SweepConfig(double learningRate, int[] hiddenSizes, int batchSize, String optimizer) {
+        if (!(learningRate > 0.0) || batchSize <= 0 || hiddenSizes.length == 0) {
+            throw new IllegalArgumentException("Configuração inválida: lr " + learningRate + ", hidden "
+                    + Arrays.toString(hiddenSizes) + ", batch " + batchSize);
+        }
+        for (int size : hiddenSizes) {
+            if (size <= 0) {
+                throw new IllegalArgumentException("Tamanho de camada inválido: " + Arrays.toString(hiddenSizes));
+            }
+        }
+        Optimizer.parse(optimizer);
+        this.learningRate = learningRate;
+        this.hiddenSizes = hiddenSizes.clone();
+        this.batchSize = batchSize;
+        this.optimizer = optimizer.toLowerCase(Locale.ROOT);
+    }
+
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    public int[] getHiddenSizes() {
+        return hiddenSizes.clone();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /** Nova instância do otimizador; cada rede tem a sua. */
+    public Optimizer newOptimizer() {
+        return Optimizer.parse(optimizer);
+    }
+
+    public String getOptimizerName() {
+        return optimizer;
+    }
+
+    /** Camadas escondidas no formato da spec, por exemplo {@code 256x128}. */
+    public String hiddenString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < hiddenSizes.length; i++) {
+            if (i > 0) {
+                builder.append('x');
+            }
+            builder.append(hiddenSizes[i]);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "lr=%.4g hidden=%s batch=%d optimizer=%s",
+                learningRate, hiddenString(), batchSize, optimizer);
+    }
+}
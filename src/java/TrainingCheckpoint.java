@@ -0,0 +1,289 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Estado do treino no fim de uma época: pesos, estado do otimizador,
+ * número de épocas concluídas, histórico do loss e seed do baralhamento
+ * (a ordem de cada época é derivada de {@code seed} e do número da época,
+ * pelo que basta guardar a seed). Formato little-endian:
+ *
+ * <pre>
+ * int    magic ("MNNC")
+ * int    versão
+ * int    épocas concluídas
+ * int    número de camadas
+ * por camada: int inputSize, int outputSize
+ * int    tem seed (0/1), long seed
+ * double learning rate
+ * int    entradas do histórico do loss
+ * int    número de arrays de estado do otimizador
+ * por camada: pesos e biases (double)
+ * histórico do loss (double)
+ * por array de estado: int comprimento, valores (double)
+ * long   CRC32 de tudo o que vem antes
+ * </pre>
+ *
+ * Os arrays são reutilizados entre capturas, para que o
+ * {@link Checkpointer} possa alternar entre dois buffers sem alocar.
+ */
+public final class TrainingCheckpoint {
+
+    public static final int MAGIC = 0x434E4E4D;
+    public static final int VERSION = 1;
+
+    private int epoch;
+    private int[] inputSizes;
+    private int[] outputSizes;
+    private double[][] weights;
+    private double[][] biases;
+    private Long seed;
+    private double learningRate;
+    private double[] lossHistory = new double[0];
+    private int lossCount;
+    private double[][] optimizerState = new double[0][];
+    private ByteBuffer encoded;
+
+    TrainingCheckpoint(List<Layer> layers) {
+        int count = layers.size();
+        this.inputSizes = new int[count];
+        this.outputSizes = new int[count];
+        this.weights = new double[count][];
+        this.biases = new double[count][];
+        for (int i = 0; i < count; i++) {
+            Layer layer = layers.get(i);
+            inputSizes[i] = layer.getInputSize();
+            outputSizes[i] = layer.getOutputSize();
+            weights[i] = new double[layer.getWeights().length];
+            biases[i] = new double[layer.getBiases().length];
+        }
+    }
+
+    private TrainingCheckpoint() {
+    }
+
+    /** Copia o estado atual para este buffer. Só copia arrays; não faz I/O. */
+    void capture(List<Layer> layers, int epoch, List<Double> losses, Long seed, double learningRate,
+                 double[][] optimizerState) {
+        for (int i = 0; i < layers.size(); i++) {
+            double[] layerWeights = layers.get(i).getWeights();
+            double[] layerBiases = layers.get(i).getBiases();
+            System.arraycopy(layerWeights, 0, weights[i], 0, layerWeights.length);
+            System.arraycopy(layerBiases, 0, biases[i], 0, layerBiases.length);
+        }
+        if (lossHistory.length < losses.size()) {
+            lossHistory = new double[Math.max(losses.size(), 2 * lossHistory.length)];
+        }
+        for (int i = 0; i < losses.size(); i++) {
+            lossHistory[i] = losses.get(i);
+        }
+        if (this.optimizerState.length != optimizerState.length) {
+            this.optimizerState = new double[optimizerState.length][];
+        }
+        for (int s = 0; s < optimizerState.length; s++) {
+            if (this.optimizerState[s] == null || this.optimizerState[s].length != optimizerState[s].length) {
+                this.optimizerState[s] = new double[optimizerState[s].length];
+            }
+            System.arraycopy(optimizerState[s], 0, this.optimizerState[s], 0, optimizerState[s].length);
+        }
+        this.lossCount = losses.size();
+        this.epoch = epoch;
+        this.seed = seed;
+        this.learningRate = learningRate;
+    }
+
+    /** Escreve os pesos do checkpoint nas camadas, validando a arquitetura. */
+    public void restoreTo(List<Layer> layers) {
+        if (layers.size() != weights.length) {
+            throw new IllegalStateException(String.format("O checkpoint tem %d camadas, a rede tem %d.",
+                    weights.length, layers.size()));
+        }
+        for (int i = 0; i < layers.size(); i++) {
+            Layer layer = layers.get(i);
+            if (layer.getInputSize() != inputSizes[i] || layer.getOutputSize() != outputSizes[i]) {
+                throw new IllegalStateException(String.format("Camada %d do checkpoint é %dx%d, esperado %dx%d.",
+                        i, outputSizes[i], inputSizes[i], layer.getOutputSize(), layer.getInputSize()));
+            }
+            System.arraycopy(weights[i], 0, layer.getWeights(), 0, weights[i].length);
+            System.arraycopy(biases[i], 0, layer.getBiases(), 0, biases[i].length);
+        }
+    }
+
+    /**
+     * Escreve num ficheiro temporário, força-o para o disco e só então o
+     * coloca no lugar de {@code path}; o checkpoint anterior passa a
+     * {@code path.prev}. Um crash a meio deixa sempre um checkpoint válido.
+     */
+    void write(Path path) throws IOException {
+        int size = 5 * Integer.BYTES + weights.length * 2 * Integer.BYTES + Integer.BYTES + Long.BYTES
+                + Double.BYTES + 2 * Integer.BYTES + lossCount * Double.BYTES + Long.BYTES;
+        for (int i = 0; i < weights.length; i++) {
+            size += (weights[i].length + biases[i].length) * Double.BYTES;
+        }
+        for (double[] state : optimizerState) {
+            size += Integer.BYTES + state.length * Double.BYTES;
+        }
+        if (encoded == null || encoded.capacity() < size) {
+            encoded = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        ByteBuffer buffer = encoded;
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(epoch);
+        buffer.putInt(weights.length);
+        for (int i = 0; i < weights.length; i++) {
+            buffer.putInt(inputSizes[i]);
+            buffer.putInt(outputSizes[i]);
+        }
+        buffer.putInt(seed == null ? 0 : 1);
+        buffer.putLong(seed == null ? 0L : seed);
+        buffer.putDouble(learningRate);
+        buffer.putInt(lossCount);
+        buffer.putInt(optimizerState.length);
+        for (int i = 0; i < weights.length; i++) {
+            putDoubles(buffer, weights[i], weights[i].length);
+            putDoubles(buffer, biases[i], biases[i].length);
+        }
+        putDoubles(buffer, lossHistory, lossCount);
+        for (double[] state : optimizerState) {
+            buffer.putInt(state.length);
+            putDoubles(buffer, state, state.length);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        if (Files.exists(path)) {
+            Files.move(path, previousPath(path), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Lê o checkpoint mais recente que passe a validação: {@code path} e,
+     * se estiver em falta ou corrompido, {@code path.prev}.
+     */
+    public static TrainingCheckpoint readLatest(Path path) throws IOException {
+        IOException failure = null;
+        for (Path candidate : new Path[]{path, previousPath(path)}) {
+            if (!Files.exists(candidate)) {
+                continue;
+            }
+            try {
+                return read(candidate);
+            } catch (IOException e) {
+                System.err.println("Checkpoint inválido ignorado: " + e.getMessage());
+                failure = e;
+            }
+        }
+        throw failure != null ? failure : new IOException("Nenhum checkpoint encontrado em " + path);
+    }
+
+    public static TrainingCheckpoint read(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        if (bytes.length < 4 * Integer.BYTES + Long.BYTES) {
+            throw new IOException(path + " está truncado.");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - Long.BYTES);
+        if (crc.getValue() != buffer.getLong(bytes.length - Long.BYTES)) {
+            throw new IOException("CRC inválido em " + path);
+        }
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException(path + " não é um checkpoint de treino.");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Versão de checkpoint não suportada em " + path + ": " + version);
+        }
+
+        TrainingCheckpoint checkpoint = new TrainingCheckpoint();
+        checkpoint.epoch = buffer.getInt();
+        int count = buffer.getInt();
+        checkpoint.inputSizes = new int[count];
+        checkpoint.outputSizes = new int[count];
+        checkpoint.weights = new double[count][];
+        checkpoint.biases = new double[count][];
+        for (int i = 0; i < count; i++) {
+            checkpoint.inputSizes[i] = buffer.getInt();
+            checkpoint.outputSizes[i] = buffer.getInt();
+        }
+        boolean hasSeed = buffer.getInt() != 0;
+        long seed = buffer.getLong();
+        checkpoint.seed = hasSeed ? seed : null;
+        checkpoint.learningRate = buffer.getDouble();
+        checkpoint.lossCount = buffer.getInt();
+        int stateCount = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            checkpoint.weights[i] = getDoubles(buffer, checkpoint.inputSizes[i] * checkpoint.outputSizes[i]);
+            checkpoint.biases[i] = getDoubles(buffer, checkpoint.outputSizes[i]);
+        }
+        checkpoint.lossHistory = getDoubles(buffer, checkpoint.lossCount);
+        checkpoint.optimizerState = new double[stateCount][];
+        for (int s = 0; s < stateCount; s++) {
+            checkpoint.optimizerState[s] = getDoubles(buffer, buffer.getInt());
+        }
+        return checkpoint;
+    }
+
+    static Path previousPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".prev");
+    }
+
+    private static void putDoubles(ByteBuffer buffer, double[] values, int length) {
+        buffer.asDoubleBuffer().put(values, 0, length);
+        buffer.position(buffer.position() + length * Double.BYTES);
+    }
+
+    private static double[] getDoubles(ByteBuffer buffer, int length) {
+        double[] values = new double[length];
+        buffer.asDoubleBuffer().get(values);
+        buffer.position(buffer.position() + length * Double.BYTES);
+        return values;
+    }
+
+    /** Número de épocas já concluídas; o treino retomado continua na seguinte. */
+    public int getEpoch() {
+        return epoch;
+    }
+
+    public Long getSeed() {
+        return seed;
+    }
+
+    public double getLearningRate() {
+        return learningRate;
+    }
+
+    public double[] getLossHistory() {
+        double[] history = new double[lossCount];
+        System.arraycopy(lossHistory, 0, history, 0, lossCount);
+        return history;
+    }
+
+    double[][] getOptimizerState() {
+        return optimizerState;
+    }
+}
@@ -0,0 +1,534 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Métricas do treino: tempo e histograma de duração de cada fase, amostras
+ * processadas, loss, fração de unidades ReLU ativas por camada, e
+ * alocação de memória e GC por época. Os contadores
+ * são {@link LongAdder}, pelo que os workers de treino registam em
+ * paralelo sem contenção; o custo é um par de {@code System.nanoTime()}
+ * por fase e por batch. Com vários workers o tempo das fases é a soma das
+ * threads e pode exceder o tempo real. A alocação de uma época soma, para
+ * cada thread viva no fim da época, o que alocou desde o início dela (ou
+ * desde que nasceu); uma thread que termine a meio da época não é contada,
+ * porque a JVM deixa de expor o seu contador.
+ *
+ * <p>Durante o treino as métricas são expostas por JMX
+ * ({@link TrainingMetricsMXBean}) e escritas em JSON lines: uma linha por
+ * época e um snapshot periódico dos totais.
+ */
+public class TrainingMetrics implements TrainingMetricsMXBean {
+
+    public static final int DEFAULT_REPORT_INTERVAL_SECONDS = 10;
+    static final String OBJECT_NAME = "DigitRecognition:type=TrainingMetrics";
+
+    /** Fases do treino medidas separadamente. */
+    public enum Phase {
+        FORWARD, BACKWARD, GRADIENTS, APPLY, SHUFFLE, DATA;
+
+        String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final LongAdder[] phaseNanos = new LongAdder[PHASES.length];
+    private final LongAdder[] phaseCounts = new LongAdder[PHASES.length];
+    private final LatencyHistogram[] histograms = new LatencyHistogram[PHASES.length];
+    private final LongAdder samples = new LongAdder();
+
+    private volatile long startNanos = System.nanoTime();
+    private volatile int epoch;
+    private volatile double lastEpochLoss = Double.NaN;
+    private volatile double lastEpochSamplesPerSecond;
+    private volatile long lastEpochAllocatedBytes = -1;
+    private volatile long lastEpochGcCount;
+    private volatile long lastEpochGcMillis;
+    private volatile double lastValidationAccuracy = Double.NaN;
+    private volatile double lastValidationLoss = Double.NaN;
+
+    private long epochStartNanos;
+    private Map<Long, Long> epochStartAllocated = Map.of();
+    private long epochStartGcCount;
+    private long epochStartGcMillis;
+    private final long[] epochStartPhaseNanos = new long[PHASES.length];
+
+    // Pares (amostra, unidade) ativos e totais de cada camada ReLU; ver recordActivity.
+    private volatile LongAdder[] activeUnits = new LongAdder[0];
+    private volatile LongAdder[] totalUnits = new LongAdder[0];
+    private long[] epochStartActive = new long[0];
+    private long[] epochStartTotal = new long[0];
+
+    private BufferedWriter writer;
+    private ScheduledExecutorService reporter;
+
+    public TrainingMetrics() {
+        for (int p = 0; p < PHASES.length; p++) {
+            phaseNanos[p] = new LongAdder();
+            phaseCounts[p] = new LongAdder();
+            histograms[p] = new LatencyHistogram();
+        }
+    }
+
+    /** Marca o início de uma fase; passar o valor devolvido a {@link #record}. */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    public void record(Phase phase, long startNanos) {
+        recordNanos(phase, System.nanoTime() - startNanos);
+    }
+
+    public void recordNanos(Phase phase, long nanos) {
+        int p = phase.ordinal();
+        phaseNanos[p].add(nanos);
+        phaseCounts[p].increment();
+        histograms[p].record(nanos);
+    }
+
+    public void addSamples(int count) {
+        samples.add(count);
+    }
+
+    /** Prepara os contadores de atividade para uma rede com {@code layers} camadas. */
+    public synchronized void trackLayers(int layers) {
+        if (activeUnits.length == layers) {
+            return;
+        }
+        LongAdder[] active = new LongAdder[layers];
+        LongAdder[] total = new LongAdder[layers];
+        for (int l = 0; l < layers; l++) {
+            active[l] = new LongAdder();
+            total[l] = new LongAdder();
+        }
+        epochStartActive = new long[layers];
+        epochStartTotal = new long[layers];
+        activeUnits = active;
+        totalUnits = total;
+    }
+
+    /** Regista {@code active} unidades ativas em {@code total} pares (amostra, unidade) da camada {@code layer}. */
+    public void recordActivity(int layer, long active, long total) {
+        LongAdder[] activeCounts = activeUnits;
+        LongAdder[] totalCounts = totalUnits;
+        if (layer < activeCounts.length) {
+            activeCounts[layer].add(active);
+            totalCounts[layer].add(total);
+        }
+    }
+
+    /**
+     * Zera os contadores, regista o MBean e começa a escrever em
+     * {@code jsonLinesPath}: um snapshot a cada {@code intervalSeconds}
+     * segundos (0 desativa) além das linhas de cada época.
+     */
+    public synchronized void start(Path jsonLinesPath, int intervalSeconds) throws IOException {
+        reset();
+        registerMBean();
+        writer = Files.newBufferedWriter(jsonLinesPath, StandardCharsets.UTF_8);
+        if (intervalSeconds > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "training-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reporter.scheduleAtFixedRate(() -> writeLine(snapshotJson()), intervalSeconds, intervalSeconds,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    /** Escreve o snapshot final e fecha o ficheiro. O MBean continua registado. */
+    public synchronized void stop() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+        if (writer != null) {
+            writeLine(snapshotJson());
+            try {
+                writer.close();
+            } catch (IOException e) {
+                System.err.println("Erro ao fechar o ficheiro de métricas: " + e.getMessage());
+            }
+            writer = null;
+        }
+    }
+
+    public void beginEpoch() {
+        epochStartNanos = System.nanoTime();
+        epochStartAllocated = allocatedBytesByThread();
+        epochStartGcCount = gcCount();
+        epochStartGcMillis = gcMillis();
+        for (int p = 0; p < PHASES.length; p++) {
+            epochStartPhaseNanos[p] = phaseNanos[p].sum();
+        }
+        for (int l = 0; l < epochStartActive.length; l++) {
+            epochStartActive[l] = activeUnits[l].sum();
+            epochStartTotal[l] = totalUnits[l].sum();
+        }
+    }
+
+    /** Fecha a época {@code epoch} (a contar de 1), escreve a sua linha JSON e mostra o resumo. */
+    public void endEpoch(int epoch, int epochSamples, double loss) {
+        long elapsed = System.nanoTime() - epochStartNanos;
+        long allocated = allocatedSince(epochStartAllocated);
+        this.epoch = epoch;
+        this.lastEpochLoss = loss;
+        this.lastEpochSamplesPerSecond = epochSamples / (elapsed / 1e9);
+        this.lastEpochAllocatedBytes = allocated;
+        this.lastEpochGcCount = gcCount() - epochStartGcCount;
+        this.lastEpochGcMillis = gcMillis() - epochStartGcMillis;
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"type\":\"epoch\",\"time\":\"").append(Instant.now()).append('"');
+        json.append(",\"epoch\":").append(epoch);
+        appendNumber(json, "loss", loss);
+        json.append(",\"samples\":").append(epochSamples);
+        appendNumber(json, "seconds", elapsed / 1e9);
+        appendNumber(json, "samplesPerSecond", lastEpochSamplesPerSecond);
+        json.append(",\"allocatedBytes\":").append(lastEpochAllocatedBytes);
+        json.append(",\"gcCount\":").append(lastEpochGcCount);
+        json.append(",\"gcMillis\":").append(lastEpochGcMillis);
+        json.append(",\"phaseMillis\":{");
+        for (int p = 0; p < PHASES.length; p++) {
+            if (p > 0) {
+                json.append(',');
+            }
+            json.append('"').append(PHASES[p].key()).append("\":")
+                    .append(format((phaseNanos[p].sum() - epochStartPhaseNanos[p]) / 1e6));
+        }
+        json.append('}');
+        StringBuilder activity = new StringBuilder();
+        Map<String, Double> fractions = activeFractions(epochStartActive, epochStartTotal);
+        if (!fractions.isEmpty()) {
+            appendMap(json, "activeFraction", fractions);
+            activity.append(" | ativos:");
+            for (double fraction : fractions.values()) {
+                activity.append(String.format(" %.1f%%", 100.0 * fraction));
+            }
+        }
+        json.append('}');
+        writeLine(json.toString());
+
+        System.out.println(String.format("   -> %.0f amostras/s | alocado: %s | GC: %d (%d ms)%s",
+                lastEpochSamplesPerSecond, formatBytes(lastEpochAllocatedBytes), lastEpochGcCount, lastEpochGcMillis,
+                activity));
+    }
+
+    /**
+     * Regista a avaliação da época {@code epoch} sobre o conjunto de
+     * validação, numa linha {@code "type":"validation"} à parte para não
+     * contar no throughput de treino.
+     */
+    public void recordValidation(int epoch, EvaluationResult result, long nanos) {
+        this.lastValidationAccuracy = result.getAccuracy();
+        this.lastValidationLoss = result.getAverageLoss();
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\"type\":\"validation\",\"time\":\"").append(Instant.now()).append('"');
+        json.append(",\"epoch\":").append(epoch);
+        json.append(",\"samples\":").append(result.getSamples());
+        appendNumber(json, "accuracy", lastValidationAccuracy);
+        appendNumber(json, "loss", lastValidationLoss);
+        appendNumber(json, "topKAccuracy", result.getTopKAccuracy(result.getMaxTopK()));
+        appendNumber(json, "macroF1", result.getMacroF1());
+        appendNumber(json, "seconds", nanos / 1e9);
+        json.append('}');
+        writeLine(json.toString());
+    }
+
+    /** Tabela com o tempo total, a fração e os percentis de cada fase. */
+    public void printSummary() {
+        long total = 0;
+        for (LongAdder nanos : phaseNanos) {
+            total += nanos.sum();
+        }
+        System.out.println("\nFase         Total (ms)      %    p50 (µs)    p99 (µs)");
+        for (Phase phase : PHASES) {
+            int p = phase.ordinal();
+            long nanos = phaseNanos[p].sum();
+            if (phaseCounts[p].sum() == 0) {
+                continue;
+            }
+            System.out.println(String.format("%-10s %12.1f %6.1f %11.1f %11.1f", phase.key(), nanos / 1e6,
+                    total == 0 ? 0.0 : 100.0 * nanos / total, percentileMicros(p, 0.50), percentileMicros(p, 0.99)));
+        }
+        System.out.println(String.format("Amostras: %d (%.0f/s)", getSamples(), getSamplesPerSecond()));
+        Map<String, Double> fractions = getActiveFractions();
+        if (!fractions.isEmpty()) {
+            StringBuilder line = new StringBuilder("Unidades ReLU ativas (o resto é saltado no backward):");
+            for (Map.Entry<String, Double> entry : fractions.entrySet()) {
+                line.append(String.format(" %s %.1f%%", entry.getKey(), 100.0 * entry.getValue()));
+            }
+            System.out.println(line);
+        }
+    }
+
+    String snapshotJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"type\":\"snapshot\",\"time\":\"").append(Instant.now()).append('"');
+        json.append(",\"epoch\":").append(epoch);
+        json.append(",\"samples\":").append(getSamples());
+        appendNumber(json, "samplesPerSecond", getSamplesPerSecond());
+        appendNumber(json, "lastEpochLoss", lastEpochLoss);
+        appendNumber(json, "lastValidationAccuracy", lastValidationAccuracy);
+        appendMap(json, "activeFraction", getActiveFractions());
+        json.append(",\"phases\":{");
+        for (int p = 0; p < PHASES.length; p++) {
+            if (p > 0) {
+                json.append(',');
+            }
+            json.append('"').append(PHASES[p].key()).append("\":{\"count\":").append(phaseCounts[p].sum());
+            appendNumber(json, "totalMillis", phaseNanos[p].sum() / 1e6);
+            appendNumber(json, "p50Micros", percentileMicros(p, 0.50));
+            appendNumber(json, "p99Micros", percentileMicros(p, 0.99));
+            json.append('}');
+        }
+        json.append("}}");
+        return json.toString();
+    }
+
+    private synchronized void writeLine(String line) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(line);
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("Erro ao escrever métricas: " + e.getMessage());
+        }
+    }
+
+    private void reset() {
+        for (int p = 0; p < PHASES.length; p++) {
+            phaseNanos[p].reset();
+            phaseCounts[p].reset();
+            histograms[p].reset();
+        }
+        samples.reset();
+        for (int l = 0; l < activeUnits.length; l++) {
+            activeUnits[l].reset();
+            totalUnits[l].reset();
+        }
+        startNanos = System.nanoTime();
+        epoch = 0;
+        lastEpochLoss = Double.NaN;
+        lastValidationAccuracy = Double.NaN;
+        lastValidationLoss = Double.NaN;
+    }
+
+    private void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            System.err.println("Não foi possível registar as métricas em JMX: " + e.getMessage());
+        }
+    }
+
+    private double percentileMicros(int phase, double percentile) {
+        return histograms[phase].percentileMicros(percentile);
+    }
+
+    /**
+     * Bytes alocados até agora por cada thread viva, por id; {@code null}
+     * se a JVM não o suportar.
+     */
+    private static Map<Long, Long> allocatedBytesByThread() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        if (!allocation.isThreadAllocatedMemorySupported() || !allocation.isThreadAllocatedMemoryEnabled()) {
+            return null;
+        }
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = allocation.getThreadAllocatedBytes(ids);
+        Map<Long, Long> byThread = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            // -1: a thread terminou entre as duas chamadas.
+            if (bytes[i] >= 0) {
+                byThread.put(ids[i], bytes[i]);
+            }
+        }
+        return byThread;
+    }
+
+    /**
+     * Soma do que cada thread viva alocou desde {@code start}; as threads
+     * que nasceram depois contam desde zero. -1 se a JVM não o suportar.
+     */
+    private static long allocatedSince(Map<Long, Long> start) {
+        Map<Long, Long> now = allocatedBytesByThread();
+        if (now == null || start == null) {
+            return -1;
+        }
+        long total = 0;
+        for (Map.Entry<Long, Long> thread : now.entrySet()) {
+            total += Math.max(0, thread.getValue() - start.getOrDefault(thread.getKey(), 0L));
+        }
+        return total;
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static void appendNumber(StringBuilder json, String key, double value) {
+        json.append(",\"").append(key).append("\":").append(format(value));
+    }
+
+    private static void appendMap(StringBuilder json, String key, Map<String, Double> values) {
+        json.append(",\"").append(key).append("\":{");
+        boolean first = true;
+        for (Map.Entry<String, Double> entry : values.entrySet()) {
+            json.append(first ? "" : ",").append('"').append(entry.getKey()).append("\":").append(format(entry.getValue()));
+            first = false;
+        }
+        json.append('}');
+    }
+
+    private static String format(double value) {
+        return Double.isFinite(value) ? String.format(Locale.ROOT, "%.6f", value) : "null";
+    }
+
+    private static String formatBytes(long bytes) {
+        return bytes < 0 ? "n/d" : String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    @Override
+    public int getEpoch() {
+        return epoch;
+    }
+
+    @Override
+    public long getSamples() {
+        return samples.sum();
+    }
+
+    @Override
+    public double getSamplesPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds > 0 ? getSamples() / seconds : 0.0;
+    }
+
+    @Override
+    public double getLastEpochLoss() {
+        return lastEpochLoss;
+    }
+
+    @Override
+    public double getLastValidationAccuracy() {
+        return lastValidationAccuracy;
+    }
+
+    @Override
+    public double getLastValidationLoss() {
+        return lastValidationLoss;
+    }
+
+    @Override
+    public double getLastEpochSamplesPerSecond() {
+        return lastEpochSamplesPerSecond;
+    }
+
+    @Override
+    public long getLastEpochAllocatedBytes() {
+        return lastEpochAllocatedBytes;
+    }
+
+    @Override
+    public long getLastEpochGcCount() {
+        return lastEpochGcCount;
+    }
+
+    @Override
+    public long getLastEpochGcMillis() {
+        return lastEpochGcMillis;
+    }
+
+    @Override
+    public Map<String, Double> getActiveFractions() {
+        return activeFractions(null, null);
+    }
+
+    /** Fração ativa de cada camada com registos desde {@code startActive}/{@code startTotal} (ou desde o início). */
+    private Map<String, Double> activeFractions(long[] startActive, long[] startTotal) {
+        LongAdder[] activeCounts = activeUnits;
+        LongAdder[] totalCounts = totalUnits;
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (int l = 0; l < activeCounts.length; l++) {
+            long total = totalCounts[l].sum() - (startTotal == null ? 0 : startTotal[l]);
+            if (total > 0) {
+                long active = activeCounts[l].sum() - (startActive == null ? 0 : startActive[l]);
+                result.put("layer" + l, (double) active / total);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getPhaseMillis() {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Phase phase : PHASES) {
+            result.put(phase.key(), phaseNanos[phase.ordinal()].sum() / 1e6);
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getPhaseP50Micros() {
+        return percentiles(0.50);
+    }
+
+    @Override
+    public Map<String, Double> getPhaseP99Micros() {
+        return percentiles(0.99);
+    }
+
+    private Map<String, Double> percentiles(double percentile) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        for (Phase phase : PHASES) {
+            result.put(phase.key(), percentileMicros(phase.ordinal(), percentile));
+        }
+        return result;
+    }
+}
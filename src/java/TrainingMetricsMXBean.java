@@ -0,0 +1,46 @@
+import java.util.Map;
+
+/**
+ * Vista JMX de {@link TrainingMetrics}, registada como
+ * {@code DigitRecognition:type=TrainingMetrics} (visível no JConsole ou
+ * no VisualVM durante o treino).
+ */
+public interface TrainingMetricsMXBean {
+
+    int getEpoch();
+
+    long getSamples();
+
+    double getSamplesPerSecond();
+
+    double getLastEpochLoss();
+
+    double getLastEpochSamplesPerSecond();
+
+    /**
+     * Bytes alocados na última época pelas threads vivas no fim dela; não
+     * inclui threads que terminaram a meio. -1 se a JVM não o medir.
+     */
+    long getLastEpochAllocatedBytes();
+
+    long getLastEpochGcCount();
+
+    long getLastEpochGcMillis();
+
+    /** Accuracy (em %) da última validação; NaN se não houver conjunto de validação. */
+    double getLastValidationAccuracy();
+
+    double getLastValidationLoss();
+
+    /** Fração de pares (amostra, unidade) ativos em cada camada ReLU, desde o início do treino. */
+    Map<String, Double> getActiveFractions();
+
+    /** Tempo total acumulado por fase, em ms. */
+    Map<String, Double> getPhaseMillis();
+
+    /** Percentil 50 da duração de cada fase, em µs. */
+    Map<String, Double> getPhaseP50Micros();
+
+    /** Percentil 99 da duração de cada fase, em µs. */
+    Map<String, Double> getPhaseP99Micros();
+}
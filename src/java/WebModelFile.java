@@ -0,0 +1,211 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Exportação compacta dos pesos para a interface web: um manifest JSON
+ * com a arquitetura e a posição de cada bloco, e um blob binário
+ * little-endian (mesmo nome, extensão {@code .bin}) que o browser lê com
+ * um só {@code fetch} para um {@code ArrayBuffer} e converte em
+ * {@code Float32Array} sem parsing de texto.
+ *
+ * <pre>
+ * float16: por camada, pesos uint16 [outputSize x inputSize] row-major, biases float32
+ * int8:    por camada, escalas float32 [outputSize], biases float32, pesos int8 [outputSize x inputSize]
+ * </pre>
+ *
+ * No int8 cada linha de pesos tem a sua escala simétrica, como em
+ * {@link QuantizedModel}; o browser desquantiza para float32 ao carregar.
+ * Cada bloco começa num múltiplo de 4 bytes, para poder ser visto
+ * diretamente como array tipado.
+ */
+public final class WebModelFile {
+
+    public static final String FORMAT = "digit-recognition-web";
+    public static final int VERSION = 1;
+
+    /** Tipo dos pesos no blob. */
+    public enum Dtype {
+        FLOAT16, INT8;
+
+        public static Dtype parse(String value) {
+            switch (value.toLowerCase(Locale.ROOT)) {
+                case "float16":
+                    return FLOAT16;
+                case "int8":
+                    return INT8;
+                default:
+                    throw new IllegalArgumentException("Tipo de exportação web desconhecido: " + value
+                            + " (use float16 ou int8)");
+            }
+        }
+
+        String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private WebModelFile() {
+    }
+
+    /** Caminho do blob de um manifest: {@code model-web.json} dá {@code model-web.bin}. */
+    public static Path blobPath(Path manifest) {
+        String name = manifest.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return manifest.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".bin");
+    }
+
+    /**
+     * Escreve o blob e depois o manifest, cada um num ficheiro temporário
+     * que substitui o destino no fim, para que o manifest nunca aponte para
+     * um blob incompleto.
+     */
+    public static void write(Path manifest, List<Layer> layers, boolean softmaxOutput, Dtype dtype)
+            throws IOException {
+        int blobSize = 0;
+        for (Layer layer : layers) {
+            blobSize += layerBytes(dtype, layer.getInputSize(), layer.getOutputSize());
+        }
+        ByteBuffer blob = ByteBuffer.allocate(blobSize).order(ByteOrder.LITTLE_ENDIAN);
+        Path blobPath = blobPath(manifest);
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"format\": \"").append(FORMAT).append("\",\n");
+        json.append("  \"version\": ").append(VERSION).append(",\n");
+        json.append("  \"dtype\": \"").append(dtype.key()).append("\",\n");
+        json.append("  \"blob\": \"").append(blobPath.getFileName()).append("\",\n");
+        json.append("  \"bytes\": ").append(blobSize).append(",\n");
+        json.append(String.format(Locale.ROOT, "  \"input\": {\"size\": %d, \"mean\": %s, \"std\": %s},%n",
+                layers.get(0).getInputSize(), MnistLoader.PIXEL_MEAN, MnistLoader.PIXEL_STD));
+        json.append("  \"softmax\": ").append(softmaxOutput).append(",\n");
+        json.append("  \"layers\": [");
+        for (int l = 0; l < layers.size(); l++) {
+            Layer layer = layers.get(l);
+            int inputSize = layer.getInputSize();
+            int outputSize = layer.getOutputSize();
+            double[] weights = layer.getWeights();
+            double[] biases = layer.getBiases();
+            int count = inputSize * outputSize;
+
+            json.append(l == 0 ? "\n" : ",\n");
+            json.append("    {\"inputSize\": ").append(inputSize)
+                    .append(", \"outputSize\": ").append(outputSize)
+                    .append(", \"activation\": \"").append(layer.getActivationType().name().toLowerCase(Locale.ROOT))
+                    .append('"');
+            if (dtype == Dtype.FLOAT16) {
+                appendBlock(json, "weights", blob.position(), count);
+                for (int j = 0; j < count; j++) {
+                    blob.putShort(toHalf((float) weights[j]));
+                }
+                align4(blob);
+                appendBlock(json, "biases", blob.position(), outputSize);
+                putFloats(blob, biases);
+            } else {
+                appendBlock(json, "scales", blob.position(), outputSize);
+                float[] scales = new float[outputSize];
+                for (int i = 0; i < outputSize; i++) {
+                    double max = 0.0;
+                    for (int j = 0; j < inputSize; j++) {
+                        max = Math.max(max, Math.abs(weights[i * inputSize + j]));
+                    }
+                    scales[i] = QuantizedModel.scaleFor(max);
+                    blob.putFloat(scales[i]);
+                }
+                appendBlock(json, "biases", blob.position(), outputSize);
+                putFloats(blob, biases);
+                appendBlock(json, "weights", blob.position(), count);
+                for (int i = 0; i < outputSize; i++) {
+                    for (int j = 0; j < inputSize; j++) {
+                        blob.put(QuantizedModel.quantize(weights[i * inputSize + j], scales[i]));
+                    }
+                }
+                align4(blob);
+            }
+            json.append('}');
+        }
+        json.append("\n  ]\n}\n");
+
+        Path parent = manifest.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        replace(blobPath, blob.array());
+        replace(manifest, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void replace(Path path, byte[] content) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temp, content);
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int layerBytes(Dtype dtype, int inputSize, int outputSize) {
+        int count = inputSize * outputSize;
+        if (dtype == Dtype.FLOAT16) {
+            return align4(2 * count) + Float.BYTES * outputSize;
+        }
+        return 2 * Float.BYTES * outputSize + align4(count);
+    }
+
+    private static int align4(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+
+    private static void align4(ByteBuffer buffer) {
+        buffer.position(align4(buffer.position()));
+    }
+
+    private static void putFloats(ByteBuffer buffer, double[] values) {
+        for (double value : values) {
+            buffer.putFloat((float) value);
+        }
+    }
+
+    private static void appendBlock(StringBuilder json, String name, int offset, int length) {
+        json.append(", \"").append(name).append("\": {\"offset\": ").append(offset)
+                .append(", \"length\": ").append(length).append('}');
+    }
+
+    /** Converte para float16 (IEEE 754 binary16), com arredondamento para o par mais próximo. */
+    static short toHalf(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = (bits >>> 23) & 0xFF;
+        int mantissa = bits & 0x7FFFFF;
+        if (exponent == 0xFF) {
+            return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+        }
+        int halfExponent = exponent - 127 + 15;
+        if (halfExponent >= 0x1F) {
+            return (short) (sign | 0x7C00);
+        }
+        if (halfExponent <= 0) {
+            // Subnormal em float16: mantissa com o bit implícito, deslocada para a escala 2^-24.
+            if (halfExponent < -10) {
+                return (short) sign;
+            }
+            int full = mantissa | 0x800000;
+            int shift = 14 - halfExponent;
+            int half = full >> shift;
+            int remainder = full & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if (remainder > halfway || (remainder == halfway && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+        // O arredondamento pode passar para o expoente seguinte (ou para infinito), como deve.
+        int half = (halfExponent << 10) | (mantissa >> 13);
+        int remainder = mantissa & 0x1FFF;
+        if (remainder > 0x1000 || (remainder == 0x1000 && (half & 1) != 0)) {
+            half++;
+        }
+        return (short) (sign | half);
+    }
+}
@@ -284,6 +284,21 @@ function updatePreview() {
 // Carregar rede neural
 async function loadNeuralNetwork() {
     try {
+        // Modelo compacto (--export-web): um manifest e um blob binário, sem parsing de texto
+        try {
+            const network = await NeuralNetwork.loadWebModel('../weights/model-web.json');
+            const first = network.layers[0];
+            const last = network.layers[network.layers.length - 1];
+            if (first.inputSize !== GRID_SIZE * GRID_SIZE || last.outputSize !== OUTPUT_CLASSES) {
+                throw new Error(`Arquitetura ${first.inputSize} -> ${last.outputSize} incompatível.`);
+            }
+            neuralNetwork = network;
+            console.log(`Rede neural carregada do modelo compacto (${network.dtype}).`);
+            return;
+        } catch (webModelError) {
+            console.warn('Modelo compacto indisponível, a carregar o CSV:', webModelError);
+        }
+
         // Criar estrutura da rede baseada na arquitetura de treino (784 -> 256 -> 128 -> 10)
         const layers = [];
         let previousSize = GRID_SIZE * GRID_SIZE;
@@ -4,6 +4,47 @@ const ActivationType = {
     LINEAR: 'linear'
 };
 
+function activate(activationType, z) {
+    switch (activationType) {
+        case ActivationType.RELU:
+            return Math.max(0, z);
+        case ActivationType.SIGMOID:
+            return 1 / (1 + Math.exp(-z));
+        case ActivationType.LINEAR:
+        default:
+            return z;
+    }
+}
+
+// float16 (IEEE 754 binary16) -> número
+function halfToFloat(h) {
+    const sign = h & 0x8000 ? -1 : 1;
+    const exponent = (h >> 10) & 0x1F;
+    const fraction = h & 0x3FF;
+    if (exponent === 0) {
+        return sign * fraction * 2 ** -24;
+    }
+    if (exponent === 0x1F) {
+        return fraction ? NaN : sign * Infinity;
+    }
+    return sign * (1 + fraction / 1024) * 2 ** (exponent - 15);
+}
+
+// Converte um bloco de float16 para float32: os valores normais só mudam de
+// posição de bits; zeros, subnormais, infinitos e NaN passam por halfToFloat.
+function decodeHalves(halves, target) {
+    const bits = new Uint32Array(target.buffer, target.byteOffset, target.length);
+    for (let k = 0; k < halves.length; k++) {
+        const h = halves[k];
+        const exponent = h & 0x7C00;
+        if (exponent !== 0 && exponent !== 0x7C00) {
+            bits[k] = ((h & 0x8000) << 16) | (((h & 0x7FFF) + 0x1C000) << 13);
+        } else {
+            target[k] = halfToFloat(h);
+        }
+    }
+}
+
 class Neuron {
     constructor(inputSize, activationType) {
         this.activationType = activationType;
@@ -25,18 +66,7 @@ class Neuron {
     }
 
     activate(inputs) {
-        const z = this.netInput(inputs);
-        switch (this.activationType) {
-            case ActivationType.RELU:
-                this.output = Math.max(0, z);
-                break;
-            case ActivationType.SIGMOID:
-                this.output = 1 / (1 + Math.exp(-z));
-                break;
-            case ActivationType.LINEAR:
-            default:
-                this.output = z;
-        }
+        this.output = activate(this.activationType, this.netInput(inputs));
         return this.output;
     }
 }
@@ -59,6 +89,32 @@ class Layer {
     }
 }
 
+// Camada com os pesos num único Float32Array [outputSize x inputSize] row-major,
+// carregada do modelo compacto exportado com --export-web.
+class FlatLayer {
+    constructor(inputSize, outputSize, activationType, weights, biases) {
+        this.inputSize = inputSize;
+        this.outputSize = outputSize;
+        this.activationType = activationType;
+        this.weights = weights;
+        this.biases = biases;
+        this.outputs = new Float32Array(outputSize);
+    }
+
+    forward(inputs) {
+        const { inputSize, outputSize, weights, biases, outputs } = this;
+        for (let i = 0; i < outputSize; i++) {
+            const row = i * inputSize;
+            let sum = biases[i];
+            for (let j = 0; j < inputSize; j++) {
+                sum += weights[row + j] * inputs[j];
+            }
+            outputs[i] = activate(this.activationType, sum);
+        }
+        return outputs;
+    }
+}
+
 class NeuralNetwork {
     constructor(layers) {
         this.layers = layers;
@@ -129,8 +185,57 @@ class NeuralNetwork {
         this.loadWeightsFromJSON(weightsData);
     }
 
+    // Modelo compacto: manifest JSON + blob binário (float16 ou int8), num ArrayBuffer.
+    static fromWebModel(manifest, buffer) {
+        if (manifest.format !== 'digit-recognition-web' || manifest.version !== 1) {
+            throw new Error(`Formato de modelo web desconhecido: ${manifest.format} v${manifest.version}`);
+        }
+        if (buffer.byteLength !== manifest.bytes) {
+            throw new Error(`Blob de pesos com ${buffer.byteLength} bytes, esperado ${manifest.bytes}.`);
+        }
+
+        const layers = manifest.layers.map(layer => {
+            const count = layer.inputSize * layer.outputSize;
+            const biases = new Float32Array(buffer, layer.biases.offset, layer.outputSize);
+            const weights = new Float32Array(count);
+            if (manifest.dtype === 'float16') {
+                decodeHalves(new Uint16Array(buffer, layer.weights.offset, count), weights);
+            } else if (manifest.dtype === 'int8') {
+                const quantized = new Int8Array(buffer, layer.weights.offset, count);
+                const scales = new Float32Array(buffer, layer.scales.offset, layer.outputSize);
+                for (let i = 0; i < layer.outputSize; i++) {
+                    const row = i * layer.inputSize;
+                    for (let j = 0; j < layer.inputSize; j++) {
+                        weights[row + j] = quantized[row + j] * scales[i];
+                    }
+                }
+            } else {
+                throw new Error(`Tipo de pesos desconhecido: ${manifest.dtype}`);
+            }
+            return new FlatLayer(layer.inputSize, layer.outputSize, layer.activation, weights, biases);
+        });
+        return new NeuralNetwork(layers);
+    }
+
+    static async loadWebModel(manifestUrl) {
+        const manifestLocation = new URL(manifestUrl, document.baseURI);
+        const manifestResponse = await fetch(manifestLocation);
+        if (!manifestResponse.ok) {
+            throw new Error(`Não foi possível carregar ${manifestLocation} (${manifestResponse.status}).`);
+        }
+        const manifest = await manifestResponse.json();
+        const blobLocation = new URL(manifest.blob, manifestLocation);
+        const blobResponse = await fetch(blobLocation);
+        if (!blobResponse.ok) {
+            throw new Error(`Não foi possível carregar ${blobLocation} (${blobResponse.status}).`);
+        }
+        const network = NeuralNetwork.fromWebModel(manifest, await blobResponse.arrayBuffer());
+        network.dtype = manifest.dtype;
+        return network;
+    }
+
     predict(inputs) {
         const logits = this.forward(inputs);
-        return NeuralNetwork.softmax(logits);
+        return NeuralNetwork.softmax(Array.from(logits));
     }
 }